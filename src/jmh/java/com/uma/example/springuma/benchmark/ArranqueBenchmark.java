@@ -0,0 +1,190 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+
+import com.uma.example.springuma.SpringumaApplication;
+
+// Arranque en frio de la aplicacion completa (con el servidor web) sobre una base de datos en fichero con
+// "imagenes" imagenes, informes y sus pacientes: cada fork es una JVM nueva que arranca una sola vez. Compara el
+// esquema gestionado por Hibernate (update: ddl-auto=update sin migraciones, como antes) con las migraciones
+// versionadas (validate: Flyway solo lee su historial e Hibernate comprueba el esquema; none: sin comprobarlo).
+//
+// Ademas del tiempo hasta que el contexto esta listo, cada fork imprime lo que tardan los pasos de la base de datos,
+// sin contar los pasos que tienen dentro: la primera conexion (abrir el fichero de H2) la hace Flyway o, sin
+// Flyway, el ajuste de las secuencias; JPA es lo que tarda el EntityManagerFactory en si (Hibernate y el update o
+// validate del esquema). La base de datos se prepara en el fork de calentamiento, que no se mide, y cada fork
+// arranca sobre una copia
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, warmups = 1)
+public class ArranqueBenchmark {
+
+    private static final Path DIRECTORIO = Paths.get("target", "benchmark-arranque");
+    private static final int IMAGENES_POR_PACIENTE = 5;
+    private static final int MEDICOS = 50;
+    private static final String USUARIO = "sa";
+
+    // Beans de los pasos que se imprimen, con el nombre con el que se imprimen (el EntityManagerFactory lo crea
+    // su FactoryBean)
+    private static final Map<String, String> PASOS = Map.of(
+        "flywayInitializer", "flyway",
+        "secuenciasMigracion", "secuencias",
+        "&entityManagerFactory", "jpa");
+
+    @Param({"update", "validate", "none"})
+    private String esquema;
+
+    @Param({"100000"})
+    private int imagenes;
+
+    private Path fichero;
+    private BufferingApplicationStartup pasos;
+    private ConfigurableApplicationContext contexto;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException, SQLException {
+        Files.createDirectories(DIRECTORIO);
+        boolean migraciones = !"update".equals(esquema);
+        Path plantilla = DIRECTORIO.resolve((migraciones ? "migraciones-" : "update-") + imagenes + ".mv.db");
+        if (!Files.exists(plantilla)) {
+            preparar(plantilla, migraciones);
+        }
+        fichero = DIRECTORIO.resolve(esquema + ".mv.db");
+        Files.copy(plantilla, fichero, StandardCopyOption.REPLACE_EXISTING);
+        pasos = new BufferingApplicationStartup(20000);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        contexto.close();
+        imprimirPasos();
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext arrancar() {
+        List<String> propiedades = new ArrayList<>(List.of(
+            "spring.datasource.url=jdbc:h2:file:./" + sinExtension(fichero),
+            "spring.datasource.username=" + USUARIO,
+            "spring.datasource.password=",
+            "spring.jpa.hibernate.ddl-auto=" + esquema,
+            "server.port=0",
+            "imagen.reactivo.puerto=0",
+            "busqueda.indice.path="));
+        if ("update".equals(esquema)) {
+            propiedades.add("spring.flyway.enabled=false");
+        }
+        contexto = new SpringApplicationBuilder(SpringumaApplication.class)
+            .logStartupInfo(false)
+            .applicationStartup(pasos)
+            .run(ContextoBenchmark.argumentos("arranque", propiedades.toArray(String[]::new)));
+        return contexto;
+    }
+
+    // Duracion de cada paso sin la de los pasos que tiene dentro (p. ej. el EntityManagerFactory crea antes el
+    // DataSource y Flyway)
+    private void imprimirPasos() {
+        List<StartupTimeline.TimelineEvent> eventos = pasos.getBufferedTimeline().getEvents();
+        Map<Long, Duration> dentro = new HashMap<>();
+        for (StartupTimeline.TimelineEvent evento : eventos) {
+            Long padre = evento.getStartupStep().getParentId();
+            if (padre != null) {
+                dentro.merge(padre, evento.getDuration(), Duration::plus);
+            }
+        }
+        StringBuilder linea = new StringBuilder("\n" + esquema + ":");
+        Set<String> impresos = new HashSet<>();
+        for (StartupTimeline.TimelineEvent evento : eventos) {
+            String bean = bean(evento.getStartupStep());
+            // Solo la creacion del bean, no las busquedas posteriores que lo encuentran ya creado
+            if (bean != null && PASOS.containsKey(bean) && impresos.add(bean)) {
+                Duration propia = evento.getDuration().minus(dentro.getOrDefault(evento.getStartupStep().getId(), Duration.ZERO));
+                linea.append(' ').append(PASOS.get(bean)).append('=').append(propia.toMillis()).append(" ms");
+            }
+        }
+        System.out.println(linea);
+    }
+
+    private static String bean(StartupStep paso) {
+        if (!"spring.beans.instantiate".equals(paso.getName())) {
+            return null;
+        }
+        for (StartupStep.Tag tag : paso.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Base de datos con el esquema de las migraciones y los datos insertados con SQL, sin arrancar la aplicacion.
+    // Sin migraciones, solo la V1 (el esquema que creaba Hibernate) y sin el historial de Flyway, como una base de
+    // datos creada con ddl-auto=update
+    private void preparar(Path plantilla, boolean migraciones) throws SQLException {
+        String url = "jdbc:h2:file:./" + sinExtension(plantilla);
+        Flyway.configure().dataSource(url, USUARIO, "").target(migraciones ? "latest" : "1").load().migrate();
+        int pacientes = imagenes / IMAGENES_POR_PACIENTE;
+        try (Connection conexion = DriverManager.getConnection(url, USUARIO, "");
+                Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("insert into medico (id, dni, nombre, especialidad) "
+                + "select x, lpad(x, 8, '0') || 'A', 'Medico ' || x, 'Radiologia' from system_range(1, " + MEDICOS + ")");
+            sentencia.execute("insert into paciente (id, dni, nombre, edad, cita, medico_id) "
+                + "select x, lpad(x, 8, '0') || 'B', 'Paciente ' || x, 20 + mod(x, 70), 'Consulta', mod(x, " + MEDICOS
+                + ") + 1 from system_range(1, " + pacientes + ")");
+            sentencia.execute("insert into imagen (id, nombre, fecha, tamano, hash, codec, tipo, paciente_id) "
+                + "select x, 'imagen-' || x || '.png', dateadd(minute, x, timestamp '2020-01-01 00:00:00'), 5431, "
+                + "lpad(to_char(x), 64, '0'), 'identity', 'image/png', mod(x, " + pacientes + ") + 1 "
+                + "from system_range(1, " + imagenes + ")");
+            sentencia.execute("insert into informe (id, prediccion, contenido, estado_prediccion, imagen_id) "
+                + "select x, 'Not cancer', 'Informe de la imagen ' || x, 'COMPLETADA', x "
+                + "from system_range(1, " + imagenes + ")");
+            if (!migraciones) {
+                sentencia.execute("drop table \"flyway_schema_history\"");
+            }
+            sentencia.execute("shutdown compact");
+        }
+    }
+
+    private static String sinExtension(Path fichero) {
+        String nombre = fichero.toString();
+        return nombre.substring(0, nombre.length() - ".mv.db".length());
+    }
+}
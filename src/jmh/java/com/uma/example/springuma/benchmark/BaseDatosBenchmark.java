@@ -0,0 +1,122 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryMedico;
+
+// Rendimiento de addPaciente y uploadImage con varios hilos escribiendo a la vez sobre una base de datos en
+// fichero, con cada configuracion de base de datos:
+//   defecto  H2 embebida y Hikari sin ajustar, como application.properties
+//   prod     perfil prod: pool fijo sin autocommit y ajustes de MVStore (application-prod.properties)
+//   tcp      perfil prod con la base de datos detras del servidor TCP de H2 (ServidorH2), como cuando varias
+//            instancias la comparten
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class BaseDatosBenchmark {
+
+    private static final Path DIRECTORIO = Paths.get("target", "benchmark-bd");
+    private static final int PUERTO_TCP = 19092;
+
+    @Param({"defecto", "prod", "tcp"})
+    private String configuracion;
+
+    private ConfigurableApplicationContext contexto;
+    private PacienteService pacienteService;
+    private ImagenService imagenService;
+    private Medico medico;
+    private Paciente paciente;
+    private MockMultipartFile multipart;
+    private final AtomicLong siguiente = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Files.createDirectories(DIRECTORIO);
+        Files.deleteIfExists(DIRECTORIO.resolve(configuracion + ".mv.db"));
+        Files.deleteIfExists(DIRECTORIO.resolve(configuracion + ".trace.db"));
+        contexto = ContextoBenchmark.arrancar(configuracion, propiedades());
+        pacienteService = contexto.getBean(PacienteService.class);
+        imagenService = contexto.getBean(ImagenService.class);
+
+        medico = contexto.getBean(RepositoryMedico.class).save(new Medico("M0", "Medico", "Radiologia"));
+        paciente = pacienteService.addPaciente(nuevoPaciente());
+        byte[] contenido;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("healthy.png")) {
+            contenido = in.readAllBytes();
+        }
+        multipart = new MockMultipartFile("image", "healthy.png", "image/png", contenido);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Paciente addPaciente() {
+        return pacienteService.addPaciente(nuevoPaciente());
+    }
+
+    @Benchmark
+    public String uploadImage() throws IOException {
+        return imagenService.uploadImage(multipart, paciente);
+    }
+
+    private String[] propiedades() {
+        String fichero = "file:./" + DIRECTORIO.resolve(configuracion);
+        switch (configuracion) {
+            case "defecto":
+                return new String[] {"spring.datasource.url=jdbc:h2:" + fichero};
+            case "prod":
+                return new String[] {
+                    "spring.profiles.active=prod",
+                    "spring.datasource.url=jdbc:h2:${h2.ubicacion};${h2.ajustes}",
+                    "h2.ubicacion=" + fichero};
+            case "tcp":
+                return new String[] {
+                    "spring.profiles.active=prod",
+                    "spring.datasource.url=jdbc:h2:${h2.ubicacion};${h2.ajustes}",
+                    "h2.ubicacion=tcp://localhost:" + PUERTO_TCP + "/./" + configuracion,
+                    "h2.servidor.habilitado=true",
+                    "h2.servidor.puerto=" + PUERTO_TCP,
+                    "h2.servidor.directorio=" + DIRECTORIO};
+            default:
+                throw new IllegalArgumentException("Configuracion desconocida: " + configuracion);
+        }
+    }
+
+    private Paciente nuevoPaciente() {
+        return new Paciente("Paciente", 40, "Consulta", String.format("%08dB", siguiente.getAndIncrement()), medico);
+    }
+}
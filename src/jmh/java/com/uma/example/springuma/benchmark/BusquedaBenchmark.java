@@ -0,0 +1,130 @@
+package com.uma.example.springuma.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.busqueda.IndiceBusqueda;
+import com.uma.example.springuma.model.BusquedaService;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.RepositoryInforme;
+import com.uma.example.springuma.model.ResultadoBusqueda;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+// GET /search sobre un indice en memoria con "informes" informes de texto aleatorio (un vocabulario de radiologia),
+// indexados con la reindexacion en segundo plano: un termino frecuente, un prefijo y un termino con filtro de
+// medico. Tiempo por pagina de 20 resultados
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusquedaBenchmark {
+
+    private static final int MEDICOS = 20;
+    private static final int TAMANO_PAGINA = 20;
+    private static final String[] PALABRAS = {
+        "mama", "densa", "nodulo", "microcalcificaciones", "agrupadas", "aisladas", "benigno", "sospechoso",
+        "asimetria", "focal", "distorsion", "arquitectura", "quiste", "simple", "complejo", "ganglio", "axilar",
+        "biopsia", "recomendada", "control", "seis", "meses", "BI-RADS", "categoria", "margenes", "espiculados",
+        "circunscritos", "tejido", "fibroglandular", "heterogeneo", "retraccion", "pezon", "engrosamiento", "cutaneo"};
+
+    @Param({"100000"})
+    private int informes;
+
+    private ConfigurableApplicationContext contexto;
+    private BusquedaService busquedaService;
+    private long medico;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        contexto = ContextoBenchmark.arrancar("benchmark_busqueda", "busqueda.indice.path=",
+            "busqueda.reindexado.lote=" + ContextoBenchmark.TAMANO_LOTE);
+        busquedaService = contexto.getBean(BusquedaService.class);
+        ContextoBenchmark.sembrar(contexto, MEDICOS, informes, 1);
+        List<Long> imagenes;
+        EntityManager entityManager = contexto.getBean(EntityManagerFactory.class).createEntityManager();
+        try {
+            imagenes = entityManager.createQuery("select i.id from Imagen i order by i.id", Long.class).getResultList();
+            medico = entityManager.createQuery("select min(m.id) from Medico m", Long.class).getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+        sembrarInformes(imagenes);
+
+        IndiceBusqueda indice = contexto.getBean(IndiceBusqueda.class);
+        long inicio = System.nanoTime();
+        busquedaService.ponerAlDia();
+        while (indice.getDocumentos() < MEDICOS + 2L * informes) {
+            Thread.sleep(100);
+        }
+        indice.refrescarAhora();
+        System.out.printf("%n%d documentos indexados en %d ms%n", indice.getDocumentos(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Pagina<ResultadoBusqueda> termino() {
+        return busquedaService.buscar("microcalcificaciones sospechosas", null, null, null, null, null, TAMANO_PAGINA);
+    }
+
+    @Benchmark
+    public Pagina<ResultadoBusqueda> prefijo() {
+        return busquedaService.buscar("espic", null, null, null, null, null, TAMANO_PAGINA);
+    }
+
+    @Benchmark
+    public Pagina<ResultadoBusqueda> terminoMedico() {
+        return busquedaService.buscar("quiste", null, medico, null, null, null, TAMANO_PAGINA);
+    }
+
+    // Un informe por imagen, con 30 palabras aleatorias del vocabulario
+    private void sembrarInformes(List<Long> imagenes) {
+        RepositoryInforme repositoryInforme = contexto.getBean(RepositoryInforme.class);
+        TransactionTemplate transactionTemplate = contexto.getBean(TransactionTemplate.class);
+        Random random = new Random(42);
+        for (int inicio = 0; inicio < imagenes.size(); inicio += ContextoBenchmark.TAMANO_LOTE) {
+            List<Long> lote = imagenes.subList(inicio, Math.min(imagenes.size(), inicio + ContextoBenchmark.TAMANO_LOTE));
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Informe> nuevos = new ArrayList<>(lote.size());
+                for (Long id : lote) {
+                    StringBuilder contenido = new StringBuilder();
+                    for (int i = 0; i < 30; i++) {
+                        contenido.append(PALABRAS[random.nextInt(PALABRAS.length)]).append(' ');
+                    }
+                    Imagen imagen = new Imagen();
+                    imagen.setId(id);
+                    nuevos.add(new Informe("Not cancer", contenido.toString(), imagen));
+                }
+                repositoryInforme.saveAll(nuevos);
+            });
+        }
+    }
+}
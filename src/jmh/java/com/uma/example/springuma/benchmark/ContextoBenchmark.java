@@ -0,0 +1,114 @@
+package com.uma.example.springuma.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.SpringumaApplication;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// Arranca la aplicacion sin servidor web sobre una H2 en memoria y la rellena con datos para los benchmarks
+final class ContextoBenchmark {
+
+    static final int TAMANO_LOTE = 500;
+
+    private ContextoBenchmark() {
+    }
+
+    // "propiedades" (clave=valor) se añaden a las de la aplicacion o sustituyen a las de aqui, p. ej. para comparar
+    // configuraciones con @Param. Se pasan como argumentos de la linea de comandos para que tengan prioridad sobre
+    // los application.properties y los de los perfiles activos
+    static ConfigurableApplicationContext arrancar(String baseDatos, String... propiedades) {
+        return new SpringApplicationBuilder(SpringumaApplication.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .run(argumentos(baseDatos, propiedades));
+    }
+
+    // Argumentos de la linea de comandos con los que arranca arrancar(baseDatos, propiedades)
+    static String[] argumentos(String baseDatos, String... propiedades) {
+        Map<String, String> argumentos = new LinkedHashMap<>();
+        Stream.concat(Stream.of(
+                "spring.datasource.url=jdbc:h2:mem:" + baseDatos + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + TAMANO_LOTE,
+                "spring.jpa.properties.hibernate.order_inserts=true",
+                "spring.devtools.restart.enabled=false",
+                "imagen.store.path=./target/imagenes-benchmark",
+                "imagen.store.migracion.habilitada=false",
+                "logging.level.root=WARN"), Stream.of(propiedades))
+            .map(propiedad -> propiedad.split("=", 2))
+            .forEach(partes -> argumentos.put(partes[0], partes[1]));
+        return argumentos.entrySet().stream()
+            .map(argumento -> "--" + argumento.getKey() + "=" + argumento.getValue())
+            .toArray(String[]::new);
+    }
+
+    // Crea pacientes repartidos entre los medicos, cada uno con imagenesPorPaciente imagenes ya guardadas en el
+    // ImageStore (solo la fila: hash, tamaño y codec). Devuelve los ids de los pacientes; el DNI del paciente i
+    // es dniPaciente(i).
+    static long[] sembrar(ConfigurableApplicationContext contexto, int medicos, int pacientes, int imagenesPorPaciente) {
+        RepositoryMedico repositoryMedico = contexto.getBean(RepositoryMedico.class);
+        RepositoryPaciente repositoryPaciente = contexto.getBean(RepositoryPaciente.class);
+        RepositoryImagen repositoryImagen = contexto.getBean(RepositoryImagen.class);
+        TransactionTemplate transactionTemplate = contexto.getBean(TransactionTemplate.class);
+
+        List<Medico> listaMedicos = new ArrayList<>();
+        for (int i = 0; i < medicos; i++) {
+            listaMedicos.add(new Medico("M" + i, "Medico " + i, i % 2 == 0 ? "Radiologia" : "Oncologia"));
+        }
+        List<Medico> guardados = repositoryMedico.saveAll(listaMedicos);
+
+        long[] ids = new long[pacientes];
+        for (int inicio = 0; inicio < pacientes; inicio += TAMANO_LOTE) {
+            int desde = inicio;
+            int hasta = Math.min(pacientes, inicio + TAMANO_LOTE);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Paciente> lote = new ArrayList<>();
+                List<Imagen> imagenes = new ArrayList<>();
+                for (int i = desde; i < hasta; i++) {
+                    Paciente paciente = new Paciente("Paciente " + i, 20 + i % 70, "Consulta " + (i % 12 + 1),
+                        dniPaciente(i), guardados.get(i % guardados.size()));
+                    lote.add(paciente);
+                    for (int j = 0; j < imagenesPorPaciente; j++) {
+                        imagenes.add(imagen(paciente, i * imagenesPorPaciente + j));
+                    }
+                }
+                repositoryPaciente.saveAll(lote);
+                repositoryImagen.saveAll(imagenes);
+                for (int i = desde; i < hasta; i++) {
+                    ids[i] = lote.get(i - desde).getId();
+                }
+            });
+        }
+        return ids;
+    }
+
+    static String dniPaciente(int i) {
+        return String.format("%08dP", i);
+    }
+
+    private static Imagen imagen(Paciente paciente, long n) {
+        Imagen imagen = new Imagen();
+        imagen.setNombre("imagen-" + n + ".png");
+        imagen.setFecha(Calendar.getInstance());
+        imagen.setPaciente(paciente);
+        imagen.setHash(String.format("%064x", n));
+        imagen.setTamano(5431L);
+        imagen.setCodec(Imagen.CODEC_IDENTITY);
+        return imagen;
+    }
+}
@@ -0,0 +1,107 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.uma.example.springuma.utils.DeflateCodec;
+import com.uma.example.springuma.utils.IdentityCodec;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.ImageUtils;
+import com.uma.example.springuma.utils.Lz4Codec;
+
+// Compara el coste de codificar/decodificar las imagenes de prueba con cada codec y con las funciones
+// originales de ImageUtils (byte[] completos, nivel 9). El ratio de compresion se imprime en el setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageCodecBenchmark {
+
+    @Param({"identity", "deflate-1", "deflate-6", "deflate-9", "lz4"})
+    private String codec;
+
+    @Param({"healthy.png", "no_healthty.png"})
+    private String fichero;
+
+    private ImageCodec imageCodec;
+    private byte[] original;
+    private byte[] codificado;
+    private byte[] comprimidoImageUtils;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        imageCodec = crearCodec(codec);
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(fichero)) {
+            original = in.readAllBytes();
+        }
+        codificado = codificar(original);
+        comprimidoImageUtils = ImageUtils.compressImage(original);
+        System.out.printf("%n%s %s: %d -> %d bytes (ratio %.3f)%n", codec, fichero,
+            original.length, codificado.length, (double) codificado.length / original.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codificar(original);
+    }
+
+    @Benchmark
+    public byte[] decode() throws IOException {
+        try (InputStream in = imageCodec.decode(new ByteArrayInputStream(codificado))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Referencia: el codigo anterior, que comprimia todo en memoria con un Deflater nuevo por llamada
+    @Benchmark
+    public byte[] imageUtilsCompress() {
+        return ImageUtils.compressImage(original);
+    }
+
+    @Benchmark
+    public byte[] imageUtilsDecompress() {
+        return ImageUtils.decompressImage(comprimidoImageUtils);
+    }
+
+    private byte[] codificar(byte[] datos) throws IOException {
+        ByteArrayOutputStream destino = new ByteArrayOutputStream(datos.length);
+        try (OutputStream out = imageCodec.encode(destino)) {
+            out.write(datos);
+        }
+        return destino.toByteArray();
+    }
+
+    private static ImageCodec crearCodec(String nombre) {
+        if (nombre.startsWith(DeflateCodec.ID + "-")) {
+            return new DeflateCodec(Integer.parseInt(nombre.substring(DeflateCodec.ID.length() + 1)), 4);
+        }
+        switch (nombre) {
+            case IdentityCodec.ID:
+                return new IdentityCodec();
+            case Lz4Codec.ID:
+                return new Lz4Codec();
+            default:
+                return new DeflateCodec(Deflater.DEFAULT_COMPRESSION, 4);
+        }
+    }
+}
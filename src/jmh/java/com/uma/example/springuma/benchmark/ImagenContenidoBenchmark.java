@@ -0,0 +1,131 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryInforme;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// Lecturas de los metadatos de las imagenes de un paciente con muchas imagenes grandes aun en la columna
+// file_content (sin migrar al ImageStore): la de GET /imagen/info/{id}, la lista de imagenes del paciente y la de
+// GET /informe/{id}, que lleva la imagen. Ninguna usa el contenido; con -prof gc se ve la memoria que reserva
+// cada una (gc.alloc.rate.norm). Con la H2 embebida una columna LOB se lee como una referencia al contenido; a
+// traves del servidor TCP de H2 (varias instancias, ver ServidorH2) los LOB de hasta 1 MB llegan enteros con
+// cada fila.
+//
+//   mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.args="ImagenContenidoBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagenContenidoBenchmark {
+
+    @Param({"50"})
+    private int imagenes;
+
+    @Param({"512"})
+    private int tamanoKb;
+
+    @Param({"embebida", "tcp"})
+    private String conexion;
+
+    private ConfigurableApplicationContext contexto;
+    private ImagenService imagenService;
+    private InformeService informeService;
+    private long idPaciente;
+    private long idImagen;
+    private long idInforme;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if ("tcp".equals(conexion)) {
+            int puerto;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                puerto = socket.getLocalPort();
+            }
+            contexto = ContextoBenchmark.arrancar("benchmark_contenido",
+                "spring.datasource.url=jdbc:h2:tcp://localhost:" + puerto + "/mem:benchmark_contenido;DB_CLOSE_DELAY=-1",
+                "h2.servidor.habilitado=true",
+                "h2.servidor.puerto=" + puerto);
+        } else {
+            contexto = ContextoBenchmark.arrancar("benchmark_contenido");
+        }
+        imagenService = contexto.getBean(ImagenService.class);
+        informeService = contexto.getBean(InformeService.class);
+        RepositoryImagen repositoryImagen = contexto.getBean(RepositoryImagen.class);
+        RepositoryInforme repositoryInforme = contexto.getBean(RepositoryInforme.class);
+
+        Medico medico = contexto.getBean(RepositoryMedico.class).save(new Medico("M0", "Medico", "Radiologia"));
+        Paciente paciente = contexto.getBean(RepositoryPaciente.class)
+            .save(new Paciente("Paciente", 40, "Consulta", "00000000P", medico));
+        idPaciente = paciente.getId();
+
+        // El contenido no se descomprime en ninguna de las lecturas, basta con bytes aleatorios del tamaño
+        Random random = new Random(42);
+        List<Informe> informes = new ArrayList<>();
+        for (int i = 0; i < imagenes; i++) {
+            byte[] contenido = new byte[tamanoKb * 1024];
+            random.nextBytes(contenido);
+            Imagen imagen = new Imagen(contenido, paciente);
+            imagen.setNombre("imagen-" + i + ".png");
+            imagen.setFecha(Calendar.getInstance());
+            Imagen guardada = contexto.getBean(TransactionTemplate.class)
+                .execute(status -> repositoryImagen.save(imagen));
+            informes.add(new Informe("Not cancer", "Informe de la imagen " + i, guardada));
+        }
+        repositoryInforme.saveAll(informes);
+        idImagen = informes.get(0).getImagen().getId();
+        idInforme = informes.get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Imagen infoImagen() {
+        return imagenService.getImagen(idImagen);
+    }
+
+    @Benchmark
+    public List<Imagen> imagenesPaciente() {
+        return imagenService.getImagenesPaciente(idPaciente);
+    }
+
+    @Benchmark
+    public Informe informe() {
+        return informeService.getInforme(idInforme);
+    }
+}
@@ -0,0 +1,93 @@
+package com.uma.example.springuma.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// Subida y descarga de imagenes a traves de ImagenService, como lo hacen los controladores: subida desde un
+// MultipartFile al ImageStore y descarga al OutputStream de la respuesta, tanto desde el ImageStore como
+// desde una fila antigua con el contenido comprimido en file_content.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagenServiceBenchmark {
+
+    @Param({"healthy.png", "no_healthty.png"})
+    private String fichero;
+
+    private ConfigurableApplicationContext contexto;
+    private ImagenService imagenService;
+    private Paciente paciente;
+    private MockMultipartFile multipart;
+    private long idImagen;
+    private long idImagenAntigua;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        contexto = ContextoBenchmark.arrancar("benchmark_imagen");
+        imagenService = contexto.getBean(ImagenService.class);
+
+        Medico medico = contexto.getBean(RepositoryMedico.class).save(new Medico("M0", "Medico", "Radiologia"));
+        paciente = contexto.getBean(RepositoryPaciente.class)
+            .save(new Paciente("Paciente", 40, "Consulta", "00000000P", medico));
+
+        byte[] contenido;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(fichero)) {
+            contenido = in.readAllBytes();
+        }
+        multipart = new MockMultipartFile("image", fichero, "image/png", contenido);
+        imagenService.uploadImage(multipart, paciente);
+        idImagen = imagenService.getImagenesPaciente(paciente.getId()).get(0).getId();
+        idImagenAntigua = contexto.getBean(RepositoryImagen.class)
+            .save(new Imagen(ImageUtils.compressImage(contenido), paciente)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public String upload() throws IOException {
+        return imagenService.uploadImage(multipart, paciente);
+    }
+
+    @Benchmark
+    public void download() throws IOException {
+        imagenService.downloadImage(idImagen, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void downloadFileContent() throws IOException {
+        imagenService.downloadImage(idImagenAntigua, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,104 @@
+package com.uma.example.springuma.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// Inserciones por los caminos de alta de la API (addPaciente, addImagen: una transaccion por fila) y en lote
+// (100 pacientes por transaccion, como la importacion masiva), con distintos tamaños de reserva de ids
+// de las secuencias (entidades.id.reserva). Necesita mas calentamiento que el resto: con pocas CPU el JIT tarda
+// en compilar todo el camino de Hibernate y las primeras iteraciones salen varias veces mas lentas
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsercionBenchmark {
+
+    private static final int PACIENTES_POR_LOTE = 100;
+
+    @Param({"1", "50"})
+    private int reserva;
+
+    private ConfigurableApplicationContext contexto;
+    private PacienteService pacienteService;
+    private ImagenService imagenService;
+    private RepositoryPaciente repositoryPaciente;
+    private TransactionTemplate transactionTemplate;
+    private Medico medico;
+    private Paciente paciente;
+    private long siguiente;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        contexto = ContextoBenchmark.arrancar("benchmark_insercion", "entidades.id.reserva=" + reserva);
+        pacienteService = contexto.getBean(PacienteService.class);
+        imagenService = contexto.getBean(ImagenService.class);
+        repositoryPaciente = contexto.getBean(RepositoryPaciente.class);
+        transactionTemplate = contexto.getBean(TransactionTemplate.class);
+        medico = contexto.getBean(RepositoryMedico.class).save(new Medico("M0", "Medico 0", "Radiologia"));
+        paciente = pacienteService.addPaciente(nuevoPaciente());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Paciente addPaciente() {
+        return pacienteService.addPaciente(nuevoPaciente());
+    }
+
+    @Benchmark
+    public Imagen addImagen() {
+        Imagen imagen = new Imagen();
+        imagen.setNombre("imagen.png");
+        imagen.setFecha(Calendar.getInstance());
+        imagen.setPaciente(paciente);
+        imagen.setHash(String.format("%064x", siguiente++));
+        imagen.setTamano(5431L);
+        imagen.setCodec(Imagen.CODEC_IDENTITY);
+        return imagenService.addImagen(imagen);
+    }
+
+    // Tiempo por lote de PACIENTES_POR_LOTE pacientes
+    @Benchmark
+    public List<Paciente> addPacientesLote() {
+        List<Paciente> lote = new ArrayList<>(PACIENTES_POR_LOTE);
+        for (int i = 0; i < PACIENTES_POR_LOTE; i++) {
+            lote.add(nuevoPaciente());
+        }
+        return transactionTemplate.execute(status -> repositoryPaciente.saveAll(lote));
+    }
+
+    private Paciente nuevoPaciente() {
+        return new Paciente("Paciente", 40, "Consulta", String.format("%08dB", siguiente++), medico);
+    }
+}
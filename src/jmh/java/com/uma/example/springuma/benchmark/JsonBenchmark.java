@@ -0,0 +1,128 @@
+package com.uma.example.springuma.benchmark;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.model.EstadoPrediccion;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+
+// Serializacion JSON del grafo de entidades tal y como lo devuelven los controladores (Informe -> Imagen ->
+// Paciente -> Medico), con un ObjectMapper configurado igual que el de Spring Boot.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    // Tamaño de los listados (pacientes de un medico, imagenes de un paciente)
+    @Param({"1", "100"})
+    private int tamanoListado;
+
+    private ObjectMapper mapper;
+    private Paciente paciente;
+    private Informe informe;
+    private List<Paciente> pacientes;
+    private List<Imagen> imagenes;
+    private List<ImagenResumen> resumenes;
+    private String pacienteJson;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Medico medico = new Medico("M0", "Medico", "Radiologia");
+        medico.setId(1);
+        paciente = paciente(0, medico);
+
+        pacientes = new ArrayList<>();
+        imagenes = new ArrayList<>();
+        resumenes = new ArrayList<>();
+        for (int i = 0; i < tamanoListado; i++) {
+            pacientes.add(paciente(i, medico));
+            Imagen imagen = imagen(i, paciente);
+            imagenes.add(imagen);
+            resumenes.add(new ImagenResumen(imagen.getId(), imagen.getNombre(), imagen.getFecha(), imagen.getTamano(),
+                paciente.getId(), paciente.getNombre()));
+        }
+
+        informe = new Informe("{\"status\": \"Not cancer\", \"score\": 0.87}", "Sin hallazgos relevantes",
+            imagenes.get(0));
+        informe.setId(1);
+        informe.setEstadoPrediccion(EstadoPrediccion.COMPLETADA);
+
+        pacienteJson = mapper.writeValueAsString(paciente);
+    }
+
+    @Benchmark
+    public String serializarPaciente() throws JsonProcessingException {
+        return mapper.writeValueAsString(paciente);
+    }
+
+    @Benchmark
+    public Paciente deserializarPaciente() throws JsonProcessingException {
+        return mapper.readValue(pacienteJson, Paciente.class);
+    }
+
+    @Benchmark
+    public String serializarInforme() throws JsonProcessingException {
+        return mapper.writeValueAsString(informe);
+    }
+
+    @Benchmark
+    public String serializarPacientes() throws JsonProcessingException {
+        return mapper.writeValueAsString(pacientes);
+    }
+
+    @Benchmark
+    public String serializarImagenes() throws JsonProcessingException {
+        return mapper.writeValueAsString(imagenes);
+    }
+
+    @Benchmark
+    public String serializarResumenesImagenes() throws JsonProcessingException {
+        return mapper.writeValueAsString(resumenes);
+    }
+
+    private static Paciente paciente(int i, Medico medico) {
+        Paciente paciente = new Paciente("Paciente " + i, 20 + i % 70, "Consulta " + (i % 12 + 1),
+            ContextoBenchmark.dniPaciente(i), medico);
+        paciente.setId(i + 1);
+        return paciente;
+    }
+
+    private static Imagen imagen(int i, Paciente paciente) {
+        Imagen imagen = new Imagen();
+        imagen.setId(i + 1);
+        imagen.setNombre("imagen-" + i + ".png");
+        imagen.setFecha(Calendar.getInstance());
+        imagen.setPaciente(paciente);
+        imagen.setHash(String.format("%064x", i));
+        imagen.setTamano(5431L);
+        imagen.setCodec(Imagen.CODEC_IDENTITY);
+        return imagen;
+    }
+}
@@ -0,0 +1,80 @@
+package com.uma.example.springuma.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// Consultas de los repositorios sobre una H2 en memoria con el volumen de datos indicado en los @Param.
+// Cada llamada busca un paciente aleatorio para no medir siempre la misma fila.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"100"})
+    private int medicos;
+
+    @Param({"10000"})
+    private int pacientes;
+
+    @Param({"5"})
+    private int imagenesPorPaciente;
+
+    private ConfigurableApplicationContext contexto;
+    private RepositoryPaciente repositoryPaciente;
+    private RepositoryImagen repositoryImagen;
+    private long[] idsPacientes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        contexto = ContextoBenchmark.arrancar("benchmark_repository");
+        repositoryPaciente = contexto.getBean(RepositoryPaciente.class);
+        repositoryImagen = contexto.getBean(RepositoryImagen.class);
+        idsPacientes = ContextoBenchmark.sembrar(contexto, medicos, pacientes, imagenesPorPaciente);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Paciente findByDni() {
+        return repositoryPaciente.findByDni(ContextoBenchmark.dniPaciente(ThreadLocalRandom.current().nextInt(pacientes)));
+    }
+
+    @Benchmark
+    public List<Imagen> getByPacienteId() {
+        return repositoryImagen.getByPacienteId(idsPacientes[ThreadLocalRandom.current().nextInt(pacientes)]);
+    }
+
+    // Mismo listado que getByPacienteId pero con la proyeccion que usa GET /imagen/paciente/{id}
+    @Benchmark
+    public List<ImagenResumen> findResumenByPacienteId() {
+        return repositoryImagen.findResumenByPacienteId(idsPacientes[ThreadLocalRandom.current().nextInt(pacientes)]);
+    }
+}
@@ -0,0 +1,267 @@
+package com.uma.example.springuma.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+// Arranque en frio de la aplicacion en cada modo: lanza un proceso nuevo, mide el tiempo desde que se lanza hasta
+// la primera respuesta de una peticion que pasa por JPA y la memoria residente (RSS) del proceso tras esa
+// respuesta, y lo para. Con la inicializacion perezosa parte del arranque se hace en la primera peticion, por eso
+// se mide hasta la primera respuesta y no hasta que el contexto esta listo. Todos los modos arrancan con el perfil
+// prod sobre la misma base de datos en fichero (la crea la primera ejecucion, que no se mide).
+//
+// Los modos salen de mvn -Parranque package -DskipTests (y nativo de mvn -Pnative native:compile):
+//   war       java -jar del war, el despliegue de siempre
+//   jar       el jar y lib/ de target/arranque, sin el war: el efecto de no leer las clases de jars anidados
+//   perezoso  jar con el perfil arranque (inicializacion perezosa, sin validar el esquema)
+//   aot       perezoso con el codigo generado por el procesamiento AOT de Spring
+//   cds       aot con el archivo CDS de las clases del arranque
+//   nativo    el ejecutable de GraalVM con el perfil arranque (se salta si no esta)
+//
+//   mvn -Ploadtest test-compile exec:exec@arranque -Darranque.args="repeticiones=5 modos=war,jar,cds"
+//
+// Opciones (clave=valor): modos, repeticiones, ruta (la de la peticion), salida, jvm (opciones de la JVM separadas
+// por espacios, p. ej. "-Xmx512m -XX:TieredStopAtLevel=1"). Cualquier otra clave con un punto se pasa como
+// propiedad de Spring. Solo Linux: la RSS se lee de /proc.
+public final class ArranqueRunner {
+
+    private static final Path OBJETIVO = Path.of("target").toAbsolutePath();
+    private static final Path ARRANQUE = OBJETIVO.resolve("arranque");
+    private static final String APLICACION = "com.uma.example.springuma.SpringumaApplication";
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(3);
+
+    private ArranqueRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = opciones(args);
+        List<String> modos = Arrays.asList(opciones.getOrDefault("modos", "war,jar,perezoso,aot,cds,nativo").split(","));
+        int repeticiones = Integer.parseInt(opciones.getOrDefault("repeticiones", "5"));
+        String ruta = opciones.getOrDefault("ruta", "/paciente/medico/1");
+        Path salida = Path.of(opciones.getOrDefault("salida", "target/loadtest")).toAbsolutePath();
+        Path datos = OBJETIVO.resolve("arranque-datos");
+        Files.createDirectories(salida);
+        Files.createDirectories(datos);
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+        Map<String, List<Medida>> medidas = new LinkedHashMap<>();
+        boolean primera = true;
+        for (String modo : modos) {
+            List<String> comando = comando(modo.trim(), opciones, datos);
+            if (comando == null) {
+                System.out.println("Sin " + modo + ", se salta");
+                continue;
+            }
+            // La primera ejecucion crea la base de datos y deja en la cache del sistema los ficheros
+            if (primera) {
+                arrancar(comando, client, ruta, salida.resolve("arranque-" + modo + ".log"));
+                primera = false;
+            }
+            List<Medida> medidasModo = new ArrayList<>();
+            for (int i = 0; i < repeticiones; i++) {
+                Medida medida = arrancar(comando, client, ruta, salida.resolve("arranque-" + modo + ".log"));
+                System.out.printf(Locale.ROOT, "%-9s primera respuesta %6d ms, RSS %5d MB%n", modo,
+                    medida.primeraRespuestaMs(), medida.rssMb());
+                medidasModo.add(medida);
+            }
+            medidas.put(modo, medidasModo);
+        }
+
+        imprimir(medidas, System.out);
+        guardar(medidas, ruta, salida);
+    }
+
+    // Comando de cada modo, con el puerto como ultimo argumento pendiente (se elige en cada arranque)
+    private static List<String> comando(String modo, Map<String, String> opciones, Path datos) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> jvm = new ArrayList<>();
+        if (opciones.containsKey("jvm")) {
+            jvm.addAll(Arrays.asList(opciones.get("jvm").trim().split("\\s+")));
+        }
+        String perfiles = "prod";
+        List<String> comando = new ArrayList<>();
+        String classpath = ARRANQUE.resolve("Practica6-0.0.1-SNAPSHOT-arranque.jar") + ":" + ARRANQUE.resolve("lib") + "/*";
+        switch (modo) {
+            case "war":
+                comando.add(java);
+                comando.addAll(jvm);
+                comando.addAll(List.of("-jar", OBJETIVO.resolve("Practica6-0.0.1-SNAPSHOT.war").toString()));
+                break;
+            case "jar":
+            case "perezoso":
+            case "aot":
+            case "cds":
+                comando.add(java);
+                comando.addAll(jvm);
+                if (!"jar".equals(modo)) {
+                    perfiles = "prod,arranque";
+                }
+                if ("aot".equals(modo) || "cds".equals(modo)) {
+                    comando.add("-Dspring.aot.enabled=true");
+                }
+                if ("cds".equals(modo)) {
+                    comando.add("-XX:SharedArchiveFile=" + ARRANQUE.resolve("springuma.jsa"));
+                }
+                comando.addAll(List.of("-cp", classpath, APLICACION));
+                break;
+            case "nativo":
+                Path ejecutable = OBJETIVO.resolve("Practica6");
+                if (!Files.isExecutable(ejecutable)) {
+                    return null;
+                }
+                comando.add(ejecutable.toString());
+                perfiles = "prod,arranque";
+                break;
+            default:
+                throw new IllegalArgumentException("Modo no valido: " + modo);
+        }
+        comando.addAll(List.of(
+            "--spring.profiles.active=" + perfiles,
+            "--h2.ubicacion=file:" + datos.resolve("database"),
+            "--imagen.store.path=" + datos.resolve("imagenes"),
+            "--busqueda.indice.path=" + datos.resolve("indice"),
+            "--imagen.reactivo.puerto=0",
+            "--logging.level.root=WARN"));
+        opciones.forEach((clave, valor) -> {
+            if (clave.contains(".")) {
+                comando.add("--" + clave + "=" + valor);
+            }
+        });
+        return comando;
+    }
+
+    private static Medida arrancar(List<String> comando, HttpClient client, String ruta, Path log) throws Exception {
+        int puerto = puertoLibre();
+        List<String> conPuerto = new ArrayList<>(comando);
+        conPuerto.add("--server.port=" + puerto);
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta))
+            .timeout(ESPERA_MAXIMA)
+            .GET()
+            .build();
+
+        long inicio = System.nanoTime();
+        Process proceso = new ProcessBuilder(conPuerto)
+            .directory(ARRANQUE.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        try {
+            while (true) {
+                if (!proceso.isAlive()) {
+                    throw new IllegalStateException("La aplicacion ha terminado al arrancar (" + proceso.exitValue()
+                        + "), ver " + log);
+                }
+                if (System.nanoTime() - inicio > ESPERA_MAXIMA.toNanos()) {
+                    throw new IllegalStateException("La aplicacion no responde, ver " + log);
+                }
+                try {
+                    HttpResponse<Void> respuesta = client.send(peticion, HttpResponse.BodyHandlers.discarding());
+                    long primeraRespuesta = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                    if (respuesta.statusCode() != 200) {
+                        throw new IllegalStateException("GET " + ruta + ": " + respuesta.statusCode() + ", ver " + log);
+                    }
+                    return new Medida(primeraRespuesta, rssMb(proceso.pid()));
+                } catch (ConnectException e) {
+                    Thread.sleep(20);
+                }
+            }
+        } finally {
+            proceso.destroy();
+            if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // VmRSS de /proc/<pid>/status, en MB (-1 si no se puede leer)
+    private static long rssMb(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String linea : Files.readAllLines(status)) {
+            if (linea.startsWith("VmRSS:")) {
+                return Long.parseLong(linea.replaceAll("\\D", "")) / 1024;
+            }
+        }
+        return -1;
+    }
+
+    private static void imprimir(Map<String, List<Medida>> medidas, PrintStream out) {
+        out.printf("%n%-9s %13s %9s %9s %9s%n", "modo", "1a resp. ms", "min ms", "max ms", "RSS MB");
+        medidas.forEach((modo, lista) -> out.printf(Locale.ROOT, "%-9s %13d %9d %9d %9d%n", modo,
+            mediana(lista.stream().mapToLong(Medida::primeraRespuestaMs).toArray()),
+            lista.stream().mapToLong(Medida::primeraRespuestaMs).min().orElse(0),
+            lista.stream().mapToLong(Medida::primeraRespuestaMs).max().orElse(0),
+            mediana(lista.stream().mapToLong(Medida::rssMb).toArray())));
+        out.println();
+    }
+
+    private static void guardar(Map<String, List<Medida>> medidas, String ruta, Path salida) throws IOException {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("ruta", ruta);
+        Map<String, Object> modos = new LinkedHashMap<>();
+        medidas.forEach((modo, lista) -> {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("primeraRespuestaMs", lista.stream().map(Medida::primeraRespuestaMs).toList());
+            datos.put("rssMb", lista.stream().map(Medida::rssMb).toList());
+            datos.put("medianaPrimeraRespuestaMs", mediana(lista.stream().mapToLong(Medida::primeraRespuestaMs).toArray()));
+            datos.put("medianaRssMb", mediana(lista.stream().mapToLong(Medida::rssMb).toArray()));
+            modos.put(modo, datos);
+        });
+        resumen.put("modos", modos);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(salida.resolve("arranque.json").toFile(), resumen);
+        System.out.println("Resultados en " + salida);
+    }
+
+    private static long mediana(long[] valores) {
+        if (valores.length == 0) {
+            return 0;
+        }
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual > 0) {
+                opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+            }
+        }
+        return opciones;
+    }
+
+    private record Medida(long primeraRespuestaMs, long rssMb) {
+    }
+}
@@ -0,0 +1,169 @@
+package com.uma.example.springuma.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+
+// Datos sembrados en la base de datos antes de lanzar la carga y ids entre los que eligen las peticiones
+final class DatosCarga {
+
+    private static final int TAMANO_LOTE = 500;
+    private static final String IMAGEN = "healthy.png";
+
+    private final long[] medicos;
+    private final long[] pacientes;
+    private final long[] imagenes;
+    private final long[] pacientesConImagenes;
+    private final long[] informes;
+    private final byte[] contenidoImagen;
+
+    private DatosCarga(long[] medicos, long[] pacientes, long[] imagenes, long[] pacientesConImagenes,
+            long[] informes, byte[] contenidoImagen) {
+        this.medicos = medicos;
+        this.pacientes = pacientes;
+        this.imagenes = imagenes;
+        this.pacientesConImagenes = pacientesConImagenes;
+        this.informes = informes;
+        this.contenidoImagen = contenidoImagen;
+    }
+
+    // Medicos y pacientes se insertan por lotes con los repositorios; las imagenes y los informes se crean con
+    // los servicios, igual que desde los controladores, para que haya contenido en el ImageStore y predicciones.
+    static DatosCarga sembrar(ConfigurableApplicationContext contexto, int numMedicos, int numPacientes,
+            int numImagenes, int numInformes) throws Exception {
+        RepositoryMedico repositoryMedico = contexto.getBean(RepositoryMedico.class);
+        RepositoryPaciente repositoryPaciente = contexto.getBean(RepositoryPaciente.class);
+        RepositoryImagen repositoryImagen = contexto.getBean(RepositoryImagen.class);
+        ImagenService imagenService = contexto.getBean(ImagenService.class);
+        InformeService informeService = contexto.getBean(InformeService.class);
+        TransactionTemplate transactionTemplate = contexto.getBean(TransactionTemplate.class);
+
+        List<Medico> listaMedicos = new ArrayList<>();
+        for (int i = 0; i < numMedicos; i++) {
+            listaMedicos.add(new Medico(dniMedico(i), "Medico " + i, i % 2 == 0 ? "Radiologia" : "Oncologia"));
+        }
+        List<Medico> guardados = repositoryMedico.saveAll(listaMedicos);
+        long[] medicos = guardados.stream().mapToLong(Medico::getId).toArray();
+
+        List<Paciente> listaPacientes = new ArrayList<>();
+        for (int inicio = 0; inicio < numPacientes; inicio += TAMANO_LOTE) {
+            int desde = inicio;
+            int hasta = Math.min(numPacientes, inicio + TAMANO_LOTE);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Paciente> lote = new ArrayList<>();
+                for (int i = desde; i < hasta; i++) {
+                    lote.add(new Paciente("Paciente " + i, 20 + i % 70, "Consulta " + (i % 12 + 1),
+                        String.format("%08dP", i), guardados.get(i % guardados.size())));
+                }
+                listaPacientes.addAll(repositoryPaciente.saveAll(lote));
+            });
+        }
+        long[] pacientes = listaPacientes.stream().mapToLong(Paciente::getId).toArray();
+
+        byte[] contenidoImagen;
+        try (InputStream in = DatosCarga.class.getClassLoader().getResourceAsStream(IMAGEN)) {
+            contenidoImagen = in.readAllBytes();
+        }
+        MockMultipartFile fichero = new MockMultipartFile("image", IMAGEN, "image/png", contenidoImagen);
+        int conImagenes = Math.min(numPacientes, Math.max(1, numImagenes / 5));
+        long[] pacientesConImagenes = new long[conImagenes];
+        for (int i = 0; i < numImagenes; i++) {
+            Paciente paciente = listaPacientes.get(i % conImagenes);
+            pacientesConImagenes[i % conImagenes] = paciente.getId();
+            imagenService.uploadImage(fichero, paciente);
+        }
+        long[] imagenes = repositoryImagen.findAll().stream().mapToLong(Imagen::getId).toArray();
+
+        long[] informes = new long[numInformes];
+        for (int i = 0; i < numInformes; i++) {
+            Informe informe = new Informe(null, "Informe " + i, imagenService.getImagen(imagenes[i % imagenes.length]));
+            informes[i] = informeService.addInforme(informe).getId();
+        }
+        return new DatosCarga(medicos, pacientes, imagenes, pacientesConImagenes, informes, contenidoImagen);
+    }
+
+    static String dniMedico(int i) {
+        return "M" + i;
+    }
+
+    int getNumMedicos() {
+        return medicos.length;
+    }
+
+    long medicoAleatorio() {
+        return aleatorio(medicos);
+    }
+
+    long pacienteAleatorio() {
+        return aleatorio(pacientes);
+    }
+
+    long pacienteConImagenesAleatorio() {
+        return aleatorio(pacientesConImagenes);
+    }
+
+    long imagenAleatoria() {
+        return aleatorio(imagenes);
+    }
+
+    long informeAleatorio() {
+        return aleatorio(informes);
+    }
+
+    // Cuerpo multipart de POST /imagen: la parte "image" con el fichero y la parte "paciente" en JSON
+    HttpRequest.BodyPublisher cuerpoSubida(String boundary) {
+        return HttpRequest.BodyPublishers.ofByteArrays(partesSubida(boundary));
+    }
+
+    // El mismo cuerpo enviado como un cliente lento: trozos de "trozo" bytes separados por "pausa"
+    HttpRequest.BodyPublisher cuerpoSubidaLenta(String boundary, int trozo, Duration pausa) {
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream();
+        partesSubida(boundary).forEach(cuerpo::writeBytes);
+        byte[] bytes = cuerpo.toByteArray();
+        List<ByteBuffer> trozos = new ArrayList<>();
+        for (int inicio = 0; inicio < bytes.length; inicio += trozo) {
+            trozos.add(ByteBuffer.wrap(bytes, inicio, Math.min(trozo, bytes.length - inicio)));
+        }
+        Flux<ByteBuffer> lento = Flux.fromIterable(trozos).delayElements(pausa);
+        return HttpRequest.BodyPublishers.fromPublisher(JdkFlowAdapter.publisherToFlowPublisher(lento), bytes.length);
+    }
+
+    private List<byte[]> partesSubida(String boundary) {
+        String cabecera = "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"paciente\"\r\n"
+            + "Content-Type: application/json\r\n\r\n"
+            + "{\"id\": " + pacienteConImagenesAleatorio() + "}\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"image\"; filename=\"" + IMAGEN + "\"\r\n"
+            + "Content-Type: image/png\r\n\r\n";
+        String cierre = "\r\n--" + boundary + "--\r\n";
+        return List.of(cabecera.getBytes(StandardCharsets.UTF_8), contenidoImagen, cierre.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long aleatorio(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,82 @@
+package com.uma.example.springuma.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Mezclas de operaciones: cada llegada elige una operacion con probabilidad proporcional a su peso
+enum Escenario {
+
+    // Consultas de pacientes y medicos, como el uso normal de la aplicacion
+    LECTURA(Map.of(
+        Operacion.PACIENTE, 40,
+        Operacion.PACIENTES_MEDICO, 15,
+        Operacion.MEDICO, 10,
+        Operacion.MEDICO_DNI, 10,
+        Operacion.IMAGENES_PACIENTE, 15,
+        Operacion.DESCARGAR_IMAGEN, 10)),
+
+    // Rafagas de subidas de imagenes con algo de lectura de los listados
+    SUBIDAS(Map.of(
+        Operacion.SUBIR_IMAGEN, 80,
+        Operacion.IMAGENES_PACIENTE, 20)),
+
+    // Solo los endpoints de imagenes que tiene tambien la API reactiva (ServidorReactivo), para comparar los dos
+    IMAGENES(Map.of(
+        Operacion.DESCARGAR_IMAGEN, 80,
+        Operacion.SUBIR_IMAGEN, 20)),
+
+    // Clientes lentos subiendo imagenes mientras otros las descargan: con hilos de plataforma, cuando las subidas
+    // lentas ocupan todos los hilos de Tomcat (server.tomcat.threads.max) las descargas esperan a que quede uno libre.
+    // Se compara con spring.threads.virtual.enabled=true (Java 21) o con servidor=reactivo
+    LENTAS(Map.of(
+        Operacion.SUBIR_IMAGEN_LENTA, 50,
+        Operacion.DESCARGAR_IMAGEN, 50)),
+
+    // Creacion de informes (prediccion en segundo plano) y consulta de su estado
+    INFORMES(Map.of(
+        Operacion.CREAR_INFORME, 50,
+        Operacion.ESTADO_INFORME, 35,
+        Operacion.INFORMES_IMAGEN, 15)),
+
+    // Todos los controladores a la vez
+    MIXTO(Map.of(
+        Operacion.PACIENTE, 30,
+        Operacion.PACIENTES_MEDICO, 10,
+        Operacion.MEDICO, 5,
+        Operacion.MEDICO_DNI, 5,
+        Operacion.IMAGENES_PACIENTE, 10,
+        Operacion.DESCARGAR_IMAGEN, 15,
+        Operacion.SUBIR_IMAGEN, 5,
+        Operacion.INFORMES_IMAGEN, 5,
+        Operacion.ESTADO_INFORME, 10,
+        Operacion.CREAR_INFORME, 5));
+
+    private final Operacion[] operaciones;
+    private final int[] pesosAcumulados;
+
+    Escenario(Map<Operacion, Integer> pesos) {
+        Map<Operacion, Integer> ordenados = new EnumMap<>(pesos);
+        this.operaciones = ordenados.keySet().toArray(new Operacion[0]);
+        this.pesosAcumulados = new int[operaciones.length];
+        int total = 0;
+        for (int i = 0; i < operaciones.length; i++) {
+            total += ordenados.get(operaciones[i]);
+            pesosAcumulados[i] = total;
+        }
+    }
+
+    Operacion siguiente() {
+        int valor = ThreadLocalRandom.current().nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return operaciones[i];
+            }
+        }
+        return operaciones[operaciones.length - 1];
+    }
+
+    Operacion[] getOperaciones() {
+        return operaciones;
+    }
+}
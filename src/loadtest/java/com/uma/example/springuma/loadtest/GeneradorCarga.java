@@ -0,0 +1,84 @@
+package com.uma.example.springuma.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Generador de carga de modelo abierto: las peticiones llegan segun un proceso de Poisson con la tasa indicada,
+// independientemente de lo que tarde el servidor en responder. La latencia se mide desde el instante en que la
+// peticion deberia haber salido, asi que los retrasos del propio generador cuentan (sin omision coordinada).
+final class GeneradorCarga {
+
+    private final HttpClient client;
+    private final URI base;
+    private final DatosCarga datos;
+    private final Escenario escenario;
+    private final double tasaPorSegundo;
+    private final int maxEnVuelo;
+
+    GeneradorCarga(HttpClient client, URI base, DatosCarga datos, Escenario escenario, double tasaPorSegundo,
+            int maxEnVuelo) {
+        this.client = client;
+        this.base = base;
+        this.datos = datos;
+        this.escenario = escenario;
+        this.tasaPorSegundo = tasaPorSegundo;
+        this.maxEnVuelo = maxEnVuelo;
+    }
+
+    Map<Operacion, ResultadoOperacion> ejecutar(Duration duracion) throws InterruptedException {
+        Map<Operacion, ResultadoOperacion> resultados = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : escenario.getOperaciones()) {
+            resultados.put(operacion, new ResultadoOperacion(operacion, Operacion.TIMEOUT.toNanos()));
+        }
+        // Con el servidor saturado las peticiones se acumulan; por encima de maxEnVuelo se descartan y se cuentan
+        Semaphore enVuelo = new Semaphore(maxEnVuelo);
+
+        long inicio = System.nanoTime();
+        long fin = inicio + duracion.toNanos();
+        long programada = inicio;
+        while (true) {
+            programada += intervaloExponencial();
+            if (programada >= fin) {
+                break;
+            }
+            long espera = programada - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+
+            Operacion operacion = escenario.siguiente();
+            ResultadoOperacion resultado = resultados.get(operacion);
+            if (!enVuelo.tryAcquire()) {
+                resultado.descartada();
+                continue;
+            }
+            long salida = programada;
+            client.sendAsync(operacion.peticion(base, datos), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((respuesta, error) -> {
+                    boolean correcta = error == null && respuesta.statusCode() < 400;
+                    resultado.registrar(System.nanoTime() - salida, correcta);
+                    enVuelo.release();
+                });
+        }
+        if (!enVuelo.tryAcquire(maxEnVuelo, Operacion.TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)) {
+            System.err.println("Quedan peticiones sin terminar al acabar la medicion");
+        }
+        for (ResultadoOperacion resultado : resultados.values()) {
+            resultado.cerrar(System.nanoTime() - inicio);
+        }
+        return resultados;
+    }
+
+    private long intervaloExponencial() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        return (long) (-Math.log(1.0 - u) / tasaPorSegundo * 1_000_000_000L);
+    }
+}
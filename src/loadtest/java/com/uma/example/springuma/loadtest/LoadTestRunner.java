@@ -0,0 +1,214 @@
+package com.uma.example.springuma.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.uma.example.springuma.SpringumaApplication;
+import com.uma.example.springuma.reactivo.ServidorReactivo;
+
+// Prueba de carga HTTP de los controladores. Arranca la aplicacion en un puerto aleatorio sobre una H2 en memoria,
+// siembra datos, lanza la mezcla de peticiones del escenario con llegadas de modelo abierto y muestra, por
+// endpoint, throughput y percentiles p50/p95/p99/p999. Deja en target/loadtest un resumen JSON y los
+// histogramas HDR (.hlog) para comparar ejecuciones.
+//
+//   mvn -Ploadtest test-compile exec:exec@loadtest -Dloadtest.args="escenario=lectura tasa=300 duracion=60"
+//
+// Para comparar la API reactiva de imagenes con ImagenController se lanza el escenario imagenes contra cada uno:
+//
+//   mvn -Ploadtest test-compile exec:exec@loadtest -Dloadtest.args="escenario=imagenes servidor=reactivo"
+//
+// El techo de concurrencia de Tomcat con hilos de plataforma se ve con el escenario lentas; en Java 21 se repite con
+// spring.threads.virtual.enabled=true para compararlo con los hilos virtuales:
+//
+//   mvn -Ploadtest test-compile exec:exec@loadtest -Dloadtest.args="escenario=lentas tasa=400 spring.threads.virtual.enabled=true"
+//
+// Opciones (clave=valor): escenario (lectura, subidas, informes, imagenes, lentas, mixto), tasa (peticiones/s), duracion y
+// calentamiento (s), medicos, pacientes, imagenes, informes, max-en-vuelo, salida, servidor (tomcat o reactivo,
+// el ServidorReactivo de la aplicacion, que se habilita solo para este caso), url (envia las peticiones a otra URL servida por la aplicacion arrancada,
+// p. ej. otro conector) y los umbrales max-p99-ms y max-tasa-errores: si alguno se supera el proceso termina con
+// codigo 1. Cualquier otra clave con un punto se pasa como propiedad de Spring.
+public final class LoadTestRunner {
+
+    private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = opciones(args);
+        Escenario escenario = Escenario.valueOf(opciones.getOrDefault("escenario", "mixto").toUpperCase(Locale.ROOT));
+        double tasa = Double.parseDouble(opciones.getOrDefault("tasa", "100"));
+        Duration duracion = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("duracion", "30")));
+        Duration calentamiento = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("calentamiento", "10")));
+        int maxEnVuelo = Integer.parseInt(opciones.getOrDefault("max-en-vuelo", "1000"));
+        Path salida = Path.of(opciones.getOrDefault("salida", "target/loadtest"));
+        String servidor = opciones.getOrDefault("servidor", "tomcat").toLowerCase(Locale.ROOT);
+
+        ConfigurableApplicationContext contexto = arrancar(opciones, servidor);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        boolean superado;
+        try {
+            URI base = URI.create(opciones.getOrDefault("url", "http://localhost:" + puerto(contexto, servidor)));
+            System.out.println("Sembrando datos...");
+            DatosCarga datos = DatosCarga.sembrar(contexto,
+                Integer.parseInt(opciones.getOrDefault("medicos", "50")),
+                Integer.parseInt(opciones.getOrDefault("pacientes", "5000")),
+                Integer.parseInt(opciones.getOrDefault("imagenes", "500")),
+                Integer.parseInt(opciones.getOrDefault("informes", "200")));
+
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+            GeneradorCarga generador = new GeneradorCarga(client, base, datos, escenario, tasa, maxEnVuelo);
+
+            System.out.printf(Locale.ROOT, "Escenario %s contra %s (%s): %.0f peticiones/s, calentamiento %ds, medicion %ds%n",
+                escenario, base, servidor, tasa, calentamiento.toSeconds(), duracion.toSeconds());
+            generador.ejecutar(calentamiento);
+            List<ResultadoOperacion> resultados = new ArrayList<>(generador.ejecutar(duracion).values());
+
+            imprimir(resultados, System.out);
+            guardar(escenario, servidor, tasa, duracion, resultados, salida);
+            superado = comprobarUmbrales(opciones, resultados);
+        } finally {
+            executor.shutdownNow();
+            contexto.close();
+        }
+        System.exit(superado ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext arrancar(Map<String, String> opciones, String servidor) {
+        // El reinicio de devtools volveria a llamar a main en otro hilo sin los argumentos
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> propiedades = new ArrayList<>(List.of(
+            "server.port=0",
+            "spring.datasource.url=jdbc:h2:mem:carga;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "spring.jpa.show-sql=false",
+            "imagen.store.path=./target/imagenes-carga",
+            "imagen.store.migracion.habilitada=false",
+            "imagen.reactivo.puerto=0",
+            "logging.level.root=WARN"));
+        if ("reactivo".equals(servidor)) {
+            // El servidor reactivo no arranca si no se habilita
+            propiedades.add("imagen.reactivo.habilitado=true");
+        }
+        opciones.forEach((clave, valor) -> {
+            if (clave.contains(".")) {
+                propiedades.add(clave + "=" + valor);
+            }
+        });
+        return new SpringApplicationBuilder(SpringumaApplication.class)
+            .logStartupInfo(false)
+            .properties(propiedades.toArray(new String[0]))
+            .run();
+    }
+
+    private static int puerto(ConfigurableApplicationContext contexto, String servidor) {
+        switch (servidor) {
+            case "tomcat":
+                return Integer.parseInt(contexto.getEnvironment().getProperty("local.server.port"));
+            case "reactivo":
+                return contexto.getBean(ServidorReactivo.class).getPuerto();
+            default:
+                throw new IllegalArgumentException("Servidor no valido: " + servidor + " (tomcat o reactivo)");
+        }
+    }
+
+    private static void imprimir(List<ResultadoOperacion> resultados, PrintStream out) {
+        out.printf("%n%-18s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n", "endpoint", "peticiones", "errores",
+            "descart.", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (ResultadoOperacion r : resultados) {
+            out.printf(Locale.ROOT, "%-18s %9d %7d %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", r.getOperacion(),
+                r.getPeticiones(), r.getErrores(), r.getDescartadas(), r.getPeticionesPorSegundo(),
+                r.percentilMs(50), r.percentilMs(95), r.percentilMs(99), r.percentilMs(99.9), r.maximoMs());
+        }
+        out.println();
+    }
+
+    private static void guardar(Escenario escenario, String servidor, double tasa, Duration duracion,
+            List<ResultadoOperacion> resultados, Path salida) throws IOException {
+        Files.createDirectories(salida);
+        String nombre = escenario.name().toLowerCase(Locale.ROOT) + ("tomcat".equals(servidor) ? "" : "-" + servidor);
+
+        try (PrintStream log = new PrintStream(Files.newOutputStream(salida.resolve(nombre + ".hlog")))) {
+            HistogramLogWriter writer = new HistogramLogWriter(log);
+            writer.outputComment("Latencias en microsegundos, escenario " + nombre);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (ResultadoOperacion r : resultados) {
+                r.getHistograma().setTag(r.getOperacion().name());
+                writer.outputIntervalHistogram(r.getHistograma());
+            }
+        }
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("escenario", escenario.name().toLowerCase(Locale.ROOT));
+        resumen.put("servidor", servidor);
+        resumen.put("tasaObjetivo", tasa);
+        resumen.put("duracionSegundos", duracion.toSeconds());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (ResultadoOperacion r : resultados) {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("peticiones", r.getPeticiones());
+            datos.put("errores", r.getErrores());
+            datos.put("descartadas", r.getDescartadas());
+            datos.put("peticionesPorSegundo", r.getPeticionesPorSegundo());
+            for (double percentil : PERCENTILES) {
+                datos.put("p" + String.valueOf(percentil).replace(".0", "").replace(".", "") + "Ms", r.percentilMs(percentil));
+            }
+            datos.put("maxMs", r.maximoMs());
+            endpoints.put(r.getOperacion().name(), datos);
+        }
+        resumen.put("endpoints", endpoints);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(salida.resolve(nombre + ".json").toFile(), resumen);
+        System.out.println("Resultados en " + salida.toAbsolutePath());
+    }
+
+    private static boolean comprobarUmbrales(Map<String, String> opciones, List<ResultadoOperacion> resultados) {
+        boolean superado = true;
+        String maxP99 = opciones.get("max-p99-ms");
+        double maxErrores = Double.parseDouble(opciones.getOrDefault("max-tasa-errores", "0.01"));
+        for (ResultadoOperacion r : resultados) {
+            if (maxP99 != null && r.percentilMs(99) > Double.parseDouble(maxP99)) {
+                System.out.printf(Locale.ROOT, "FALLO %s: p99 %.2f ms > %s ms%n", r.getOperacion(), r.percentilMs(99), maxP99);
+                superado = false;
+            }
+            if (r.tasaErrores() > maxErrores) {
+                System.out.printf(Locale.ROOT, "FALLO %s: tasa de errores %.4f > %s%n", r.getOperacion(), r.tasaErrores(), maxErrores);
+                superado = false;
+            }
+        }
+        return superado;
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual > 0) {
+                opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+            }
+        }
+        return opciones;
+    }
+}
@@ -0,0 +1,110 @@
+package com.uma.example.springuma.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Peticiones que puede lanzar el generador de carga, una por endpoint de los controladores
+enum Operacion {
+
+    MEDICO {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/medico/" + datos.medicoAleatorio());
+        }
+    },
+    MEDICO_DNI {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/medico/dni/" + DatosCarga.dniMedico(aleatorio(datos.getNumMedicos())));
+        }
+    },
+    PACIENTE {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/paciente/" + datos.pacienteAleatorio());
+        }
+    },
+    PACIENTES_MEDICO {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/paciente/medico/" + datos.medicoAleatorio());
+        }
+    },
+    IMAGENES_PACIENTE {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/imagen/paciente/" + datos.pacienteConImagenesAleatorio());
+        }
+    },
+    DESCARGAR_IMAGEN {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/imagen/" + datos.imagenAleatoria());
+        }
+    },
+    SUBIR_IMAGEN {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            String boundary = "----carga" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            return HttpRequest.newBuilder(base.resolve("/imagen"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(datos.cuerpoSubida(boundary))
+                .build();
+        }
+    },
+    // Subida desde un cliente lento (un movil con mala cobertura): mientras llega el cuerpo, Tomcat tiene ocupado
+    // uno de sus hilos de plataforma; con hilos virtuales o la API reactiva no
+    SUBIR_IMAGEN_LENTA {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            String boundary = "----carga" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            return HttpRequest.newBuilder(base.resolve("/imagen"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(datos.cuerpoSubidaLenta(boundary, TROZO_LENTO, PAUSA_LENTA))
+                .build();
+        }
+    },
+    INFORMES_IMAGEN {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/informe/imagen/" + datos.imagenAleatoria());
+        }
+    },
+    ESTADO_INFORME {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            return get(base, "/informe/" + datos.informeAleatorio() + "/estado");
+        }
+    },
+    CREAR_INFORME {
+        @Override
+        HttpRequest peticion(URI base, DatosCarga datos) {
+            String json = "{\"contenido\": \"Informe de carga\", \"imagen\": {\"id\": " + datos.imagenAleatoria() + "}}";
+            return HttpRequest.newBuilder(base.resolve("/informe"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        }
+    };
+
+    static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    // Unos 1,2 s por subida lenta de la imagen de prueba (5,4 KB)
+    private static final int TROZO_LENTO = 512;
+    private static final Duration PAUSA_LENTA = Duration.ofMillis(100);
+
+    abstract HttpRequest peticion(URI base, DatosCarga datos);
+
+    private static HttpRequest get(URI base, String ruta) {
+        return HttpRequest.newBuilder(base.resolve(ruta)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static int aleatorio(int limite) {
+        return ThreadLocalRandom.current().nextInt(limite);
+    }
+}
@@ -0,0 +1,79 @@
+package com.uma.example.springuma.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// Latencias (histograma HDR en microsegundos) y errores de una operacion durante una medicion
+final class ResultadoOperacion {
+
+    private final Operacion operacion;
+    private final long maximoMicros;
+    private final Recorder recorder;
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private Histogram histograma;
+    private long duracionNanos;
+
+    ResultadoOperacion(Operacion operacion, long maximoNanos) {
+        this.operacion = operacion;
+        this.maximoMicros = TimeUnit.NANOSECONDS.toMicros(maximoNanos) * 2;
+        this.recorder = new Recorder(maximoMicros, 3);
+    }
+
+    void registrar(long latenciaNanos, boolean correcta) {
+        recorder.recordValue(Math.min(maximoMicros, TimeUnit.NANOSECONDS.toMicros(latenciaNanos)));
+        if (!correcta) {
+            errores.increment();
+        }
+    }
+
+    void descartada() {
+        descartadas.increment();
+    }
+
+    void cerrar(long duracionNanos) {
+        this.histograma = recorder.getIntervalHistogram();
+        this.duracionNanos = duracionNanos;
+    }
+
+    Operacion getOperacion() {
+        return operacion;
+    }
+
+    Histogram getHistograma() {
+        return histograma;
+    }
+
+    long getPeticiones() {
+        return histograma.getTotalCount();
+    }
+
+    long getErrores() {
+        return errores.sum();
+    }
+
+    long getDescartadas() {
+        return descartadas.sum();
+    }
+
+    double getPeticionesPorSegundo() {
+        return histograma.getTotalCount() / (duracionNanos / 1e9);
+    }
+
+    double percentilMs(double percentil) {
+        return histograma.getValueAtPercentile(percentil) / 1000.0;
+    }
+
+    double maximoMs() {
+        return histograma.getMaxValue() / 1000.0;
+    }
+
+    // Peticiones con error o descartadas respecto al total de llegadas
+    double tasaErrores() {
+        long llegadas = getPeticiones() + getDescartadas();
+        return llegadas == 0 ? 0 : (double) (getErrores() + getDescartadas()) / llegadas;
+    }
+}
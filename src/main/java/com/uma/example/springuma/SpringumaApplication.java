@@ -3,14 +3,20 @@ package com.uma.example.springuma;
 import java.util.Arrays;
 import java.util.Collections;
 
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import com.uma.example.springuma.busqueda.IndiceBusqueda;
+import com.uma.example.springuma.model.ServidorH2;
+
 @SpringBootApplication
+@EnableScheduling
 public class SpringumaApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(SpringumaApplication.class, args);
@@ -29,4 +35,12 @@ public CorsFilter corsFilter() {
     return new CorsFilter(source);
 }
 
+// Beans que se crean al arrancar aunque este activa la inicializacion perezosa (perfil arranque): el servidor TCP
+// de H2, al que se conectan las demas instancias, y el indice de busqueda, cuyas tareas programadas (commit y
+// refresco) solo se registran cuando se crea el bean
+@Bean
+static LazyInitializationExcludeFilter arranqueInmediato() {
+    return LazyInitializationExcludeFilter.forBeanTypes(ServidorH2.class, IndiceBusqueda.class);
+}
+
 }
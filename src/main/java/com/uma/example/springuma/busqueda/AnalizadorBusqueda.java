@@ -0,0 +1,32 @@
+package com.uma.example.springuma.busqueda;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+// Analizador de los textos en español, el mismo al indexar y al buscar: minusculas, sin palabras vacias, sin
+// tildes (se busca igual "calcificacion" que "calcificación") y con el stemming ligero de Lucene, que junta
+// singular y plural, masculino y femenino
+public class AnalizadorBusqueda extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String campo) {
+        Tokenizer tokenizer = new StandardTokenizer();
+        TokenStream tokens = new LowerCaseFilter(tokenizer);
+        tokens = new StopFilter(tokens, SpanishAnalyzer.getDefaultStopSet());
+        tokens = new ASCIIFoldingFilter(tokens);
+        tokens = new SpanishLightStemFilter(tokens);
+        return new TokenStreamComponents(tokenizer, tokens);
+    }
+
+    @Override
+    protected TokenStream normalize(String campo, TokenStream tokens) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(tokens));
+    }
+}
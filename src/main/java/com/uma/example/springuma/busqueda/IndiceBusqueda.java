@@ -0,0 +1,185 @@
+package com.uma.example.springuma.busqueda;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Indice Lucene de la busqueda de texto completo, en el directorio busqueda.indice.path (vacio: en memoria).
+// Las escrituras van al IndexWriter y se ven en las busquedas tras el siguiente refresco (busqueda.refresco-ms,
+// near-real-time: sin esperar al commit). El commit a disco se hace cada busqueda.commit-ms; junto a el se guardan
+// las marcas de la reindexacion, para que continue donde se quedo si se para la aplicacion.
+// El directorio es de una sola instancia: Lucene lo bloquea para un solo IndexWriter.
+@Component
+public class IndiceBusqueda implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusqueda.class);
+
+    @Value("${busqueda.indice.path:./indice}")
+    private String ruta;
+
+    // Memoria para los documentos pendientes de escribir en un segmento
+    @Value("${busqueda.indice.buffer-mb:64}")
+    private double bufferMb;
+
+    private final Analyzer analizador = new AnalizadorBusqueda();
+    private Directory directorio;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        directorio = ruta.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(ruta));
+        IndexWriterConfig configuracion = new IndexWriterConfig(analizador)
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+            .setRAMBufferSizeMB(bufferMb);
+        writer = new IndexWriter(directorio, configuracion);
+        searcherManager = new SearcherManager(writer, null);
+        log.info("Indice de busqueda en {} con {} documentos", ruta.isBlank() ? "memoria" : ruta,
+            writer.getDocStats().numDocs);
+    }
+
+    // Cierra el IndexWriter con un ultimo commit
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directorio.close();
+    }
+
+    public Analyzer getAnalizador() {
+        return analizador;
+    }
+
+    // Añade el documento o sustituye al que tenga la misma clave
+    public void guardar(Term clave, Document documento) {
+        try {
+            writer.updateDocument(clave, documento);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void borrar(Query consulta) {
+        try {
+            writer.deleteDocuments(consulta);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Con el ultimo refresco: lo escrito despues aun no se ve
+    public boolean existe(Term clave) {
+        return ejecutar(searcher -> searcher.count(new TermQuery(clave)) > 0);
+    }
+
+    // Los n primeros resultados en el orden pedido, despues de los valores de orden "despues" (los del ultimo de la
+    // pagina anterior) si no es null. El orden tiene que calcular la puntuacion si la usa y acabar en un campo unico
+    public <T> List<T> buscar(Query consulta, Sort orden, Object[] despues, int n,
+            BiFunction<Document, FieldDoc, T> resultado) {
+        return ejecutar(searcher -> {
+            // Con el ultimo doc del indice, los documentos con esos mismos valores se dan por devueltos
+            FieldDoc anterior = despues == null ? null
+                : new FieldDoc(Math.max(0, searcher.getIndexReader().maxDoc() - 1), Float.NaN, despues);
+            TopDocs encontrados = searcher.searchAfter(anterior, consulta, n, orden, true);
+            List<T> resultados = new ArrayList<>(encontrados.scoreDocs.length);
+            for (ScoreDoc encontrado : encontrados.scoreDocs) {
+                resultados.add(resultado.apply(searcher.storedFields().document(encontrado.doc), (FieldDoc) encontrado));
+            }
+            return resultados;
+        });
+    }
+
+    public int getDocumentos() {
+        return writer.getDocStats().numDocs;
+    }
+
+    // Marcas guardadas con el ultimo commit
+    public Map<String, String> getMarcas() {
+        Map<String, String> marcas = new HashMap<>();
+        Iterable<Map.Entry<String, String>> datos = writer.getLiveCommitData();
+        if (datos != null) {
+            datos.forEach(marca -> marcas.put(marca.getKey(), marca.getValue()));
+        }
+        return marcas;
+    }
+
+    // Commit de lo escrito hasta ahora junto con las marcas
+    public void confirmar(Map<String, String> marcas) {
+        try {
+            writer.setLiveCommitData(new HashMap<>(marcas).entrySet());
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${busqueda.commit-ms:10000}")
+    public void confirmar() throws IOException {
+        if (writer.isOpen() && writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${busqueda.refresco-ms:1000}")
+    public void refrescar() throws IOException {
+        if (writer.isOpen()) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    // Espera a que las busquedas vean todo lo escrito hasta ahora
+    public void refrescarAhora() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T ejecutar(Consulta<T> consulta) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return consulta.ejecutar(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Consulta<T> {
+        T ejecutar(IndexSearcher searcher) throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+package com.uma.example.springuma.cache;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+// Cache de segundo nivel de Hibernate para Medico y Paciente y para las consultas por dni y por medico.
+// Es JCache sobre Caffeine, en memoria del proceso. Las regiones se crean aqui con el TTL y el tamaño configurados;
+// Hibernate falla al arrancar si una entidad o consulta cacheada usa una region que no existe.
+// La invalidacion al guardar o borrar la hace Hibernate, salvo los borrados en cascada de la base de datos
+// (ver MedicoService). Aciertos y fallos por region: metricas hibernate.second.level.cache.* y hibernate.query.cache.*
+@Configuration
+public class CacheEntidadesConfig {
+
+    public static final String REGION_MEDICO = "medico";
+    public static final String REGION_PACIENTE = "paciente";
+
+    @Value("${entidades.cache.habilitada:true}")
+    private boolean habilitada;
+
+    // Cada contexto tiene su propio CacheManager: si no, dos contextos en la misma JVM (tests) compartirian entradas
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerEntidades(@Value("${entidades.cache.ttl-segundos:600}") long ttlSegundos,
+            @Value("${entidades.cache.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${entidades.cache.consultas.tamano-maximo:1000}") long tamanoConsultas) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("springuma-entidades-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(REGION_MEDICO, configuracion(ttlSegundos, tamanoMaximo));
+        cacheManager.createCache(REGION_PACIENTE, configuracion(ttlSegundos, tamanoMaximo));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+            configuracion(ttlSegundos, tamanoConsultas));
+        // Hibernate compara los resultados de las consultas con la ultima modificacion de cada tabla: esta region
+        // no puede caducar ni perder entradas (hay una por tabla)
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivel(CacheManager cacheManagerEntidades) {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, habilitada);
+            propiedades.put(AvailableSettings.USE_QUERY_CACHE, habilitada);
+            if (habilitada) {
+                propiedades.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+                propiedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerEntidades);
+                propiedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            }
+        };
+    }
+
+    // Las entradas de Hibernate son inmutables, asi que se guardan por referencia, sin copiarlas
+    private static CaffeineConfiguration<Object, Object> configuracion(long ttlSegundos, long tamanoMaximo) {
+        CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+        configuracion.setStoreByValue(false);
+        configuracion.setStatisticsEnabled(true);
+        configuracion.setMaximumSize(OptionalLong.of(tamanoMaximo));
+        configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSegundos)));
+        return configuracion;
+    }
+}
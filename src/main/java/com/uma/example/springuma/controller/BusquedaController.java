@@ -0,0 +1,43 @@
+package com.uma.example.springuma.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uma.example.springuma.model.BusquedaService;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.ResultadoBusqueda;
+import com.uma.example.springuma.model.TipoDocumento;
+
+@RestController
+public class BusquedaController {
+
+    @Autowired
+    private BusquedaService busquedaService;
+
+    // Busqueda de texto completo en informes, pacientes y medicos, ordenada por relevancia. Opcionalmente de un solo
+    // tipo (informe, paciente o medico), de un medico y de informes con la imagen entre dos fechas (yyyy-MM-dd).
+    // Paginada como los listados: se sigue con el cursor "siguiente" de la respuesta hasta que venga a null
+    @GetMapping("/search")
+    public ResponseEntity<?> buscar(@RequestParam("q") String q,
+            @RequestParam(value = "tipo", required = false) String tipo,
+            @RequestParam(value = "medico", required = false) Long medico,
+            @RequestParam(value = "desde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(value = "hasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", required = false) Integer tamano) {
+        try{
+            Pagina<ResultadoBusqueda> pagina = busquedaService.buscar(q, tipo == null ? null : TipoDocumento.de(tipo),
+                medico, desde, hasta, cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
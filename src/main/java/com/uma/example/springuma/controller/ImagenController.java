@@ -1,41 +1,142 @@
 package com.uma.example.springuma.controller;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.uma.example.springuma.model.ContenidoImagen;
+import com.uma.example.springuma.model.DescargaImagen;
 import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
 import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.ImportacionService;
 import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.VariantesImagen;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 public class ImagenController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenController.class);
+
+    // Atributos con los que Tomcat envia un fichero con sendfile (copia sin pasar por el proceso)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private ImagenService imagenService;
 
+    // Cache-Control de las descargas: el contenido de una imagen no cambia, los navegadores y el proxy inverso
+    // pueden guardarlo sin volver a validarlo. Con imagen.cache.publica=false solo lo guarda el navegador
+    @Value("${imagen.cache.max-age-segundos:31536000}")
+    private long maxAgeCache;
+
+    @Value("${imagen.cache.publica:true}")
+    private boolean cachePublica;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private ImportacionService importacionService;
+
+	// La imagen se escribe directamente en la respuesta, sin pasar por un byte[] intermedio.
+	// size=thumb|preview sirve una variante reducida (ver VariantesImagen) en lugar del original (full).
+	// El contenido de una imagen no cambia nunca: se envia con ETag (hash del contenido), Last-Modified (fecha de la
+	// imagen) y Cache-Control immutable, las peticiones condicionales se contestan con 304 solo con los metadatos de
+	// la fila (sin leer el contenido ni generar variantes) y las peticiones con Range de un solo rango con 206
 	@GetMapping("/imagen/{id}")
-	public ResponseEntity<?> downloadImage(@PathVariable long id){
-		byte[] imageData=imagenService.downloadImage(id);
-		return ResponseEntity.ok()
-        .contentType(MediaType.valueOf(
-            "image/png"
-        ))
-        .body(imageData);
+	public ResponseEntity<StreamingResponseBody> downloadImage(@PathVariable long id,
+			@RequestParam(value = "size", defaultValue = VariantesImagen.ORIGINAL) String size,
+			HttpServletRequest request, HttpServletResponse response) throws IOException{
+		ContenidoImagen imagen;
+		try {
+			imagen = imagenService.buscarContenido(id, size);
+		}
+		catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		CacheControl cache = CacheControl.maxAge(Duration.ofSeconds(maxAgeCache)).immutable();
+		response.setHeader(HttpHeaders.CACHE_CONTROL, (cachePublica ? cache.cachePublic() : cache.cachePrivate()).getHeaderValue());
+		// checkNotModified pone el ETag y el Last-Modified en la respuesta y, si el cliente ya tiene la imagen, el 304
+		if (new ServletWebRequest(request, response).checkNotModified(imagenService.etag(imagen, size), imagen.ultimaModificacion())) {
+			return null;
+		}
+		DescargaImagen descarga = imagenService.prepararDescarga(imagen, size);
+		long longitud = descarga.longitud();
+		long inicio = 0;
+		long fin = longitud - 1;
+		HttpStatus estado = HttpStatus.OK;
+		HttpRange rango = descarga.rango(request.getHeader(HttpHeaders.RANGE), request.getHeader(HttpHeaders.IF_RANGE));
+		if (rango != null) {
+			inicio = rango.getRangeStart(longitud);
+			fin = rango.getRangeEnd(longitud);
+			if (inicio >= longitud || inicio > fin) {
+				return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+					.header(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud)
+					.build();
+			}
+			estado = HttpStatus.PARTIAL_CONTENT;
+		}
+		ResponseEntity.BodyBuilder respuesta = ResponseEntity.status(estado)
+			.contentType(MediaType.parseMediaType(descarga.tipo()))
+			.header(HttpHeaders.ACCEPT_RANGES, descarga.admiteRangos() ? "bytes" : "none");
+		if (rango != null) {
+			respuesta.header(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+		}
+		if (longitud >= 0) {
+			respuesta.contentLength(fin - inicio + 1);
+		}
+		Path fichero = descarga.fichero();
+		if (fichero != null && longitud >= 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, fichero.toString());
+			request.setAttribute(SENDFILE_START, inicio);
+			request.setAttribute(SENDFILE_END, fin + 1);
+			return respuesta.build();
+		}
+		if (descarga.clave() == null) {
+			return respuesta.body(out -> imagenService.downloadImage(id, out));
+		}
+		long desde = inicio;
+		long cuantos = longitud >= 0 ? fin - inicio + 1 : Long.MAX_VALUE;
+		return respuesta.body(out -> imagenService.escribir(descarga, desde, cuantos, out));
 	}
 
     @GetMapping("/imagen/info/{id}")
-    public Imagen getImagen(@PathVariable("id") Long id){
-        return imagenService.getImagen(id);
+    public ResponseEntity<Imagen> getImagen(@PathVariable("id") Long id){
+        Imagen imagen = imagenService.getImagen(id);
+        if (imagen == null) {
+            return ResponseEntity.internalServerError().build();
+        }
+        return ResponseEntity.ok(imagen);
     }
 
     @GetMapping("/imagen/predict/{id}")
@@ -44,7 +145,7 @@ public class ImagenController {
             return ResponseEntity.ok(imagenService.getNewPrediccion(id));
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al realizar la prediccion de la imagen {}", id, e);
             return ResponseEntity.internalServerError().body("Error al realizar la prediccion"+e.getMessage());
         }
         
@@ -57,9 +158,48 @@ public class ImagenController {
 		return ResponseEntity.ok(uploadImage);
 	}
 
+    // Subida de varias imagenes de un paciente en una sola peticion (parte "imagenes" repetida)
+    @PostMapping(value = "/imagen/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importarImagenes(@RequestPart("imagenes") List<MultipartFile> ficheros,
+            @RequestPart("paciente") Paciente paciente) {
+        if (!pacienteService.existePaciente(paciente.getId())) {
+            return ResponseEntity.badRequest().body("No existe el paciente " + paciente.getId());
+        }
+        return ResponseEntity.ok(importacionService.importarImagenes(ficheros, paciente.getId()));
+    }
+
+    // Solo metadatos: el contenido se descarga por separado con GET /imagen/{id}
     @GetMapping("/imagen/paciente/{id}")
-    public List<Imagen> getImagenes (@PathVariable("id") Long id) {
-        return imagenService.getImagenesPaciente(id);
+    public List<ImagenResumen> getImagenes (@PathVariable("id") Long id) {
+        return imagenService.getResumenImagenesPaciente(id);
+    }
+
+    // Versiones paginadas: se sigue con el cursor "siguiente" de la respuesta hasta que venga a null.
+    // Las imagenes de un paciente se ordenan por fecha (por defecto) o por id
+    @GetMapping("/imagen/paciente/{id}/pagina")
+    public ResponseEntity<?> getPaginaImagenes(@PathVariable("id") Long id,
+            @RequestParam(value = "orden", required = false) String orden,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", required = false) Integer tamano) {
+        try{
+            Pagina<ImagenResumen> pagina = imagenService.getPaginaImagenesPaciente(id, orden, cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/imagen/pagina")
+    public ResponseEntity<?> getPaginaTodasImagenes(@RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", required = false) Integer tamano) {
+        try{
+            Pagina<ImagenResumen> pagina = imagenService.getPaginaImagenes(cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/imagen/{id}")
@@ -69,7 +209,7 @@ public class ImagenController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar la imagen {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar la imagen");
         }
     }
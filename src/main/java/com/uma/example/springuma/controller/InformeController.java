@@ -1,8 +1,11 @@
 package com.uma.example.springuma.controller;
 
+import java.net.URI;
 import java.util.List;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,14 +14,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.uma.example.springuma.model.EstadoInforme;
 import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeResumen;
 import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Pagina;
 
 @RestController
 public class InformeController {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(InformeController.class);
+
     @Autowired
     private InformeService informeService;
     
@@ -27,20 +37,51 @@ public class InformeController {
         return informeService.getInforme(id);
     }
 
+    @GetMapping("/informe/{id}/estado")
+    public ResponseEntity<EstadoInforme> getEstadoInforme(@PathVariable("id") Long id) {
+        EstadoInforme estado = informeService.getEstadoInforme(id);
+        if (estado != null) {
+            return ResponseEntity.ok(estado);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Solo metadatos: el contenido de cada informe se obtiene con GET /informe/{id}
     @GetMapping("informe/imagen/{id}")
-    public List<Informe> getInformes(@PathVariable("id") Long id) {
-        return informeService.getInformesImagen(id);
+    public List<InformeResumen> getInformes(@PathVariable("id") Long id) {
+        return informeService.getResumenInformesImagen(id);
+    }
+
+    // Todos los informes, paginados: se sigue con el cursor "siguiente" de la respuesta hasta que venga a null
+    @GetMapping("/informe/pagina")
+    public ResponseEntity<?> getPaginaInformes(@RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", required = false) Integer tamano) {
+        try{
+            Pagina<InformeResumen> pagina = informeService.getPaginaInformes(cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     
+    // Devuelve 202: la prediccion se calcula en segundo plano y se consulta en la URL de la cabecera Location
     @PostMapping(value = "/informe",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
 	public ResponseEntity<?> saveInforme(@RequestBody Informe informe) {
         try{
-            informeService.addInforme(informe);
-            return ResponseEntity.status(201).build();
+            Informe guardado = informeService.addInforme(informe);
+            URI estado = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/informe/{id}/estado")
+                .buildAndExpand(guardado.getId())
+                .toUri();
+            return ResponseEntity.accepted()
+                .location(estado)
+                .body(informeService.getEstadoInforme(guardado.getId()));
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al guardar el informe", e);
             return ResponseEntity.internalServerError().body("El informe ya existe");
         }
 	}
@@ -52,7 +93,7 @@ public class InformeController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar el informe {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar el informe");
         }
     }
@@ -1,7 +1,12 @@
 package com.uma.example.springuma.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -10,17 +15,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.uma.example.springuma.model.ImportacionService;
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.ResultadoImportacion;
 
 @RestController
 public class MedicoController {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(MedicoController.class);
+
     @Autowired
     private MedicoService medicoService;
 
+    @Autowired
+    private ImportacionService importacionService;
+
     @GetMapping("/medico/{id}")
     public Medico getMedico(@PathVariable("id") Long id){
         return medicoService.getMedico(id);
@@ -37,6 +50,14 @@ public class MedicoController {
         }
 	}
 
+    // Alta masiva: NDJSON (un medico por linea) o CSV con cabecera dni,nombre,especialidad.
+    // Devuelve cuantos se han importado y el error de cada registro descartado
+    @PostMapping(value = "/medico/importar", consumes = {ImportacionService.NDJSON, ImportacionService.CSV})
+    public ResultadoImportacion importarMedicos(InputStream cuerpo,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String tipo) throws IOException {
+        return importacionService.importarMedicos(cuerpo, tipo);
+    }
+
     @PutMapping(value = "/medico",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
     public ResponseEntity<?> updateMedico (@RequestBody Medico medico) {
         try{
@@ -44,7 +65,7 @@ public class MedicoController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al actualizar el medico {}", medico.getId(), e);
             return ResponseEntity.internalServerError().body("Error al actualizar el medico");
         }
     }
@@ -52,9 +73,8 @@ public class MedicoController {
     @DeleteMapping("/medico/{id}")
     public ResponseEntity<?> deleteMedico(@PathVariable("id") Long id) {
         try{
-            Medico medico = medicoService.getMedico(id);
-            System.out.println(medico);
-            if (medico != null) {
+            if (medicoService.existeMedico(id)) {
+                log.info("Eliminando medico {}", id);
                 medicoService.removeMedicoID(id);
                 return ResponseEntity.ok().build();
             } else {
@@ -63,7 +83,7 @@ public class MedicoController {
             
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al eliminar el medico {}", id, e);
             return ResponseEntity.internalServerError().body("Error al eliminar el medico");
         }
     }
@@ -1,8 +1,13 @@
 package com.uma.example.springuma.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,20 +16,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.uma.example.springuma.model.ImportacionService;
+import com.uma.example.springuma.model.Pagina;
 import com.uma.example.springuma.model.Paciente;
 import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.ResultadoImportacion;
 
 @RestController
 public class PacienteController {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(PacienteController.class);
+
     @Autowired
     private PacienteService pacienteService;
+
+    @Autowired
+    private ImportacionService importacionService;
     
     @GetMapping("/paciente/{id}")
-    public Paciente getPaciente(@PathVariable("id") Long id) {
-        return pacienteService.getPaciente(id);
+    public ResponseEntity<Paciente> getPaciente(@PathVariable("id") Long id) {
+        Paciente paciente = pacienteService.getPaciente(id);
+        if (paciente == null) {
+            return ResponseEntity.internalServerError().build();
+        }
+        return ResponseEntity.ok(paciente);
     }
 
     @GetMapping("/paciente/medico/{id}")
@@ -32,6 +51,20 @@ public class PacienteController {
         return pacienteService.getPacientesMedico(id);
     }
 
+    // Version paginada: se sigue con el cursor "siguiente" de la respuesta hasta que venga a null
+    @GetMapping("/paciente/medico/{id}/pagina")
+    public ResponseEntity<?> getPaginaPacientes(@PathVariable("id") Long id,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "tamano", required = false) Integer tamano) {
+        try{
+            Pagina<Paciente> pagina = pacienteService.getPaginaPacientesMedico(id, cursor, tamano);
+            return ResponseEntity.ok(pagina);
+        }
+        catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PostMapping(value = "/paciente",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
 	public ResponseEntity<?> savePaciente(@RequestBody Paciente paciente) {
         try{
@@ -43,6 +76,15 @@ public class PacienteController {
         }
 	}
 
+    // Alta masiva: NDJSON (un paciente por linea, el medico por id o por dni) o CSV con cabecera
+    // nombre,edad,cita,dni,medico_dni (o medico_id). Devuelve cuantos se han importado y el error de cada
+    // registro descartado
+    @PostMapping(value = "/paciente/importar", consumes = {ImportacionService.NDJSON, ImportacionService.CSV})
+    public ResultadoImportacion importarPacientes(InputStream cuerpo,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String tipo) throws IOException {
+        return importacionService.importarPacientes(cuerpo, tipo);
+    }
+
     @PutMapping(value = "/paciente",     consumes = {MediaType.APPLICATION_JSON_VALUE} )
     public ResponseEntity<?> updateCuenta (@RequestBody Paciente paciente) {
         try{
@@ -50,7 +92,7 @@ public class PacienteController {
             return ResponseEntity.noContent().build();
         }
         catch(Exception e){
-            e.printStackTrace();
+            log.error("Error al actualizar el paciente {}", paciente.getId(), e);
             return ResponseEntity.internalServerError().body("Error al actualizar el paciente ");
         }
     }
@@ -58,10 +100,9 @@ public class PacienteController {
     @DeleteMapping("/paciente/{id}")
     public ResponseEntity<?> deleteCuenta(@PathVariable("id") Long id) {
         try{
-            Paciente paciente = pacienteService.getPaciente(id);
-            System.out.println(paciente);
-            if (paciente != null) {
-                pacienteService.removePaciente(paciente);
+            if (pacienteService.existePaciente(id)) {
+                log.info("Eliminando paciente {}", id);
+                pacienteService.removePacienteID(id);
                 return ResponseEntity.ok().build();
             } else {
                 return ResponseEntity.internalServerError().build();
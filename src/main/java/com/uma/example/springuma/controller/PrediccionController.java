@@ -0,0 +1,21 @@
+package com.uma.example.springuma.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uma.example.springuma.model.EstadisticasCache;
+import com.uma.example.springuma.model.PrediccionService;
+
+@RestController
+public class PrediccionController {
+
+    @Autowired
+    private PrediccionService prediccionService;
+
+    // Aciertos y fallos de la cache de predicciones
+    @GetMapping("/prediccion/cache")
+    public EstadisticasCache getEstadisticasCache() {
+        return prediccionService.getEstadisticas();
+    }
+}
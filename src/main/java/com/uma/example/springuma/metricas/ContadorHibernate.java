@@ -0,0 +1,48 @@
+package com.uma.example.springuma.metricas;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+// Cuenta, en el hilo actual, las sentencias SQL que prepara Hibernate y las entidades que carga. Lo registra
+// MetricasConfig para toda la SessionFactory y MetricasPeticionFilter lo reinicia y lo lee en cada peticion.
+public class ContadorHibernate implements StatementInspector, Interceptor {
+
+    static final ContadorHibernate INSTANCIA = new ContadorHibernate();
+
+    private static final ThreadLocal<Contadores> CONTADORES = ThreadLocal.withInitial(Contadores::new);
+
+    private ContadorHibernate() {
+    }
+
+    @Override
+    public String inspect(String sql) {
+        CONTADORES.get().sentencias++;
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        CONTADORES.get().entidades++;
+        return false;
+    }
+
+    public static void reiniciar() {
+        Contadores contadores = CONTADORES.get();
+        contadores.sentencias = 0;
+        contadores.entidades = 0;
+    }
+
+    public static long getSentencias() {
+        return CONTADORES.get().sentencias;
+    }
+
+    public static long getEntidades() {
+        return CONTADORES.get().entidades;
+    }
+
+    private static final class Contadores {
+        private long sentencias;
+        private long entidades;
+    }
+}
@@ -0,0 +1,47 @@
+package com.uma.example.springuma.metricas;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Registra por peticion cuantas sentencias SQL ha ejecutado y cuantas entidades ha cargado Hibernate, con las
+// mismas etiquetas method/uri que http.server.requests. Sirve para detectar N+1 en un endpoint concreto.
+@Component
+public class MetricasPeticionFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorHibernate.reiniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Tags tags = Tags.of("method", request.getMethod(), "uri", patron != null ? patron.toString() : "UNKNOWN");
+            DistributionSummary.builder("springuma.peticion.sentencias")
+                .description("Sentencias SQL preparadas por Hibernate en una peticion")
+                .tags(tags)
+                .register(registry)
+                .record(ContadorHibernate.getSentencias());
+            DistributionSummary.builder("springuma.peticion.entidades")
+                .description("Entidades cargadas por Hibernate en una peticion")
+                .tags(tags)
+                .register(registry)
+                .record(ContadorHibernate.getEntidades());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.uma.example.springuma.metricas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Indica al arrancar con que hilos se atienden las peticiones y lo publica en la metrica springuma.hilos.virtuales
+// (1 o 0), para saber en que modo se ha tomado cada medida. spring.threads.virtual.enabled no tiene efecto antes
+// de Java 21 y Spring Boot lo ignora sin avisar
+@Component
+public class ModoHilos {
+
+    private static final Logger log = LoggerFactory.getLogger(ModoHilos.class);
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        boolean virtuales = Threading.VIRTUAL.isActive(environment);
+        Gauge.builder("springuma.hilos.virtuales", () -> virtuales ? 1 : 0)
+            .description("1 si las peticiones se atienden con hilos virtuales")
+            .register(registry);
+        if (virtuales) {
+            log.info("Peticiones, tareas asincronas y programadas en hilos virtuales; pool JDBC de {} conexiones",
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", "10"));
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled necesita Java 21 o superior (se esta usando Java {}): "
+                + "se siguen usando hilos de plataforma", JavaVersion.getJavaVersion());
+        }
+    }
+}
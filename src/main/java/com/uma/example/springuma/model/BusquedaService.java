@@ -0,0 +1,354 @@
+package com.uma.example.springuma.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.uma.example.springuma.busqueda.IndiceBusqueda;
+import com.uma.example.springuma.utils.CursorPagina;
+
+import io.micrometer.core.annotation.Timed;
+
+// Busqueda de texto completo sobre el contenido de los informes y los nombres de pacientes y medicos, con el
+// indice Lucene de IndiceBusqueda.
+//
+// Cada alta, modificacion o borrado publica un CambioBusquedaEvent y, una vez confirmada la transaccion, el
+// documento se vuelve a leer de la base de datos y se sustituye en el indice (o se borra, con los que dependen de el
+// por el borrado en cascada de la base de datos). Lo que entra sin pasar por los servicios (importaciones, un indice
+// nuevo o borrado) lo recoge la reindexacion: en segundo plano y por lotes, indexa las filas con id mayor que la
+// marca guardada con el ultimo commit del indice, asi que al arrancar solo recorre lo que falte.
+@Service
+@Timed("springuma.servicio")
+public class BusquedaService implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BusquedaService.class);
+
+    // Campos de los documentos del indice
+    private static final String CLAVE = "clave";
+    private static final String TIPO = "tipo";
+    private static final String ID = "id";
+    private static final String ORDEN = "orden";
+    private static final String TITULO = "titulo";
+    private static final String TEXTO = "texto";
+    private static final String MEDICO = "medico";
+    private static final String PACIENTE = "paciente";
+    private static final String IMAGEN = "imagen";
+    private static final String FECHA = "fecha";
+
+    // Los terminos mas cortos no se buscan tambien como prefijo
+    private static final int LONGITUD_MINIMA_PREFIJO = 3;
+
+    // Por puntuacion y, a igual puntuacion, por tipo e id: el orden es estable entre paginas
+    private static final Sort RELEVANCIA = new Sort(SortField.FIELD_SCORE, new SortField(ORDEN, SortField.Type.LONG));
+
+    @Autowired
+    private IndiceBusqueda indice;
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private Paginacion paginacion;
+
+    @Value("${busqueda.reindexado.lote:1000}")
+    private int tamanoLote;
+
+    private ThreadPoolTaskExecutor reindexado;
+
+    @Override
+    public void afterPropertiesSet() {
+        reindexado = new ThreadPoolTaskExecutor();
+        reindexado.setCorePoolSize(1);
+        reindexado.setMaxPoolSize(1);
+        // Una reindexacion en marcha y como mucho otra pendiente, que ya recogera lo de las que se descartan
+        reindexado.setQueueCapacity(1);
+        reindexado.setThreadNamePrefix("busqueda-");
+        reindexado.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        reindexado.setWaitForTasksToCompleteOnShutdown(false);
+        reindexado.initialize();
+    }
+
+    @Override
+    public void destroy() {
+        reindexado.shutdown();
+    }
+
+    // Pagina de resultados ordenados por relevancia, a partir del cursor de la pagina anterior. Todos los terminos
+    // de la consulta tienen que aparecer, completos o como principio de una palabra ("microcalc", "Sora").
+    // Los filtros de medico y fechas son opcionales; con fechas solo salen informes
+    public Pagina<ResultadoBusqueda> buscar(String texto, TipoDocumento tipo, Long medico, LocalDate desde,
+            LocalDate hasta, String cursor, Integer tamanoPedido) {
+        int tamano = paginacion.tamano(tamanoPedido);
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder();
+        List<String> terminos = terminos(texto);
+        if (terminos.isEmpty()) {
+            throw new IllegalArgumentException("La consulta no tiene ningun termino que buscar");
+        }
+        for (String termino : terminos) {
+            BooleanQuery.Builder alternativas = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(TEXTO, termino)), BooleanClause.Occur.SHOULD);
+            if (termino.length() >= LONGITUD_MINIMA_PREFIJO) {
+                alternativas.add(new PrefixQuery(new Term(TEXTO, termino)), BooleanClause.Occur.SHOULD);
+            }
+            consulta.add(alternativas.build(), BooleanClause.Occur.MUST);
+        }
+        if (tipo != null) {
+            consulta.add(new TermQuery(new Term(TIPO, tipo.getNombre())), BooleanClause.Occur.FILTER);
+        }
+        if (medico != null) {
+            consulta.add(LongPoint.newExactQuery(MEDICO, medico), BooleanClause.Occur.FILTER);
+        }
+        if (desde != null || hasta != null) {
+            long inicio = desde == null ? Long.MIN_VALUE : desde.toEpochDay();
+            long fin = hasta == null ? Long.MAX_VALUE : hasta.toEpochDay();
+            consulta.add(LongPoint.newRangeQuery(FECHA, inicio, fin), BooleanClause.Occur.FILTER);
+        }
+        Object[] despues = null;
+        if (cursor != null) {
+            String[] clave = CursorPagina.decodificar(cursor, "relevancia", 2);
+            float puntuacion;
+            try {
+                puntuacion = Float.parseFloat(clave[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor no valido: " + cursor);
+            }
+            long orden = CursorPagina.parseLong(clave[1], cursor);
+            despues = new Object[] {puntuacion, orden};
+        }
+        List<ResultadoBusqueda> filas = indice.buscar(consulta.build(), RELEVANCIA, despues, tamano + 1,
+            (documento, encontrado) -> resultado(documento, (Float) encontrado.fields[0]));
+        return Pagina.de(filas, tamano, r -> CursorPagina.codificar("relevancia", r.puntuacion(),
+            orden(TipoDocumento.de(r.tipo()), r.id())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCambio(CambioBusquedaEvent cambio) {
+        try {
+            if (cambio.entidad() == Informe.class) {
+                indexarInforme(cambio.id());
+            } else if (cambio.entidad() == Paciente.class) {
+                indexarPaciente(cambio.id());
+            } else if (cambio.entidad() == Medico.class) {
+                indexarMedico(cambio.id());
+            } else if (cambio.entidad() == Imagen.class) {
+                // Los informes de una imagen borrada se borran en cascada en la base de datos
+                indice.borrar(LongPoint.newExactQuery(IMAGEN, cambio.id()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido actualizar el indice de busqueda con {} {}", cambio.entidad().getSimpleName(),
+                cambio.id(), e);
+        }
+    }
+
+    // Reindexa en segundo plano lo que no este en el indice
+    @EventListener(ApplicationReadyEvent.class)
+    public void ponerAlDia() {
+        reindexado.execute(() -> {
+            try {
+                reindexar();
+            } catch (RuntimeException e) {
+                log.warn("Error en la reindexacion de la busqueda, se continua en la siguiente", e);
+            }
+        });
+    }
+
+    // Recorre cada tabla por lotes desde su marca. Los documentos que ya estan en el indice no se tocan: los ha
+    // indexado un CambioBusquedaEvent con un estado igual o mas reciente que el del lote
+    void reindexar() {
+        Map<String, String> marcas = indice.getMarcas();
+        long indexados = 0;
+        indexados += reindexar(TipoDocumento.MEDICO, marcas, repositoryMedico::findIndexablePagina,
+            MedicoIndexable::id, this::documento);
+        indexados += reindexar(TipoDocumento.PACIENTE, marcas, repositoryPaciente::findIndexablePagina,
+            PacienteIndexable::id, this::documento);
+        indexados += reindexar(TipoDocumento.INFORME, marcas, repositoryInforme::findIndexablePagina,
+            InformeIndexable::id, this::documento);
+        if (indexados > 0) {
+            log.info("Reindexacion de la busqueda: {} documentos nuevos, {} en el indice", indexados,
+                indice.getDocumentos());
+        }
+    }
+
+    private <T> long reindexar(TipoDocumento tipo, Map<String, String> marcas, Lote<T> lote, Function<T, Long> id,
+            Function<T, Document> documento) {
+        String marca = "reindexado." + tipo.getNombre();
+        long ultimo = Long.parseLong(marcas.getOrDefault(marca, "0"));
+        long indexados = 0;
+        List<T> filas;
+        while (!(filas = lote.cargar(ultimo, PageRequest.ofSize(tamanoLote))).isEmpty()) {
+            indice.refrescarAhora();
+            for (T fila : filas) {
+                Term clave = clave(tipo, id.apply(fila));
+                if (!indice.existe(clave)) {
+                    indice.guardar(clave, documento.apply(fila));
+                    indexados++;
+                }
+            }
+            ultimo = id.apply(filas.get(filas.size() - 1));
+            marcas.put(marca, String.valueOf(ultimo));
+            indice.confirmar(marcas);
+        }
+        return indexados;
+    }
+
+    private void indexarInforme(long id) {
+        repositoryInforme.findIndexableById(id).ifPresentOrElse(
+            informe -> indice.guardar(clave(TipoDocumento.INFORME, id), documento(informe)),
+            () -> indice.borrar(new TermQuery(clave(TipoDocumento.INFORME, id))));
+    }
+
+    // Los informes llevan el nombre del paciente y su medico: se reindexan con el
+    private void indexarPaciente(long id) {
+        repositoryPaciente.findIndexableById(id).ifPresentOrElse(paciente -> {
+            indice.guardar(clave(TipoDocumento.PACIENTE, id), documento(paciente));
+            repositoryInforme.findIndexableByPacienteId(id)
+                .forEach(informe -> indice.guardar(clave(TipoDocumento.INFORME, informe.id()), documento(informe)));
+        }, () -> indice.borrar(LongPoint.newExactQuery(PACIENTE, id)));
+    }
+
+    private void indexarMedico(long id) {
+        repositoryMedico.findIndexableById(id).ifPresentOrElse(
+            medico -> indice.guardar(clave(TipoDocumento.MEDICO, id), documento(medico)),
+            () -> indice.borrar(LongPoint.newExactQuery(MEDICO, id)));
+    }
+
+    private Document documento(InformeIndexable informe) {
+        Document documento = documento(TipoDocumento.INFORME, informe.id(),
+            "Informe " + informe.id() + (informe.nombrePaciente() == null ? "" : " - " + informe.nombrePaciente()),
+            informe.medico(), informe.contenido(), informe.nombrePaciente());
+        guardarId(documento, PACIENTE, informe.paciente());
+        guardarId(documento, IMAGEN, informe.imagen());
+        LocalDate fecha = fecha(informe.fecha());
+        if (fecha != null) {
+            documento.add(new LongPoint(FECHA, fecha.toEpochDay()));
+            documento.add(new StoredField(FECHA, fecha.toEpochDay()));
+        }
+        return documento;
+    }
+
+    private Document documento(PacienteIndexable paciente) {
+        Document documento = documento(TipoDocumento.PACIENTE, paciente.id(), paciente.nombre(), paciente.medico(),
+            paciente.nombre(), paciente.dni(), paciente.cita());
+        guardarId(documento, PACIENTE, paciente.id());
+        return documento;
+    }
+
+    private Document documento(MedicoIndexable medico) {
+        return documento(TipoDocumento.MEDICO, medico.id(), medico.nombre(), medico.id(), medico.nombre(),
+            medico.dni(), medico.especialidad());
+    }
+
+    // Campos comunes: el texto buscable no se guarda, solo lo que se devuelve en los resultados
+    private static Document documento(TipoDocumento tipo, long id, String titulo, Long medico, String... textos) {
+        Document documento = new Document();
+        documento.add(new StringField(CLAVE, clave(tipo, id).text(), Field.Store.NO));
+        documento.add(new StringField(TIPO, tipo.getNombre(), Field.Store.YES));
+        documento.add(new StoredField(ID, id));
+        documento.add(new NumericDocValuesField(ORDEN, orden(tipo, id)));
+        if (titulo != null) {
+            documento.add(new StoredField(TITULO, titulo));
+        }
+        for (String texto : textos) {
+            if (texto != null) {
+                documento.add(new TextField(TEXTO, texto, Field.Store.NO));
+            }
+        }
+        guardarId(documento, MEDICO, medico);
+        return documento;
+    }
+
+    // Id por el que se filtra o se borra, y se guarda para devolverlo
+    private static void guardarId(Document documento, String campo, Long id) {
+        if (id != null) {
+            documento.add(new LongPoint(campo, id));
+            documento.add(new StoredField(campo, id));
+        }
+    }
+
+    private static ResultadoBusqueda resultado(Document documento, float puntuacion) {
+        IndexableField medico = documento.getField(MEDICO);
+        IndexableField fecha = documento.getField(FECHA);
+        return new ResultadoBusqueda(documento.get(TIPO), documento.getField(ID).numericValue().longValue(),
+            documento.get(TITULO), medico == null ? null : medico.numericValue().longValue(),
+            fecha == null ? null : LocalDate.ofEpochDay(fecha.numericValue().longValue()), puntuacion);
+    }
+
+    private static Term clave(TipoDocumento tipo, long id) {
+        return new Term(CLAVE, tipo.getNombre() + ":" + id);
+    }
+
+    private static long orden(TipoDocumento tipo, long id) {
+        return ((long) tipo.ordinal() << 56) | id;
+    }
+
+    private static LocalDate fecha(Calendar fecha) {
+        return fecha == null ? null : LocalDate.ofInstant(fecha.toInstant(), fecha.getTimeZone().toZoneId());
+    }
+
+    // Terminos de la consulta pasados por el mismo analizador que los documentos
+    private List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null) {
+            return terminos;
+        }
+        try (TokenStream tokens = indice.getAnalizador().tokenStream(TEXTO, texto)) {
+            CharTermAttribute termino = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terminos.add(termino.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terminos;
+    }
+
+    @FunctionalInterface
+    private interface Lote<T> {
+        List<T> cargar(long ultimo, Pageable pageable);
+    }
+}
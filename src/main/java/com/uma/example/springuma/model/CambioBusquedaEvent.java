@@ -0,0 +1,6 @@
+package com.uma.example.springuma.model;
+
+// Se publica al crear, modificar o borrar un Informe, Paciente, Medico o Imagen, para poner al dia sus documentos
+// en el indice de busqueda (ver BusquedaService)
+public record CambioBusquedaEvent(Class<?> entidad, long id) {
+}
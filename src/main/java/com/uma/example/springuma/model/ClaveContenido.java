@@ -0,0 +1,11 @@
+package com.uma.example.springuma.model;
+
+import com.uma.example.springuma.store.ImageStore;
+
+// Proyeccion de Imagen con lo que identifica su contenido en el ImageStore
+public record ClaveContenido(String hash, String codec) {
+
+    public String clave() {
+        return ImageStore.clave(hash, codec);
+    }
+}
@@ -0,0 +1,19 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+import com.uma.example.springuma.store.ImageStore;
+
+// Proyeccion de Imagen con lo necesario para servir su contenido, sin cargar la columna file_content
+public record ContenidoImagen(long id, String hash, String codec, String tipo, Calendar fecha, Long tamano) {
+
+    // Clave del contenido en el ImageStore, o null si el contenido sigue en la columna file_content
+    public String clave() {
+        return hash == null ? null : ImageStore.clave(hash, codec);
+    }
+
+    // Fecha de la imagen en milisegundos (Last-Modified), o -1 si no tiene
+    public long ultimaModificacion() {
+        return fecha != null ? fecha.getTimeInMillis() : -1;
+    }
+}
@@ -0,0 +1,37 @@
+package com.uma.example.springuma.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.springframework.http.HttpRange;
+
+// Lo que se sirve en GET /imagen/{id}: la clave del contenido en el ImageStore (null si sigue en la columna
+// file_content), el codec con el que esta guardado, su tipo MIME, el fichero local si se puede enviar tal cual,
+// la longitud de lo que se sirve (-1 si no se conoce), el ETag (null si no hay hash) y la fecha de la imagen en
+// milisegundos (-1 si no tiene)
+public record DescargaImagen(long id, String clave, String codec, String tipo, Path fichero, long longitud, String etag,
+        long ultimaModificacion) {
+
+    // Rango de la cabecera Range si se puede servir: uno solo, de un contenido del ImageStore de longitud conocida
+    // y con If-Range (si viene) igual al ETag actual. En cualquier otro caso se sirve la imagen entera (200).
+    public HttpRange rango(String range, String ifRange) {
+        if (range == null || clave == null || longitud < 0) {
+            return null;
+        }
+        if (ifRange != null && !ifRange.equals("\"" + etag + "\"")) {
+            return null;
+        }
+        try {
+            List<HttpRange> rangos = HttpRange.parseRanges(range);
+            return rangos.size() == 1 ? rangos.get(0) : null;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Admite peticiones con Range: contenidos del ImageStore de longitud conocida
+    public boolean admiteRangos() {
+        return clave != null && longitud >= 0;
+    }
+}
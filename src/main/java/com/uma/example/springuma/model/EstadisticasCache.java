@@ -0,0 +1,7 @@
+package com.uma.example.springuma.model;
+
+// Aciertos y fallos de la cache de predicciones. Los aciertos en base de datos son fallos de la cache en memoria
+// que se resolvieron con la tabla prediccion_cache sin llamar al modelo.
+public record EstadisticasCache(long aciertos, long fallos, long aciertosBaseDatos, long llamadasModelo,
+        long tamano, double tasaAciertos) {
+}
@@ -0,0 +1,5 @@
+package com.uma.example.springuma.model;
+
+// Respuesta de GET /informe/{id}/estado
+public record EstadoInforme(long id, EstadoPrediccion estado, String prediccion) {
+}
@@ -0,0 +1,8 @@
+package com.uma.example.springuma.model;
+
+// Estado de la prediccion de un informe, que se calcula en segundo plano en PrediccionPipeline
+public enum EstadoPrediccion {
+    PENDIENTE,
+    COMPLETADA,
+    ERROR
+}
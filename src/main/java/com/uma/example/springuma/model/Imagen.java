@@ -1,19 +1,39 @@
 package com.uma.example.springuma.model;
 
+import java.sql.Blob;
 import java.util.Calendar;
 
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.engine.jdbc.BlobProxy;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.DeflateCodec;
+import com.uma.example.springuma.utils.IdentityCodec;
 
 import jakarta.persistence.*;
 
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // para ignorar el serializador al devolver un objeto cuenta
+@NamedEntityGraph(name = Imagen.GRAFO_PACIENTE, attributeNodes = @NamedAttributeNode(value = "paciente", subgraph = "paciente"),
+    subgraphs = @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("medico")))
 public class Imagen {
+
+    // Codecs con los que puede estar guardado el contenido
+    public static final String CODEC_IDENTITY = IdentityCodec.ID;
+    public static final String CODEC_DEFLATE = DeflateCodec.ID;
+
+    // Secuencia de los ids (ver SecuenciasMigracion)
+    public static final String SECUENCIA = "imagen_seq";
+
+    // Imagen con su paciente y el medico del paciente, lo que se devuelve en GET /imagen/info/{id}
+    public static final String GRAFO_PACIENTE = "Imagen.paciente";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SECUENCIA)
+    @SequenceGenerator(name = SECUENCIA, sequenceName = SECUENCIA, allocationSize = SecuenciasMigracion.RESERVA_POR_DEFECTO)
     private long id;
 
     @Column(name = "nombre")
@@ -30,20 +50,81 @@ public class Imagen {
         this.fecha = fecha;
     }
     // Relación con Paciente (muchas imágenes pueden pertenecer a un paciente)
-    @ManyToOne()
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "paciente_id")
     private Paciente paciente;
 
+    // Contenido en el ImageStore: hash SHA-256 del original, tamaño original y codec con el que se guardo
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "tamano")
+    private Long tamano;
+
+    @Column(name = "codec", length = 16)
+    private String codec;
+
+    // Tipo MIME del original, reconocido por su cabecera al subirlo; null en las imagenes anteriores a la columna
+    @Column(name = "tipo", length = 100)
+    private String tipo;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Long getTamano() {
+        return tamano;
+    }
+
+    public void setTamano(Long tamano) {
+        this.tamano = tamano;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    // Clave del contenido en el ImageStore, o null si el contenido sigue en la columna file_content
+    @JsonIgnore
+    public String getClaveContenido() {
+        return hash == null ? null : ImageStore.clave(hash, codec);
+    }
+
+    // Contenido antiguo guardado en la propia fila (comprimido con deflate). Solo lo tienen las imagenes
+    // subidas antes del ImageStore y que aun no se han migrado con ImagenStoreMigracion.
+    // Se mapea como Blob para poder leerlo en streaming sin cargarlo entero en memoria.
+    // Es LAZY (con la mejora de bytecode de Hibernate, ver pom.xml): las lecturas de la imagen, de sus informes y de
+    // las imagenes de un paciente no incluyen la columna, que solo se lee al llamar a getFile_content dentro de la
+    // transaccion. Con el servidor TCP de H2 el contenido de hasta 1 MB llega entero con cada fila que lo incluye.
+    // No se serializa a JSON: el contenido se descarga con GET /imagen/{id}
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @JsonIgnore
     @Column(name = "file_content")
-    private byte[] file_content;
+    private Blob file_content;
 
-    public byte[] getFile_content(){
+    public Blob getFile_content(){
          return file_content;
      }
 
-     public void setFile_content(byte[] file_content){
+     public void setFile_content(Blob file_content){
          this.file_content = file_content;
 }
 
@@ -96,7 +177,8 @@ public class Imagen {
     }
     public Imagen(byte[] file_content, Paciente paciente)
     {
-        this.file_content = file_content;
+        this.file_content = BlobProxy.generateProxy(file_content);
+        this.codec = CODEC_DEFLATE;
         this.paciente = paciente;
     }
 
@@ -1,60 +1,206 @@
 package com.uma.example.springuma.model;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
-
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.utils.CircuitBreaker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 
-public class ImagenAPIPredictor {
+@Component
+public class ImagenAPIPredictor implements DisposableBean {
     //Class that is responsible for creating API call to external API service which will predict imagage.
     //Call in this version is based on the path of the image, but i checked if it works from our spring project
+    //The HTTP client is shared and pooled, so calls reuse TCP/TLS connections. Every call is bounded by timeouts,
+    //a bulkhead (max concurrent calls) and a circuit breaker, so a slow model endpoint cannot exhaust our threads.
 
-    private static final String API_URL = "https://api-inference.huggingface.co/models/MUmairAB/Breast_Cancer_Detector";
-    // @TODO: replace USE_TOKEN_HERE with your token
-    private static final String TOKEN = "Bearer USE_TOKEN_HERE";
-    
-    public static Map<String, Double> query(byte[] file_data) throws IOException, Exception {
-    
-
-        byte[] data = file_data;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost request = new HttpPost(API_URL);
-            request.setHeader("Authorization", TOKEN);
-            request.setEntity(new ByteArrayEntity(data));
-
-            HttpResponse response = client.execute(request);
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            return processResponse(jsonResponse);
+    private static final TypeReference<List<Map<String, Object>>> TIPO_LISTA = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> TIPO_MAPA = new TypeReference<>() {};
+
+    private final String apiUrl;
+    private final String token;
+    private final int maxReintentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+    private final long esperaBulkheadMs;
+
+    private final ObjectMapper mapper;
+    private final CloseableHttpClient client;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    private final MeterRegistry registry;
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    public ImagenAPIPredictor(ObjectMapper mapper, MeterRegistry registry,
+            @Value("${prediccion.api.url:https://api-inference.huggingface.co/models/${prediccion.modelo:MUmairAB/Breast_Cancer_Detector}}") String apiUrl,
+            // @TODO: replace USE_TOKEN_HERE with your token
+            @Value("${prediccion.api.token:Bearer USE_TOKEN_HERE}") String token,
+            @Value("${prediccion.api.timeout-conexion-ms:2000}") int timeoutConexionMs,
+            @Value("${prediccion.api.timeout-lectura-ms:30000}") int timeoutLecturaMs,
+            @Value("${prediccion.api.conexiones:20}") int conexiones,
+            @Value("${prediccion.api.reintentos:3}") int maxReintentos,
+            @Value("${prediccion.api.espera-base-ms:500}") long esperaBaseMs,
+            @Value("${prediccion.api.espera-maxima-ms:10000}") long esperaMaximaMs,
+            @Value("${prediccion.api.llamadas-concurrentes:10}") int llamadasConcurrentes,
+            @Value("${prediccion.api.espera-bulkhead-ms:1000}") long esperaBulkheadMs,
+            @Value("${prediccion.api.circuit-breaker.umbral-fallos:5}") int umbralFallos,
+            @Value("${prediccion.api.circuit-breaker.tiempo-abierto-ms:30000}") long tiempoAbiertoMs) {
+        this.mapper = mapper;
+        this.registry = registry;
+        this.apiUrl = apiUrl;
+        this.token = token;
+        this.maxReintentos = maxReintentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.esperaBulkheadMs = esperaBulkheadMs;
+        this.bulkhead = new Semaphore(llamadasConcurrentes);
+        this.circuitBreaker = new CircuitBreaker(umbralFallos, tiempoAbiertoMs);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(conexiones);
+        connectionManager.setDefaultMaxPerRoute(conexiones);
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(timeoutConexionMs)
+            .setConnectionRequestTimeout(timeoutConexionMs)
+            .setSocketTimeout(timeoutLecturaMs)
+            .build();
+        this.client = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .disableAutomaticRetries()
+            .evictIdleConnections(30, TimeUnit.SECONDS)
+            .build();
+
+        Gauge.builder("springuma.predictor.en.curso", enCurso, AtomicInteger::get)
+            .description("Llamadas al predictor en curso")
+            .register(registry);
+        Gauge.builder("springuma.predictor.circuit.breaker.abierto", circuitBreaker,
+                cb -> cb.getEstado() == CircuitBreaker.Estado.CERRADO ? 0 : 1)
+            .description("1 si el circuit breaker del predictor esta abierto o semiabierto")
+            .register(registry);
+    }
+
+    // Latencia por resultado (ok, error, rechazada), errores por tipo y llamadas en curso
+    public Map<String, Double> query(byte[] file_data) throws IOException, Exception {
+        Timer.Sample muestra = Timer.start(registry);
+        String resultado = "ok";
+        enCurso.incrementAndGet();
+        try {
+            if (!bulkhead.tryAcquire(esperaBulkheadMs, TimeUnit.MILLISECONDS)) {
+                throw new PredictorNoDisponibleException("Demasiadas llamadas simultaneas al predictor");
+            }
+            try {
+                if (!circuitBreaker.permitir()) {
+                    throw new PredictorNoDisponibleException("Predictor no disponible (circuit breaker abierto)");
+                }
+                try {
+                    return queryConReintentos(file_data);
+                } catch (InterruptedException | RuntimeException e) {
+                    // Sin respuesta del modelo: se registra como fallo para no dejar la llamada de prueba sin resultado
+                    circuitBreaker.registrarFallo();
+                    throw e;
+                }
+            } finally {
+                bulkhead.release();
+            }
+        } catch (Exception e) {
+            resultado = e instanceof PredictorNoDisponibleException ? "rechazada" : "error";
+            Counter.builder("springuma.predictor.errores")
+                .tag("excepcion", e.getCause() != null ? e.getCause().getClass().getSimpleName() : e.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+            throw e;
+        } finally {
+            enCurso.decrementAndGet();
+            muestra.stop(Timer.builder("springuma.predictor.llamadas")
+                .description("Llamadas al predictor externo")
+                .tag("resultado", resultado)
+                .register(registry));
         }
-        catch(Exception e){
-            throw new Exception(e.getMessage());
+    }
+
+    public CircuitBreaker.Estado getEstadoCircuitBreaker() {
+        return circuitBreaker.getEstado();
+    }
+
+    // Reintenta con espera exponencial con jitter cuando el modelo se esta cargando (503) o no se puede conectar.
+    // Un timeout de lectura no se reintenta: el modelo ya ha tardado demasiado.
+    private Map<String, Double> queryConReintentos(byte[] data) throws Exception {
+        for (int intento = 0; ; intento++) {
+            int status;
+            String jsonResponse;
+            try {
+                HttpPost request = new HttpPost(apiUrl);
+                request.setHeader("Authorization", token);
+                request.setEntity(new ByteArrayEntity(data));
+                try (CloseableHttpResponse response = client.execute(request)) {
+                    status = response.getStatusLine().getStatusCode();
+                    jsonResponse = EntityUtils.toString(response.getEntity());
+                }
+            } catch (IOException e) {
+                if (intento < maxReintentos && !(e instanceof SocketTimeoutException)) {
+                    esperar(intento);
+                    continue;
+                }
+                circuitBreaker.registrarFallo();
+                throw new PredictorSinRespuestaException(e.getMessage(), e);
+            }
+
+            if (status == 503 && intento < maxReintentos) {
+                esperar(intento);
+                continue;
+            }
+            if (status >= 500) {
+                circuitBreaker.registrarFallo();
+                throw new PredictorSinRespuestaException("Error from API (HTTP " + status + "): " + jsonResponse);
+            }
+            circuitBreaker.registrarExito();
+            return processResponse(jsonResponse);
         }
     }
 
-    private static Map<String, Double> processResponse(String jsonResponse) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+    private void esperar(int intento) throws InterruptedException {
+        long tope = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento, 20));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+    }
+
+    private Map<String, Double> processResponse(String jsonResponse) throws Exception {
         if (jsonResponse.trim().startsWith("[")) {
-            List<Map<String, Object>> responseList = mapper.readValue(jsonResponse, new TypeReference<List<Map<String, Object>>>() {});
+            List<Map<String, Object>> responseList = mapper.readValue(jsonResponse, TIPO_LISTA);
             Map<String, Double> resultMap = new HashMap<>();
             for (Map<String, Object> entry : responseList) {
-                resultMap.put((String) entry.get("label"), (Double) entry.get("score"));
+                resultMap.put((String) entry.get("label"), ((Number) entry.get("score")).doubleValue());
 
             }
             return resultMap;
         } else {
-            Map<String, Object> responseMap = mapper.readValue(jsonResponse, new TypeReference<Map<String, Object>>() {});
+            Map<String, Object> responseMap = mapper.readValue(jsonResponse, TIPO_MAPA);
             if (responseMap.containsKey("error")) {
                 throw new Exception("Error from API: " + responseMap.get("error"));
             } else {
@@ -62,4 +208,9 @@ public class ImagenAPIPredictor {
             }
         }
     }
+
+    @Override
+    public void destroy() throws IOException {
+        client.close();
+    }
 }
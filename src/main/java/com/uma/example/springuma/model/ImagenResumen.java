@@ -0,0 +1,12 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+// Proyeccion de Imagen para los listados: solo metadatos, sin el contenido ni el grafo Paciente -> Medico
+public record ImagenResumen(long id, String nombre, Calendar fecha, Long tamano, Referencia paciente) {
+
+    // Constructor usado por las consultas JPQL "select new"
+    public ImagenResumen(long id, String nombre, Calendar fecha, Long tamano, long pacienteId, String pacienteNombre) {
+        this(id, nombre, fecha, tamano, new Referencia(pacienteId, pacienteNombre));
+    }
+}
@@ -1,48 +1,104 @@
 package com.uma.example.springuma.model;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.uma.example.springuma.store.ImageCodecs;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.CursorPagina;
 import com.uma.example.springuma.utils.ImageUtils;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
+
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 
 @Service
+@Timed("springuma.servicio")
 public class ImagenService {
 
+    private static final Logger log = LoggerFactory.getLogger(ImagenService.class);
+
+    // Ordenes de los listados paginados de imagenes
+    public static final String ORDEN_FECHA = "fecha";
+    public static final String ORDEN_ID = "id";
+
+    // Tipo de las imagenes subidas que no son de un formato reconocido, y de las anteriores a la columna tipo
+    // cuyo contenido sigue en la fila (todas se servian como PNG)
+    static final String TIPO_DESCONOCIDO = "application/octet-stream";
+    static final String TIPO_ANTIGUAS = "image/png";
+
     @Autowired
     private RepositoryImagen repositoryImagen;
 
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecs imageCodecs;
+
+    @Autowired
+    private PrediccionService prediccionService;
+
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private VariantesImagen variantesImagen;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     public List<Imagen> getAllImagenes() {
         return repositoryImagen.findAll();
     }
 
+    // Pagina de todas las imagenes (solo metadatos) ordenadas por id, a partir del cursor de la pagina anterior
+    public Pagina<ImagenResumen> getPaginaImagenes(String cursor, Integer tamanoPedido) {
+        int tamano = paginacion.tamano(tamanoPedido);
+        long ultimo = cursor == null ? Long.MIN_VALUE : CursorPagina.decodificarId(cursor, ORDEN_ID);
+        List<ImagenResumen> filas = repositoryImagen.findResumenPagina(ultimo, paginacion.consulta(tamano));
+        return Pagina.de(filas, tamano, i -> CursorPagina.codificar(ORDEN_ID, i.id()));
+    }
+
+    // Con el paciente y su medico, que se devuelven con la imagen; null si no existe
     public Imagen getImagen(Long id) {
-        return repositoryImagen.getReferenceById(id);
+        return repositoryImagen.findConPacienteById(id).orElse(null);
     }
 
     public String getNewPrediccion(Long id) throws IOException, Exception{
-        /* API Deprecated
-        Map<String, Double> response = 
-        ImagenAPIPredictor.query(ImageUtils.decompressImage(repositoryImagen.getReferenceById(id).getFile_content()));
-        System.out.println("resp");
-        System.out.println( response);
+        Map<String, Double> response = prediccionService.getPuntuaciones(id);
         double score_0 = response.get("LABEL_0");
         double score_1 = response.get("LABEL_1");
-        System.out.println("resp");
-        System.out.println( response);*/
-        double score_0 = Math.random();
-        double score_1 = Math.random();
         String resulString;
         if (score_0 > score_1){
             resulString = "{'status': 'Not cancer',  'score': " + score_0+"}";
         }else{
             resulString = "{'status': 'Cancer',  'score': " + score_1+"}";
         }
+        if (prediccionService.isSimulada()) {
+            // Puntuaciones aleatorias, no del modelo
+            resulString = resulString.substring(0, resulString.length() - 1) + ", 'simulada': true}";
+        }
         return resulString;
     }
 
@@ -56,33 +112,270 @@ public class ImagenService {
 
     public void removeImagen(Imagen imagen) {
         repositoryImagen.delete(imagen);
+        liberarContenido(imagen);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Imagen.class, imagen.getId()));
     }
 
     public void removeImagenByID(Long id) {
+        Imagen imagen = repositoryImagen.findById(id).orElse(null);
         repositoryImagen.deleteById(id);
+        liberarContenido(imagen);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Imagen.class, id));
+    }
+
+    // El contenido puede estar compartido con otras imagenes (deduplicacion), solo se borra si ya nadie lo usa: ni
+    // una fila guardada ni una subida en curso con el mismo contenido, que lo tiene reservado (ImageStore.deleteSinUso).
+    // Las variantes dependen solo del hash y se borran cuando no queda ninguna imagen con ese contenido.
+    void liberarContenido(Imagen imagen) {
+        if (imagen == null || imagen.getHash() == null) {
+            return;
+        }
+        liberarContenido(new ClaveContenido(imagen.getHash(), imagen.getCodec()));
+    }
+
+    private void liberarContenido(ClaveContenido contenido) {
+        try {
+            if (imageStore.deleteSinUso(contenido.clave(),
+                    () -> repositoryImagen.countByHashAndCodec(contenido.hash(), contenido.codec()) == 0)
+                    && repositoryImagen.countByHash(contenido.hash()) == 0) {
+                variantesImagen.borrar(contenido.hash());
+            }
+        } catch (IOException e) {
+            log.warn("No se ha podido borrar el contenido {} del ImageStore", contenido.clave(), e);
+        }
+    }
+
+    // Las imagenes de un paciente (o de los pacientes de un medico) las borra en cascada la base de datos (@OnDelete),
+    // asi que sus contenidos se recogen antes de borrarlo y se liberan despues, como en removeImagenByID
+    public List<ClaveContenido> getContenidosPaciente(Long id) {
+        return repositoryImagen.findClavesContenidoByPacienteId(id);
+    }
+
+    public List<ClaveContenido> getContenidosMedico(Long id) {
+        return repositoryImagen.findClavesContenidoByMedicoId(id);
+    }
+
+    public void liberarContenidos(List<ClaveContenido> contenidos) {
+        contenidos.forEach(this::liberarContenido);
+    }
+
+    // Quita la reserva del contenido de una imagen de nuevaImagen cuando su fila ya esta guardada o se ha descartado
+    void liberarReserva(Imagen imagen) {
+        imageStore.liberar(imagen.getClaveContenido());
     }
 
     public List<Imagen> getImagenesPaciente(Long id) {
         return repositoryImagen.getByPacienteId(id);
     }
 
+    public List<ImagenResumen> getResumenImagenesPaciente(Long id) {
+        return repositoryImagen.findResumenByPacienteId(id);
+    }
+
+    // Pagina de las imagenes de un paciente ordenadas por (fecha, id) o por id. El cursor de fecha guarda
+    // la fecha en milisegundos y el id de la ultima imagen devuelta; la fecha va vacia si la imagen no tiene
+    public Pagina<ImagenResumen> getPaginaImagenesPaciente(Long id, String orden, String cursor, Integer tamanoPedido) {
+        int tamano = paginacion.tamano(tamanoPedido);
+        Pageable consulta = paginacion.consulta(tamano);
+        if (orden == null || ORDEN_FECHA.equals(orden)) {
+            List<ImagenResumen> filas;
+            if (cursor == null) {
+                filas = repositoryImagen.findResumenPaginaByPacienteId(id, consulta);
+            } else {
+                String[] clave = CursorPagina.decodificar(cursor, ORDEN_FECHA, 2);
+                long ultimo = CursorPagina.parseLong(clave[1], cursor);
+                if (clave[0].isEmpty()) {
+                    filas = repositoryImagen.findResumenPaginaByPacienteIdTrasSinFecha(id, ultimo, consulta);
+                } else {
+                    Calendar fecha = Calendar.getInstance();
+                    fecha.setTimeInMillis(CursorPagina.parseLong(clave[0], cursor));
+                    filas = repositoryImagen.findResumenPaginaByPacienteIdTras(id, fecha, ultimo, consulta);
+                }
+            }
+            return Pagina.de(filas, tamano, i -> CursorPagina.codificar(ORDEN_FECHA,
+                i.fecha() == null ? null : i.fecha().getTimeInMillis(), i.id()));
+        }
+        if (ORDEN_ID.equals(orden)) {
+            long ultimo = cursor == null ? Long.MIN_VALUE : CursorPagina.decodificarId(cursor, ORDEN_ID);
+            List<ImagenResumen> filas = repositoryImagen.findResumenPaginaByPacienteIdOrdenId(id, ultimo, consulta);
+            return Pagina.de(filas, tamano, i -> CursorPagina.codificar(ORDEN_ID, i.id()));
+        }
+        throw new IllegalArgumentException("Orden no valido: " + orden + " (fecha o id)");
+    }
+
+    public boolean existeImagen(long id) {
+        return repositoryImagen.existsById(id);
+    }
+
+    // El contenido va del InputStream del multipart al ImageStore en bloques, por lo que la memoria usada
+    // no depende del tamaño de la imagen. En la fila solo quedan el hash, el tamaño y el codec.
+    // El codec se elige segun el formato: los ya comprimidos (PNG, JPEG...) se guardan tal cual.
     public String uploadImage(MultipartFile file, Paciente paciente) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return uploadImage(file.getOriginalFilename(), in, paciente);
+        }
+    }
+
+    // Igual que la subida por multipart, con el contenido ya recibido (la API reactiva lo recibe antes en disco)
+    public String uploadImage(String nombre, InputStream in, Paciente paciente) throws IOException {
+        Imagen imagen = nuevaImagen(nombre, in, paciente);
+        try {
+            Imagen nueva = imagen;
+            imagen = transactionTemplate.execute(status -> {
+                Imagen guardada = repositoryImagen.saveAndFlush(nueva);
+                imagenGuardada(guardada);
+                return guardada;
+            });
+        } catch (RuntimeException e) {
+            liberarReserva(imagen);
+            liberarContenido(imagen);
+            throw e;
+        }
+        liberarReserva(imagen);
+        if (imagen != null) {
+            return "{\"response\" : \"file uploaded successfully : " + nombre + "\"}";
+        }
+        return null;
+    }
+
+    Imagen nuevaImagen(MultipartFile file, Paciente paciente) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return nuevaImagen(file.getOriginalFilename(), in, paciente);
+        }
+    }
+
+    // Guarda el contenido en el ImageStore y devuelve la fila de la imagen, todavia sin guardar. El contenido queda
+    // reservado: cuando la fila este guardada (o se descarte) hay que llamar a liberarReserva.
+    Imagen nuevaImagen(String nombre, InputStream contenidoSubido, Paciente paciente) throws IOException {
+        InputStream in = new BufferedInputStream(contenidoSubido);
+        String tipo = ImageCodecs.tipo(ImageCodecs.cabecera(in));
+        ImageStore.StoredImage contenido = imageStore.put(in, imageCodecs.elegir(in));
         Imagen imagen = new Imagen();
-        imagen.setNombre(file.getOriginalFilename());
-        imagen.setFile_content(ImageUtils.compressImage(file.getBytes()));
+        imagen.setNombre(nombre);
         imagen.setPaciente(paciente);
         imagen.setFecha(Calendar.getInstance());
-        imagen = repositoryImagen.saveAndFlush(imagen);
-        if (imagen != null) {
-            return "{\"response\" : \"file uploaded successfully : " + file.getOriginalFilename()+"\"}";
+        imagen.setHash(contenido.hash());
+        imagen.setTamano(contenido.size());
+        imagen.setCodec(contenido.codec());
+        imagen.setTipo(tipo != null ? tipo : TIPO_DESCONOCIDO);
+        return imagen;
+    }
+
+    // Se llama dentro de la transaccion que guarda la fila de una imagen de nuevaImagen: cuando termina bien se
+    // generan sus variantes reducidas en segundo plano (VariantesImagen)
+    void imagenGuardada(Imagen imagen) {
+        eventPublisher.publishEvent(new ImagenSubidaEvent(imagen.getHash(), imagen.getCodec()));
+    }
+
+    // Primera fase de GET /imagen/{id}: solo los metadatos de la fila, sin leer el contenido ni generar variantes.
+    // Con ellos se calcula el ETag (etag) y la fecha de la imagen para contestar 304 a una peticion condicional; si
+    // no, prepararDescarga resuelve lo que se sirve. Falla con IllegalArgumentException si el tamaño no es valido.
+    public ContenidoImagen buscarContenido(long id, String variante) {
+        variantesImagen.lado(variante);
+        return repositoryImagen.findContenidoById(id)
+            .orElseThrow(() -> new EntityNotFoundException("No existe la imagen " + id));
+    }
+
+    // El ETag es el hash del original o la clave de la variante, que incluye su lado, formato y calidad: el contenido
+    // de una imagen no cambia nunca. null para las imagenes que siguen en la columna file_content (sin hash)
+    public String etag(ContenidoImagen imagen, String variante) {
+        if (imagen.hash() == null) {
+            return null;
+        }
+        return variantesImagen.lado(variante) == 0 ? imagen.hash() : variantesImagen.clave(imagen.hash(), variante);
+    }
+
+    // Resuelve lo que hay que servir para la imagen en el tamaño pedido (VariantesImagen.MINIATURA, VISTA_PREVIA u
+    // ORIGINAL), generando la variante si aun no existe. Las variantes solo existen para los contenidos del
+    // ImageStore; si no se pueden generar se sirve el original, con el mismo ETag (no se podra generar nunca).
+    public DescargaImagen prepararDescarga(ContenidoImagen imagen, String variante) throws IOException {
+        long id = imagen.id();
+        boolean original = variantesImagen.lado(variante) == 0;
+        long fecha = imagen.ultimaModificacion();
+        String etag = etag(imagen, variante);
+        if (!original && imagen.hash() != null) {
+            String clave = variantesImagen.obtener(imagen.hash(), imagen.codec(), variante);
+            if (clave != null) {
+                return new DescargaImagen(id, clave, Imagen.CODEC_IDENTITY, variantesImagen.getTipo(),
+                    imageStore.localPath(clave), imageStore.size(clave), etag, fecha);
+            }
+        }
+        String clave = imagen.clave();
+        if (clave == null) {
+            long longitud = imagen.tamano() != null ? imagen.tamano() : -1;
+            return new DescargaImagen(id, null, imagen.codec(), TIPO_ANTIGUAS, null, longitud, null, fecha);
+        }
+        boolean sinCodificar = Imagen.CODEC_IDENTITY.equals(imagen.codec());
+        return new DescargaImagen(id, clave, imagen.codec(), tipoContenido(imagen),
+            sinCodificar ? imageStore.localPath(clave) : null, imagen.tamano() != null ? imagen.tamano() : -1,
+            etag, fecha);
+    }
+
+    // Escribe en la respuesta los bytes [inicio, inicio + longitud) de un contenido del ImageStore resuelto con
+    // prepararDescarga. Los que estan sin codificar se copian con FileChannel.transferTo desde la posicion pedida;
+    // el resto se decodifica por bloques descartando lo anterior al inicio.
+    // Los que siguen en la columna file_content se escriben con downloadImage, dentro de una transaccion.
+    public void escribir(DescargaImagen descarga, long inicio, long longitud, OutputStream out) throws IOException {
+        if (Imagen.CODEC_IDENTITY.equals(descarga.codec())) {
+            imageStore.transferTo(descarga.clave(), inicio, longitud, Channels.newChannel(out));
+            return;
+        }
+        try (InputStream images = imageCodecs.get(descarga.codec()).decode(imageStore.open(descarga.clave()))) {
+            images.skipNBytes(inicio);
+            byte[] buffer = new byte[8192];
+            long pendientes = longitud;
+            int leidos;
+            while (pendientes > 0 && (leidos = images.read(buffer, 0, (int) Math.min(buffer.length, pendientes))) != -1) {
+                out.write(buffer, 0, leidos);
+                pendientes -= leidos;
+            }
+        }
+    }
+
+    // Las imagenes anteriores a la columna tipo (hasta que ImagenStoreMigracion se lo pone) se reconocen por la
+    // cabecera del contenido
+    private String tipoContenido(ContenidoImagen imagen) {
+        if (imagen.tipo() != null) {
+            return imagen.tipo();
+        }
+        try {
+            return leerTipo(imagen);
+        } catch (IOException e) {
+            return TIPO_DESCONOCIDO;
         }
-        return null;
     }
 
-    public byte[] downloadImage(long id) {
-        Imagen dbImageData = repositoryImagen.getReferenceById(id);
-        byte[] images = ImageUtils.decompressImage(dbImageData.getFile_content());
-        return images;
+    // Tipo MIME por la cabecera del contenido en el ImageStore
+    public String leerTipo(ContenidoImagen imagen) throws IOException {
+        try (InputStream contenido = imageCodecs.get(imagen.codec()).decode(imageStore.open(imagen.clave()))) {
+            String tipo = ImageCodecs.tipo(contenido.readNBytes(ImageCodecs.CABECERA));
+            return tipo != null ? tipo : TIPO_DESCONOCIDO;
+        }
+    }
+
+    // Escribe la imagen en el OutputStream de la respuesta. Si esta en el ImageStore sin codificar se copia con
+    // FileChannel.transferTo; si no, se decodifica por bloques desde el ImageStore o desde el Blob de la fila.
+    // Tiene que ejecutarse dentro de una transaccion para que el Blob siga siendo legible.
+    @Transactional(readOnly = true)
+    public void downloadImage(long id, OutputStream out) throws IOException {
+        Imagen dbImageData = repositoryImagen.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("No existe la imagen " + id));
+        if (dbImageData.getHash() != null) {
+            if (Imagen.CODEC_IDENTITY.equals(dbImageData.getCodec())) {
+                imageStore.transferTo(dbImageData.getClaveContenido(), 0, dbImageData.getTamano(), Channels.newChannel(out));
+            } else {
+                try (InputStream images = imageCodecs.get(dbImageData.getCodec())
+                        .decode(imageStore.open(dbImageData.getClaveContenido()))) {
+                    images.transferTo(out);
+                }
+            }
+            return;
+        }
+        try (InputStream images = ImageUtils.decompressingStream(dbImageData.getFile_content().getBinaryStream())) {
+            images.transferTo(out);
+        } catch (SQLException e) {
+            throw new IOException("Error al leer la imagen " + id, e);
+        }
     }
 
 }
\ No newline at end of file
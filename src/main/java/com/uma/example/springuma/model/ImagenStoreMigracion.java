@@ -0,0 +1,178 @@
+package com.uma.example.springuma.model;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.uma.example.springuma.store.ImageCodecs;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// Migraciones de los datos de la tabla imagen, que no se hacen en las migraciones del esquema (Flyway) porque
+// reescriben fila a fila una tabla que puede ser muy grande. Se ejecutan en segundo plano cuando la aplicacion ya
+// esta arrancada, por lotes, cada uno en su propia transaccion; si se para la aplicacion se sigue en el siguiente
+// arranque por donde se quedo. Mientras tanto las imagenes se sirven igual que antes de migrarlas:
+//  - mueve al ImageStore el contenido de las imagenes que aun lo tienen en la columna file_content
+//  - completa el tipo de las imagenes anteriores a la columna tipo con el que se reconoce por la cabecera, que
+//    hasta entonces se lee en cada descarga
+@Component
+public class ImagenStoreMigracion implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenStoreMigracion.class);
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecs imageCodecs;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${imagen.store.migracion.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${imagen.store.migracion.lote:50}")
+    private int lote;
+
+    private ThreadPoolTaskExecutor ejecutor;
+
+    // Al parar la aplicacion se termina el lote en curso y no se empieza otro
+    private volatile boolean parada;
+
+    @Override
+    public void afterPropertiesSet() {
+        ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(1);
+        ejecutor.setMaxPoolSize(1);
+        ejecutor.setThreadNamePrefix("imagen-migracion-");
+        ejecutor.setWaitForTasksToCompleteOnShutdown(true);
+        ejecutor.setAwaitTerminationSeconds(30);
+        ejecutor.initialize();
+    }
+
+    @Override
+    public void destroy() {
+        parada = true;
+        ejecutor.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (habilitada) {
+            ejecutor.execute(() -> {
+                try {
+                    int migradas = migrar(lote);
+                    int completadas = completarTipos(lote);
+                    if (migradas + completadas > 0) {
+                        log.info("Imagenes movidas al ImageStore: {}, con el tipo completado: {}", migradas, completadas);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Error en la migracion de las imagenes, se sigue en el siguiente arranque", e);
+                }
+            });
+        }
+    }
+
+    // Devuelve el numero de imagenes migradas
+    public int migrar(int tamanoLote) {
+        int migradas = 0;
+        List<Long> ids;
+        do {
+            ids = repositoryImagen.findIdsPendientesDeMigrar(PageRequest.of(0, tamanoLote));
+            final List<Long> idsLote = ids;
+            // Los contenidos guardados quedan reservados hasta que las filas que los usan estan guardadas
+            List<String> claves = new ArrayList<>(idsLote.size());
+            try {
+                migradas += transactionTemplate.execute(status -> {
+                    int n = 0;
+                    for (Long id : idsLote) {
+                        claves.add(migrarImagen(repositoryImagen.getReferenceById(id)));
+                        n++;
+                    }
+                    return n;
+                });
+            } finally {
+                claves.forEach(imageStore::liberar);
+            }
+        } while (ids.size() == tamanoLote && !parada);
+        return migradas;
+    }
+
+    // Devuelve el numero de imagenes a las que se ha puesto el tipo. La cabecera se lee fuera de la transaccion;
+    // las que no se pueden leer se saltan y se vuelven a intentar en el siguiente arranque
+    public int completarTipos(int tamanoLote) {
+        int completadas = 0;
+        long ultimo = 0;
+        List<ContenidoImagen> imagenes;
+        do {
+            imagenes = repositoryImagen.findContenidoSinTipo(ultimo, PageRequest.of(0, tamanoLote));
+            List<String> tipos = new ArrayList<>(imagenes.size());
+            for (ContenidoImagen imagen : imagenes) {
+                try {
+                    tipos.add(imagenService.leerTipo(imagen));
+                } catch (IOException e) {
+                    log.warn("No se ha podido leer la imagen {} del ImageStore", imagen.id(), e);
+                    tipos.add(null);
+                }
+                ultimo = imagen.id();
+            }
+            final List<ContenidoImagen> imagenesLote = imagenes;
+            completadas += transactionTemplate.execute(status -> {
+                int n = 0;
+                for (int i = 0; i < imagenesLote.size(); i++) {
+                    if (tipos.get(i) != null) {
+                        n += repositoryImagen.completarTipo(imagenesLote.get(i).id(), tipos.get(i));
+                    }
+                }
+                return n;
+            });
+        } while (imagenes.size() == tamanoLote && !parada);
+        return completadas;
+    }
+
+    // Devuelve la clave del contenido en el ImageStore
+    private String migrarImagen(Imagen imagen) {
+        // El hash se calcula sobre la imagen original, para que coincida con el de una subida nueva
+        try (InputStream original = new BufferedInputStream(
+                ImageUtils.decompressingStream(imagen.getFile_content().getBinaryStream()))) {
+            String tipo = ImageCodecs.tipo(ImageCodecs.cabecera(original));
+            ImageStore.StoredImage contenido = imageStore.put(original, imageCodecs.elegir(original));
+            imagen.setHash(contenido.hash());
+            imagen.setTamano(contenido.size());
+            imagen.setCodec(contenido.codec());
+            if (imagen.getTipo() == null) {
+                imagen.setTipo(tipo != null ? tipo : ImagenService.TIPO_DESCONOCIDO);
+            }
+            imagen.setFile_content(null);
+            return imagen.getClaveContenido();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al migrar la imagen " + imagen.getId(), e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error al leer la imagen " + imagen.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.uma.example.springuma.model;
+
+// Se publica dentro de la transaccion que guarda la fila de una imagen subida, para generar sus variantes reducidas
+// cuando esa transaccion termina bien
+public record ImagenSubidaEvent(String hash, String codec) {
+}
@@ -0,0 +1,376 @@
+package com.uma.example.springuma.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.utils.Csv;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Alta masiva de medicos, pacientes e imagenes. La entrada se lee en streaming (NDJSON: un objeto JSON por linea,
+// o CSV con cabecera) y se guarda por lotes de importacion.lote registros, cada lote en su propia transaccion y con
+// las inserciones agrupadas en lotes JDBC (hibernate.jdbc.batch_size). Un registro erroneo no aborta la importacion:
+// se anota su numero de linea y el motivo y se sigue con el resto.
+@Service
+@Timed("springuma.servicio")
+public class ImportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionService.class);
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private BusquedaService busquedaService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int tamanoLote;
+    private final int maxErrores;
+
+    public ImportacionService(@Value("${importacion.lote:1000}") int tamanoLote,
+            @Value("${importacion.max-errores:1000}") int maxErrores) {
+        this.tamanoLote = tamanoLote;
+        this.maxErrores = maxErrores;
+    }
+
+    // CSV: dni,nombre,especialidad
+    public ResultadoImportacion importarMedicos(InputStream cuerpo, String tipo) throws IOException {
+        return importar(cuerpo, tipo, Medico.class,
+            campos -> new Medico(campos.get("dni"), campos.get("nombre"), campos.get("especialidad")),
+            this::prepararMedicos);
+    }
+
+    // CSV: nombre,edad,cita,dni y el medico por medico_dni o por medico_id. En NDJSON el medico puede venir
+    // tambien por dni ({"medico": {"dni": "..."}}), que es lo habitual al dar de alta un hospital nuevo
+    public ResultadoImportacion importarPacientes(InputStream cuerpo, String tipo) throws IOException {
+        Map<String, Optional<Long>> medicos = new HashMap<>();
+        return importar(cuerpo, tipo, Paciente.class, this::pacienteDeCsv,
+            (lote, errores) -> prepararPacientes(lote, errores, medicos));
+    }
+
+    // El contenido de cada fichero va al ImageStore segun se lee; las filas se insertan por lotes. El contenido de
+    // las que no se pueden guardar se borra cuando ya no esta reservado por ninguna fila del lote
+    public ResultadoImportacion importarImagenes(List<MultipartFile> ficheros, long pacienteId) {
+        Resultado resultado = new Resultado(maxErrores);
+        List<Imagen> descartadas = new ArrayList<>();
+        Preparador<Imagen> preparar = new Preparador<>() {
+            @Override
+            public List<Imagen> preparar(List<Fila<Imagen>> lote, List<ResultadoImportacion.Error> errores) {
+                Paciente paciente = entityManager.getReference(Paciente.class, pacienteId);
+                List<Imagen> imagenes = new ArrayList<>(lote.size());
+                for (Fila<Imagen> fila : lote) {
+                    fila.valor().setId(0);
+                    fila.valor().setPaciente(paciente);
+                    imagenes.add(fila.valor());
+                    imagenService.imagenGuardada(fila.valor());
+                }
+                return imagenes;
+            }
+
+            @Override
+            public void descartar(Imagen imagen) {
+                descartadas.add(imagen);
+            }
+        };
+        List<Fila<Imagen>> lote = new ArrayList<>(Math.min(tamanoLote, ficheros.size()));
+        for (int i = 0; i < ficheros.size(); i++) {
+            resultado.leidos++;
+            try {
+                lote.add(new Fila<>(i + 1, imagenService.nuevaImagen(ficheros.get(i), null)));
+            } catch (IOException e) {
+                resultado.error(i + 1, "No se ha podido guardar el fichero: " + e.getMessage());
+                continue;
+            }
+            if (lote.size() == tamanoLote) {
+                guardarLoteImagenes(lote, preparar, resultado, descartadas);
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardarLoteImagenes(lote, preparar, resultado, descartadas);
+        }
+        return resultado.terminar("imagenes");
+    }
+
+    private void guardarLoteImagenes(List<Fila<Imagen>> lote, Preparador<Imagen> preparar, Resultado resultado,
+            List<Imagen> descartadas) {
+        try {
+            guardarLote(lote, preparar, resultado);
+        } finally {
+            lote.forEach(fila -> imagenService.liberarReserva(fila.valor()));
+            descartadas.forEach(imagenService::liberarContenido);
+            descartadas.clear();
+            lote.clear();
+        }
+    }
+
+    private <T> ResultadoImportacion importar(InputStream cuerpo, String tipo, Class<T> clase,
+            Function<Map<String, String>, T> desdeCsv, Preparador<T> preparar) throws IOException {
+        Resultado resultado = new Resultado(maxErrores);
+        BufferedReader lector = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8));
+        long numero = 0;
+        Conversor<T> conversor;
+        if (esCsv(tipo)) {
+            String cabecera = lector.readLine();
+            numero++;
+            if (cabecera == null) {
+                return resultado.terminar(clase.getSimpleName());
+            }
+            List<String> columnas = Csv.campos(cabecera).stream().map(c -> c.toLowerCase(Locale.ROOT)).toList();
+            conversor = linea -> desdeCsv.apply(Csv.registro(columnas, linea));
+        } else {
+            conversor = linea -> objectMapper.readValue(linea, clase);
+        }
+
+        List<Fila<T>> lote = new ArrayList<>(tamanoLote);
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numero++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            resultado.leidos++;
+            try {
+                lote.add(new Fila<>(numero, conversor.convertir(linea)));
+            } catch (Exception e) {
+                resultado.error(numero, "Registro no valido: " + motivo(e));
+                continue;
+            }
+            if (lote.size() == tamanoLote) {
+                guardarLote(lote, preparar, resultado);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardarLote(lote, preparar, resultado);
+        }
+        // Las filas importadas no publican CambioBusquedaEvent: las indexa la reindexacion desde su marca
+        busquedaService.ponerAlDia();
+        return resultado.terminar(clase.getSimpleName());
+    }
+
+    // Si falla la insercion se deshace el lote entero; entonces se repite registro a registro para guardar
+    // los buenos y quedarse con el error de los que fallan (dni duplicado por una alta concurrente, medico
+    // borrado mientras tanto...)
+    private <T> void guardarLote(List<Fila<T>> lote, Preparador<T> preparar, Resultado resultado) {
+        List<ResultadoImportacion.Error> errores = new ArrayList<>();
+        try {
+            resultado.importados += transactionTemplate.execute(status -> persistir(preparar.preparar(lote, errores)));
+            errores.forEach(resultado::error);
+            return;
+        } catch (RuntimeException e) {
+            log.debug("Error al guardar un lote de {} registros, se repite registro a registro", lote.size(), e);
+        }
+        for (Fila<T> fila : lote) {
+            List<ResultadoImportacion.Error> erroresFila = new ArrayList<>();
+            try {
+                resultado.importados += transactionTemplate.execute(status -> persistir(preparar.preparar(List.of(fila), erroresFila)));
+                erroresFila.forEach(resultado::error);
+            } catch (RuntimeException e) {
+                preparar.descartar(fila.valor());
+                resultado.error(fila.numero(), "No se ha podido guardar: " + motivo(e));
+            }
+        }
+    }
+
+    // Las entidades importadas no se meten en la cache de segundo nivel: la llenarian de filas que nadie ha pedido.
+    // El flush envia los INSERT en lotes JDBC y el clear deja vacio el contexto de persistencia para el siguiente lote
+    private int persistir(List<?> entidades) {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        entidades.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        return entidades.size();
+    }
+
+    private List<Medico> prepararMedicos(List<Fila<Medico>> lote, List<ResultadoImportacion.Error> errores) {
+        Set<String> existentes = repositoryMedico.findDnisExistentes(dnis(lote, Medico::getDni));
+        Set<String> vistos = new HashSet<>();
+        List<Medico> medicos = new ArrayList<>(lote.size());
+        for (Fila<Medico> fila : lote) {
+            Medico medico = fila.valor();
+            if (medico.getDni() == null || medico.getDni().isBlank()) {
+                errores.add(new ResultadoImportacion.Error(fila.numero(), "Falta el dni"));
+            } else if (existentes.contains(medico.getDni()) || !vistos.add(medico.getDni())) {
+                errores.add(new ResultadoImportacion.Error(fila.numero(), "Ya existe un medico con el dni " + medico.getDni()));
+            } else {
+                medicos.add(new Medico(medico.getDni(), medico.getNombre(), medico.getEspecialidad()));
+            }
+        }
+        return medicos;
+    }
+
+    private List<Paciente> prepararPacientes(List<Fila<Paciente>> lote, List<ResultadoImportacion.Error> errores,
+            Map<String, Optional<Long>> medicos) {
+        Set<String> existentes = repositoryPaciente.findDnisExistentes(dnis(lote, Paciente::getDni));
+        Set<String> vistos = new HashSet<>();
+        List<Paciente> pacientes = new ArrayList<>(lote.size());
+        for (Fila<Paciente> fila : lote) {
+            Paciente paciente = fila.valor();
+            if (paciente.getDni() == null || paciente.getDni().isBlank()) {
+                errores.add(new ResultadoImportacion.Error(fila.numero(), "Falta el dni"));
+                continue;
+            }
+            if (existentes.contains(paciente.getDni()) || !vistos.add(paciente.getDni())) {
+                errores.add(new ResultadoImportacion.Error(fila.numero(), "Ya existe un paciente con el dni " + paciente.getDni()));
+                continue;
+            }
+            Optional<Long> medicoId = idMedico(paciente.getMedico(), medicos);
+            if (medicoId.isEmpty()) {
+                errores.add(new ResultadoImportacion.Error(fila.numero(), "No existe el medico del paciente"));
+                continue;
+            }
+            pacientes.add(new Paciente(paciente.getNombre(), paciente.getEdad(), paciente.getCita(), paciente.getDni(),
+                entityManager.getReference(Medico.class, medicoId.get())));
+        }
+        return pacientes;
+    }
+
+    // Id del medico indicado por dni o por id. Se recuerda durante toda la importacion: los pacientes de un
+    // mismo medico suelen venir seguidos y asi no se consulta una vez por paciente
+    private Optional<Long> idMedico(Medico medico, Map<String, Optional<Long>> medicos) {
+        if (medico == null) {
+            return Optional.empty();
+        }
+        if (medico.getDni() != null) {
+            return medicos.computeIfAbsent("dni:" + medico.getDni(),
+                k -> Optional.ofNullable(repositoryMedico.getMedicoByDni(medico.getDni())).map(Medico::getId));
+        }
+        long id = medico.getId();
+        return medicos.computeIfAbsent("id:" + id,
+            k -> repositoryMedico.existsById(id) ? Optional.of(id) : Optional.empty());
+    }
+
+    private Paciente pacienteDeCsv(Map<String, String> campos) {
+        Medico medico = null;
+        if (campos.get("medico_dni") != null) {
+            medico = new Medico(campos.get("medico_dni"), null, null);
+        } else if (campos.get("medico_id") != null) {
+            medico = new Medico();
+            medico.setId(Long.parseLong(campos.get("medico_id")));
+        }
+        String edad = campos.get("edad");
+        return new Paciente(campos.get("nombre"), edad == null ? 0 : Integer.parseInt(edad), campos.get("cita"),
+            campos.get("dni"), medico);
+    }
+
+    private static <T> Set<String> dnis(List<Fila<T>> lote, Function<T, String> dni) {
+        Set<String> dnis = new HashSet<>();
+        for (Fila<T> fila : lote) {
+            if (dni.apply(fila.valor()) != null) {
+                dnis.add(dni.apply(fila.valor()));
+            }
+        }
+        // "in ()" no es valido en SQL
+        if (dnis.isEmpty()) {
+            dnis.add("");
+        }
+        return dnis;
+    }
+
+    private static boolean esCsv(String tipo) {
+        return tipo != null && tipo.toLowerCase(Locale.ROOT).startsWith(CSV);
+    }
+
+    private static String motivo(Exception e) {
+        if (e instanceof JsonProcessingException json) {
+            return json.getOriginalMessage();
+        }
+        Throwable causa = e;
+        while (causa.getCause() != null) {
+            causa = causa.getCause();
+        }
+        return causa.getMessage();
+    }
+
+    private record Fila<T>(long numero, T valor) {
+    }
+
+    private interface Conversor<T> {
+        T convertir(String linea) throws Exception;
+    }
+
+    // Valida un lote y devuelve las entidades a insertar, anotando en "errores" las que se descartan.
+    // Se ejecuta dentro de la transaccion del lote, y otra vez si hay que repetirlo registro a registro: por eso
+    // se insertan copias y los registros leidos no quedan enlazados a la sesion de un intento anterior
+    private interface Preparador<T> {
+        List<T> preparar(List<Fila<T>> lote, List<ResultadoImportacion.Error> errores);
+
+        // Se llama con los registros que no se han podido guardar
+        default void descartar(T valor) {
+        }
+    }
+
+    private static class Resultado {
+
+        private final int maxErrores;
+        private final List<ResultadoImportacion.Error> errores = new ArrayList<>();
+        private final long inicio = System.nanoTime();
+        private long leidos;
+        private long importados;
+        private long fallidos;
+
+        Resultado(int maxErrores) {
+            this.maxErrores = maxErrores;
+        }
+
+        void error(long registro, String mensaje) {
+            error(new ResultadoImportacion.Error(registro, mensaje));
+        }
+
+        void error(ResultadoImportacion.Error error) {
+            fallidos++;
+            if (errores.size() < maxErrores) {
+                errores.add(error);
+            }
+        }
+
+        ResultadoImportacion terminar(String que) {
+            log.info("Importacion de {}: {} leidos, {} importados, {} con error en {} ms", que, leidos, importados,
+                fallidos, (System.nanoTime() - inicio) / 1_000_000);
+            return new ResultadoImportacion(leidos, importados, fallidos, errores);
+        }
+    }
+}
@@ -7,28 +7,52 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
+import jakarta.persistence.SequenceGenerator;
 
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@NamedEntityGraph(name = Informe.GRAFO_IMAGEN, attributeNodes = @NamedAttributeNode(value = "imagen", subgraph = "imagen"),
+    subgraphs = {
+        @NamedSubgraph(name = "imagen", attributeNodes = @NamedAttributeNode(value = "paciente", subgraph = "paciente")),
+        @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("medico"))
+    })
 public class Informe {
 
+    // Secuencia de los ids (ver SecuenciasMigracion)
+    public static final String SECUENCIA = "informe_seq";
+
+    // Informe con toda la cadena imagen -> paciente -> medico, lo que se devuelve en GET /informe/{id}
+    public static final String GRAFO_IMAGEN = "Informe.imagen";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SECUENCIA)
+    @SequenceGenerator(name = SECUENCIA, sequenceName = SECUENCIA, allocationSize = SecuenciasMigracion.RESERVA_POR_DEFECTO)
     private long id;
 
     @Column(name = "prediccion")
     private String prediccion;
 
+    // La prediccion se calcula en segundo plano (PrediccionPipeline); mientras tanto el informe esta PENDIENTE
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado_prediccion", length = 16)
+    private EstadoPrediccion estadoPrediccion;
+
     @Column(name = "contenido", columnDefinition = "TEXT")
     private String contenido;
 
     // Relación con imagen (muchas imágenes pueden pertenecer a un informe)
-    @ManyToOne()
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "imagen_id")
     private Imagen imagen;
@@ -57,6 +81,14 @@ public class Informe {
         this.prediccion = prediccion;
     }
 
+    public EstadoPrediccion getEstadoPrediccion() {
+        return estadoPrediccion;
+    }
+
+    public void setEstadoPrediccion(EstadoPrediccion estadoPrediccion) {
+        this.estadoPrediccion = estadoPrediccion;
+    }
+
     public String getContenido() {
         return contenido;
     }
@@ -0,0 +1,9 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+// Proyeccion de Informe con lo que se indexa para la busqueda: el contenido, el nombre del paciente y los ids por
+// los que se filtra o se borra en cascada
+public record InformeIndexable(long id, String contenido, Long imagen, Calendar fecha, Long paciente,
+        String nombrePaciente, Long medico) {
+}
@@ -0,0 +1,5 @@
+package com.uma.example.springuma.model;
+
+// Se publica cuando un informe queda pendiente de prediccion
+public record InformePendienteEvent(long informeId) {
+}
@@ -0,0 +1,10 @@
+package com.uma.example.springuma.model;
+
+// Proyeccion de Informe para los listados: sin el contenido (CLOB) ni la imagen completa
+public record InformeResumen(long id, String prediccion, Referencia imagen) {
+
+    // Constructor usado por las consultas JPQL "select new"
+    public InformeResumen(long id, String prediccion, long imagenId, String imagenNombre) {
+        this(id, prediccion, new Referencia(imagenId, imagenNombre));
+    }
+}
@@ -4,38 +4,65 @@ import java.io.IOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import com.uma.example.springuma.utils.ImageUtils;
+import com.uma.example.springuma.utils.CursorPagina;
+
+import io.micrometer.core.annotation.Timed;
 
 import java.util.Map;
 
 
 @Service
+@Timed("springuma.servicio")
 public class InformeService {
 
     @Autowired
     private RepositoryInforme repositoryInforme;
 
     @Autowired
-    private RepositoryImagen repositoryImage;
+    private PrediccionService prediccionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Paginacion paginacion;
 
     public List<Informe> getAllInformes() {
         return repositoryInforme.findAll();
     }
 
+    // Pagina de todos los informes (sin contenido) ordenados por id, a partir del cursor de la pagina anterior
+    public Pagina<InformeResumen> getPaginaInformes(String cursor, Integer tamanoPedido) {
+        int tamano = paginacion.tamano(tamanoPedido);
+        long ultimo = cursor == null ? Long.MIN_VALUE : CursorPagina.decodificarId(cursor, "id");
+        List<InformeResumen> filas = repositoryInforme.findResumenPagina(ultimo, paginacion.consulta(tamano));
+        return Pagina.de(filas, tamano, inf -> CursorPagina.codificar("id", inf.id()));
+    }
+
     public Informe getInforme(Long id) {
-        return repositoryInforme.findById(id).orElse(null);
+        return repositoryInforme.findConImagenById(id).orElse(null);
     }
 
     
+    // El informe se guarda PENDIENTE y la prediccion se calcula en segundo plano (PrediccionPipeline),
+    // asi la peticion no espera al predictor
     public Informe addInforme(Informe informe) throws IOException, Exception {
-        String neew_pred = getNewPrediccion(informe);
-        //double neew_pred = Math.random();
-        System.out.println(neew_pred);
-        informe.setPrediccion(((neew_pred)));
+        informe.setPrediccion(null);
+        informe.setEstadoPrediccion(EstadoPrediccion.PENDIENTE);
 
-        return repositoryInforme.saveAndFlush(informe);
+        Informe guardado = repositoryInforme.saveAndFlush(informe);
+        eventPublisher.publishEvent(new InformePendienteEvent(guardado.getId()));
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Informe.class, guardado.getId()));
+        return guardado;
+    }
+
+    public EstadoInforme getEstadoInforme(Long id) {
+        return repositoryInforme.findById(id)
+            .map(informe -> new EstadoInforme(informe.getId(), informe.getEstadoPrediccion(), informe.getPrediccion()))
+            .orElse(null);
     }
     
 
@@ -45,44 +72,48 @@ public class InformeService {
         // Aquí se muestra un ejemplo básico:
         Informe existingInforme = repositoryInforme.findById(informe.getId()).orElse(null);
         if (existingInforme != null) {
-            existingInforme.setPrediccion(getNewPrediccion(existingInforme));
+            existingInforme.setEstadoPrediccion(EstadoPrediccion.PENDIENTE);
             existingInforme.setContenido(informe.getContenido());
             repositoryInforme.save(existingInforme);
+            eventPublisher.publishEvent(new InformePendienteEvent(existingInforme.getId()));
+            eventPublisher.publishEvent(new CambioBusquedaEvent(Informe.class, existingInforme.getId()));
         }
     }
     
 
     public void removeInforme(Informe informe) {
         repositoryInforme.delete(informe);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Informe.class, informe.getId()));
     }
 
     public void removeInformeByID(Long id) {
         repositoryInforme.deleteById(id);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Informe.class, id));
     }
 
     public List<Informe> getInformesImagen(Long id) {
         return repositoryInforme.findByImagenId(id);
     }
 
+    public List<InformeResumen> getResumenInformesImagen(Long id) {
+        return repositoryInforme.findResumenByImagenId(id);
+    }
+
     
     public String getNewPrediccion(Informe informe) throws IOException, Exception{
-        /*Map<String, Double> response =  ImagenAPIPredictor
-        .query(ImageUtils.decompressImage(repositoryImage.getReferenceById(informe.getImagen().getId())
-        .getFile_content()));
-        //informe.setPrediccion((String)response.get("0"));
-        System.out.println("resp");
-        System.out.println( response);
+        Map<String, Double> response = prediccionService.getPuntuaciones(informe.getImagen().getId());
         double score_0 = response.get("LABEL_0");
-        double score_1 = response.get("LABEL_1");*/
-
-        double score_0 = Math.random();
-        double score_1 = Math.random();
+        double score_1 = response.get("LABEL_1");
         String resulString;
         if (score_0 > score_1){
             resulString = "{\"status\": \"Not cancer\",  \"score\": " + score_0+"}";
         }else{
             resulString = "{\"status\": \"Cancer\",  \"score\": " + score_1+"}";
         }
+        if (prediccionService.isSimulada()) {
+            // Puntuaciones aleatorias, no del modelo
+            resulString = resulString.substring(0, resulString.length() - 1) + ", \"simulada\": true}";
+        }
         return resulString;
     }
     
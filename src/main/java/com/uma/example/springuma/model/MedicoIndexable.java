@@ -0,0 +1,5 @@
+package com.uma.example.springuma.model;
+
+// Proyeccion de Medico con lo que se indexa para la busqueda
+public record MedicoIndexable(long id, String nombre, String dni, String especialidad) {
+}
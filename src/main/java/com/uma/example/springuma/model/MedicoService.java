@@ -2,14 +2,29 @@ package com.uma.example.springuma.model;
 
 import java.util.List;
 
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+
 @Service
+@Timed("springuma.servicio")
 public class MedicoService {
     @Autowired
     RepositoryMedico repositoryMedico;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Medico> getAllMedicos(){
         return repositoryMedico.findAll();
     }
@@ -18,20 +33,43 @@ public class MedicoService {
         return repositoryMedico.getReferenceById(id);
     }
 
+    public boolean existeMedico(Long id){
+        return repositoryMedico.existsById(id);
+    }
+
     public Medico addMedico(Medico m){
-        return repositoryMedico.saveAndFlush(m);
+        Medico guardado = repositoryMedico.saveAndFlush(m);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Medico.class, guardado.getId()));
+        return guardado;
     }
 
     public void updateMedico(Medico m){
         repositoryMedico.save(m);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Medico.class, m.getId()));
     }
 
+    // Con sus pacientes se borran en cascada sus imagenes: el contenido que ya no use nadie se borra despues del almacen
     public void removeMedico(Medico m){
+        List<ClaveContenido> contenidos = imagenService.getContenidosMedico(m.getId());
         repositoryMedico.delete(m);
+        invalidarPacientes();
+        imagenService.liberarContenidos(contenidos);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Medico.class, m.getId()));
     }
 
     public void removeMedicoID(Long id){
+        List<ClaveContenido> contenidos = imagenService.getContenidosMedico(id);
         repositoryMedico.deleteById(id);
+        invalidarPacientes();
+        imagenService.liberarContenidos(contenidos);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Medico.class, id));
+    }
+
+    // La base de datos borra en cascada los pacientes del medico (@OnDelete) sin que Hibernate lo sepa, asi que
+    // hay que sacarlos a mano de la cache de segundo nivel junto con las consultas cacheadas
+    private void invalidarPacientes() {
+        entityManagerFactory.getCache().evict(Paciente.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
     }
 
     public Medico getMedicoByDni(String dni) {
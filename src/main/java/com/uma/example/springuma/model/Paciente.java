@@ -2,19 +2,32 @@ package com.uma.example.springuma.model;
 
 import java.io.Serializable;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.uma.example.springuma.cache.CacheEntidadesConfig;
 
 import jakarta.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheEntidadesConfig.REGION_PACIENTE)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // para ignorar el serializador al devolver un objeto cuenta
+@NamedEntityGraph(name = Paciente.GRAFO_MEDICO, attributeNodes = @NamedAttributeNode("medico"))
 public class Paciente implements Serializable{
 
+    // Secuencia de los ids (ver SecuenciasMigracion)
+    public static final String SECUENCIA = "paciente_seq";
+
+    // Paciente con su medico, para las consultas que devuelven el paciente completo
+    public static final String GRAFO_MEDICO = "Paciente.medico";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SECUENCIA)
+    @SequenceGenerator(name = SECUENCIA, sequenceName = SECUENCIA, allocationSize = SecuenciasMigracion.RESERVA_POR_DEFECTO)
     private long id;
 
     @Column(name = "nombre")
@@ -29,7 +42,8 @@ public class Paciente implements Serializable{
     @Column(name = "dni", unique = true)
     private String dni;
 
-    @ManyToOne()
+    // LAZY: el medico solo se carga cuando se usa o cuando la consulta pide el grafo GRAFO_MEDICO
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Medico medico;
 
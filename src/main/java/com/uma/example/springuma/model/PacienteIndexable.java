@@ -0,0 +1,5 @@
+package com.uma.example.springuma.model;
+
+// Proyeccion de Paciente con lo que se indexa para la busqueda
+public record PacienteIndexable(long id, String nombre, String dni, String cita, Long medico) {
+}
@@ -3,24 +3,46 @@ package com.uma.example.springuma.model;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import com.uma.example.springuma.utils.CursorPagina;
+
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed("springuma.servicio")
 public class PacienteService {
 
     @Autowired
     RepositoryPaciente repositoryPaciente; // Cambio el nombre y tipo del repositorio
 
+    @Autowired
+    private Paginacion paginacion;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Paciente> getAllPacientes(){
         return repositoryPaciente.findAll(); // Cambio el método para devolver una lista de Pacientes
     }
 
+    // findById pasa por la cache de segundo nivel, igual que el medico LAZY al serializarse; null si no existe
     public Paciente getPaciente(Long id){
-        return repositoryPaciente.getReferenceById(id); // Cambio el tipo de retorno a Paciente
+        return repositoryPaciente.findById(id).orElse(null);
+    }
+
+    public boolean existePaciente(Long id){
+        return repositoryPaciente.existsById(id);
     }
 
     public Paciente addPaciente(Paciente p){
-        return repositoryPaciente.saveAndFlush(p); // Cambio el tipo de argumento y retorno a Paciente
+        Paciente guardado = repositoryPaciente.saveAndFlush(p); // Cambio el tipo de argumento y retorno a Paciente
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Paciente.class, guardado.getId()));
+        return guardado;
     }
 
     public void updatePaciente(Paciente p){
@@ -32,17 +54,34 @@ public class PacienteService {
         paciente.setDni(p.getDni());
         paciente.setMedico(p.getMedico());*/
         repositoryPaciente.save(p); // Guardamos el paciente actualizado
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Paciente.class, p.getId()));
     }
 
+    // Sus imagenes las borra la base de datos en cascada: el contenido que ya no use nadie se borra despues del almacen
     public void removePaciente(Paciente p){
+        List<ClaveContenido> contenidos = imagenService.getContenidosPaciente(p.getId());
         repositoryPaciente.delete(p); // Cambio a eliminar un Paciente
+        imagenService.liberarContenidos(contenidos);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Paciente.class, p.getId()));
     }
 
     public void removePacienteID(Long id){
+        List<ClaveContenido> contenidos = imagenService.getContenidosPaciente(id);
         repositoryPaciente.deleteById(id); // Cambio a eliminar un Paciente por ID
+        imagenService.liberarContenidos(contenidos);
+        eventPublisher.publishEvent(new CambioBusquedaEvent(Paciente.class, id));
     }
 
     public List<Paciente> getPacientesMedico(Long id) {
         return repositoryPaciente.findByMedicoId(id);
     }
+
+    // Pagina de los pacientes de un medico ordenados por id, a partir del cursor de la pagina anterior
+    public Pagina<Paciente> getPaginaPacientesMedico(Long id, String cursor, Integer tamanoPedido) {
+        int tamano = paginacion.tamano(tamanoPedido);
+        long ultimo = cursor == null ? Long.MIN_VALUE : CursorPagina.decodificarId(cursor, "id");
+        List<Paciente> filas = repositoryPaciente.findByMedicoIdAndIdGreaterThanOrderById(id, ultimo,
+            paginacion.consulta(tamano));
+        return Pagina.de(filas, tamano, p -> CursorPagina.codificar("id", p.getId()));
+    }
 }
@@ -0,0 +1,18 @@
+package com.uma.example.springuma.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Pagina de un listado paginado por clave. "siguiente" es el cursor opaco de la pagina siguiente, o null si es la ultima
+public record Pagina<T>(List<T> elementos, String siguiente) {
+
+    // Las consultas piden una fila mas del tamaño de pagina: si llega, hay pagina siguiente y su cursor sale
+    // del ultimo elemento devuelto. Asi no hace falta un count.
+    public static <T> Pagina<T> de(List<T> filas, int tamano, Function<T, String> cursor) {
+        if (filas.size() <= tamano) {
+            return new Pagina<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, tamano);
+        return new Pagina<>(elementos, cursor.apply(elementos.get(tamano - 1)));
+    }
+}
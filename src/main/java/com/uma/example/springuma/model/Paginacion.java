@@ -0,0 +1,36 @@
+package com.uma.example.springuma.model;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+// Tamaño de pagina de los listados paginados: por defecto si no se pide, y acotado para que una peticion
+// no pueda traerse la tabla entera
+@Component
+public class Paginacion {
+
+    private final int tamanoPorDefecto;
+    private final int tamanoMaximo;
+
+    public Paginacion(@Value("${paginacion.tamano-por-defecto:50}") int tamanoPorDefecto,
+            @Value("${paginacion.tamano-maximo:500}") int tamanoMaximo) {
+        this.tamanoPorDefecto = tamanoPorDefecto;
+        this.tamanoMaximo = tamanoMaximo;
+    }
+
+    public int tamano(Integer pedido) {
+        if (pedido == null) {
+            return tamanoPorDefecto;
+        }
+        if (pedido < 1) {
+            throw new IllegalArgumentException("El tamaño de pagina tiene que ser mayor que 0");
+        }
+        return Math.min(pedido, tamanoMaximo);
+    }
+
+    // Una fila mas del tamaño de pagina para saber si hay pagina siguiente (ver Pagina.de)
+    public Pageable consulta(int tamano) {
+        return PageRequest.ofSize(tamano + 1);
+    }
+}
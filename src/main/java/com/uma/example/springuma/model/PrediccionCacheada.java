@@ -0,0 +1,59 @@
+package com.uma.example.springuma.model;
+
+import java.util.Calendar;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Prediccion guardada en base de datos para que la cache de PrediccionService sobreviva a los reinicios.
+// La clave es el hash SHA-256 de la imagen original seguido del id del modelo.
+@Entity
+@Table(name = "prediccion_cache")
+public class PrediccionCacheada {
+
+    @Id
+    @Column(name = "clave", length = 200)
+    private String clave;
+
+    // Puntuaciones devueltas por el modelo, en JSON
+    @Column(name = "puntuaciones", length = 1000)
+    private String puntuaciones;
+
+    @Column(name = "fecha")
+    private Calendar fecha;
+
+    public PrediccionCacheada() {
+    }
+
+    public PrediccionCacheada(String clave, String puntuaciones) {
+        this.clave = clave;
+        this.puntuaciones = puntuaciones;
+        this.fecha = Calendar.getInstance();
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getPuntuaciones() {
+        return puntuaciones;
+    }
+
+    public void setPuntuaciones(String puntuaciones) {
+        this.puntuaciones = puntuaciones;
+    }
+
+    public Calendar getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(Calendar fecha) {
+        this.fecha = fecha;
+    }
+}
@@ -0,0 +1,206 @@
+package com.uma.example.springuma.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Calcula en segundo plano las predicciones de los informes.
+// Los ids de los informes pendientes se encolan en una cola acotada; varios trabajadores la vacian por lotes,
+// piden la prediccion de cada informe (la API del modelo clasifica una imagen por llamada, no tiene llamada por
+// lotes) y guardan los resultados del lote en una sola transaccion.
+// Si la cola esta llena el informe se queda PENDIENTE y lo recoge la siguiente pasada de reencolarPendientes.
+// Igual si el predictor no esta disponible o no responde: solo los fallos que no se arreglan reintentando dejan el
+// informe en ERROR.
+@Component
+public class PrediccionPipeline implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PrediccionPipeline.class);
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private InformeService informeService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${informe.prediccion.capacidad-cola:1000}")
+    private int capacidadCola;
+
+    @Value("${informe.prediccion.hilos:4}")
+    private int hilos;
+
+    @Value("${informe.prediccion.tamano-lote:16}")
+    private int tamanoLote;
+
+    @Value("${informe.prediccion.espera-lote-ms:50}")
+    private long esperaLoteMs;
+
+    // Solo tiene efecto a partir de Java 21; en versiones anteriores se usan hilos de plataforma.
+    // Es independiente del modo de hilos de la aplicacion (spring.threads.virtual.enabled)
+    @Value("${informe.prediccion.hilos-virtuales:true}")
+    private boolean hilosVirtuales;
+
+    private BlockingQueue<Long> cola;
+    private final Set<Long> encolados = ConcurrentHashMap.newKeySet();
+    private volatile boolean activo;
+    private CountDownLatch trabajadoresParados;
+
+    public boolean encolar(long informeId) {
+        if (!activo || !encolados.add(informeId)) {
+            return false;
+        }
+        if (!cola.offer(informeId)) {
+            encolados.remove(informeId);
+            return false;
+        }
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInformePendiente(InformePendienteEvent event) {
+        encolar(event.informeId());
+    }
+
+    // Recupera los informes que se quedaron pendientes por tener la cola llena o por un reinicio
+    @Scheduled(initialDelay = 0, fixedDelayString = "${informe.prediccion.reintento-ms:30000}")
+    public void reencolarPendientes() {
+        int hueco = activo ? cola.remainingCapacity() : 0;
+        if (hueco == 0) {
+            return;
+        }
+        for (Long id : repositoryInforme.findIdsByEstado(EstadoPrediccion.PENDIENTE, PageRequest.of(0, hueco))) {
+            encolar(id);
+        }
+    }
+
+    private void trabajar() {
+        try {
+            List<Long> lote = new ArrayList<>(tamanoLote);
+            while (activo) {
+                Long primero = cola.poll(500, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                // Se espera un poco a que lleguen mas informes para procesarlos juntos
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaLoteMs);
+                while (lote.size() < tamanoLote) {
+                    Long siguiente = cola.poll(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                procesarLote(lote);
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            trabajadoresParados.countDown();
+        }
+    }
+
+    private void procesarLote(List<Long> ids) {
+        Timer.Sample muestra = Timer.start(registry);
+        try {
+            // La llamada al predictor se hace fuera de transaccion para no retener conexiones mientras tanto
+            List<Informe> informes = repositoryInforme.findAllById(ids);
+            List<Informe> terminados = new ArrayList<>(informes.size());
+            List<String> predicciones = new ArrayList<>(informes.size());
+            for (Informe informe : informes) {
+                String prediccion;
+                try {
+                    prediccion = informeService.getNewPrediccion(informe);
+                } catch (PredictorNoDisponibleException | PredictorSinRespuestaException e) {
+                    // Sigue PENDIENTE y se reintenta en la siguiente pasada
+                    log.warn("Prediccion del informe {} aplazada: {}", informe.getId(), e.getMessage());
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    log.warn("No se ha podido calcular la prediccion del informe {}", informe.getId(), e);
+                    prediccion = null;
+                }
+                terminados.add(informe);
+                predicciones.add(prediccion);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < terminados.size(); i++) {
+                    String prediccion = predicciones.get(i);
+                    EstadoPrediccion estado = prediccion != null ? EstadoPrediccion.COMPLETADA : EstadoPrediccion.ERROR;
+                    // Si el informe se ha borrado mientras tanto la actualizacion no afecta a ninguna fila
+                    repositoryInforme.actualizarPrediccion(terminados.get(i).getId(), prediccion, estado);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Los informes siguen PENDIENTES y se reintentan en la siguiente pasada
+            log.error("Error al guardar un lote de {} predicciones", ids.size(), e);
+        } finally {
+            encolados.removeAll(ids);
+            muestra.stop(Timer.builder("springuma.prediccion.lote")
+                .description("Tiempo en procesar un lote de predicciones")
+                .register(registry));
+        }
+    }
+
+    @Override
+    public void start() {
+        cola = new ArrayBlockingQueue<>(capacidadCola);
+        Gauge.builder("springuma.prediccion.cola", this, pipeline -> pipeline.cola.size())
+            .description("Informes encolados pendientes de prediccion")
+            .register(registry);
+        trabajadoresParados = new CountDownLatch(hilos);
+        activo = true;
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("prediccion-");
+        executor.setVirtualThreads(hilosVirtuales && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE));
+        for (int i = 0; i < hilos; i++) {
+            executor.execute(this::trabajar);
+        }
+    }
+
+    @Override
+    public void stop() {
+        activo = false;
+        try {
+            trabajadoresParados.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cola.clear();
+        encolados.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+}
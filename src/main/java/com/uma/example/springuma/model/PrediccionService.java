@@ -0,0 +1,181 @@
+package com.uma.example.springuma.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.uma.example.springuma.store.ImageCodecs;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.ImageUtils;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityNotFoundException;
+
+// Obtiene las puntuaciones del modelo para una imagen. Como el contenido de una imagen no cambia, el resultado
+// se cachea por hash SHA-256 de la imagen original + id del modelo: primero en memoria (Caffeine, W-TinyLFU
+// acotada por tamaño) y opcionalmente en la tabla prediccion_cache para que sobreviva a los reinicios. Sin la API
+// las puntuaciones son aleatorias (simuladas): se cachean solo en memoria y con su propio id de modelo, para que al
+// habilitar la API no se devuelvan como si fueran del modelo.
+@Service
+@Timed("springuma.servicio")
+public class PrediccionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrediccionService.class);
+
+    private static final TypeReference<Map<String, Double>> TIPO_PUNTUACIONES = new TypeReference<>() {};
+    private static final String MODELO_SIMULADO = "stub";
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryPrediccionCacheada repositoryPrediccion;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageCodecs imageCodecs;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImagenAPIPredictor imagenAPIPredictor;
+
+    private final String modelo;
+    private final boolean apiHabilitada;
+    private final boolean persistente;
+    private final Cache<String, Map<String, Double>> cache;
+    private final LongAdder aciertosBaseDatos = new LongAdder();
+    private final LongAdder llamadasModelo = new LongAdder();
+
+    public PrediccionService(@Value("${prediccion.modelo:MUmairAB/Breast_Cancer_Detector}") String modelo,
+            @Value("${prediccion.api.habilitada:false}") boolean apiHabilitada,
+            @Value("${prediccion.cache.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${prediccion.cache.persistente:true}") boolean persistente,
+            MeterRegistry registry) {
+        this.modelo = modelo;
+        this.apiHabilitada = apiHabilitada;
+        this.persistente = persistente && apiHabilitada;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(tamanoMaximo)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "predicciones");
+    }
+
+    public Map<String, Double> getPuntuaciones(long imagenId) throws Exception {
+        Imagen imagen = repositoryImagen.findById(imagenId)
+            .orElseThrow(() -> new EntityNotFoundException("No existe la imagen " + imagenId));
+        String clave = hashContenido(imagen) + ":" + (apiHabilitada ? modelo : MODELO_SIMULADO);
+
+        Map<String, Double> puntuaciones = cache.getIfPresent(clave);
+        if (puntuaciones != null) {
+            return puntuaciones;
+        }
+        if (persistente) {
+            Optional<PrediccionCacheada> guardada = repositoryPrediccion.findById(clave);
+            if (guardada.isPresent()) {
+                aciertosBaseDatos.increment();
+                puntuaciones = objectMapper.readValue(guardada.get().getPuntuaciones(), TIPO_PUNTUACIONES);
+                cache.put(clave, puntuaciones);
+                return puntuaciones;
+            }
+        }
+
+        llamadasModelo.increment();
+        puntuaciones = consultarModelo(imagen);
+        cache.put(clave, puntuaciones);
+        if (persistente) {
+            try {
+                repositoryPrediccion.save(new PrediccionCacheada(clave, objectMapper.writeValueAsString(puntuaciones)));
+            } catch (DataIntegrityViolationException e) {
+                // Otro hilo ha guardado a la vez la prediccion de la misma imagen: ya esta en la tabla
+                log.debug("Prediccion {} ya guardada por otro hilo", clave, e);
+            }
+        }
+        return puntuaciones;
+    }
+
+    // true si las puntuaciones no son del modelo sino aleatorias (prediccion.api.habilitada=false)
+    public boolean isSimulada() {
+        return !apiHabilitada;
+    }
+
+    public EstadisticasCache getEstadisticas() {
+        CacheStats stats = cache.stats();
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), aciertosBaseDatos.sum(),
+            llamadasModelo.sum(), cache.estimatedSize(), stats.hitRate());
+    }
+
+    private Map<String, Double> consultarModelo(Imagen imagen) throws Exception {
+        if (apiHabilitada) {
+            return imagenAPIPredictor.query(leerContenido(imagen));
+        }
+        // La API de Hugging Face esta deprecada: sin ella se devuelven puntuaciones aleatorias
+        return Map.of("LABEL_0", Math.random(), "LABEL_1", Math.random());
+    }
+
+    // Las imagenes del ImageStore ya tienen el hash; para las que siguen en la fila se calcula descomprimiendo el Blob
+    private String hashContenido(Imagen imagen) {
+        if (imagen.getHash() != null) {
+            return imagen.getHash();
+        }
+        return transactionTemplate.execute(status -> {
+            try (InputStream original = abrirContenidoAntiguo(imagen.getId());
+                    DigestOutputStream digest = new DigestOutputStream(OutputStream.nullOutputStream(),
+                        MessageDigest.getInstance("SHA-256"))) {
+                original.transferTo(digest);
+                return HexFormat.of().formatHex(digest.getMessageDigest().digest());
+            } catch (Exception e) {
+                throw new IllegalStateException("Error al calcular el hash de la imagen " + imagen.getId(), e);
+            }
+        });
+    }
+
+    private byte[] leerContenido(Imagen imagen) throws IOException {
+        if (imagen.getHash() != null) {
+            try (InputStream in = imageCodecs.get(imagen.getCodec()).decode(imageStore.open(imagen.getClaveContenido()))) {
+                return in.readAllBytes();
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            try (InputStream in = abrirContenidoAntiguo(imagen.getId())) {
+                return in.readAllBytes();
+            } catch (Exception e) {
+                throw new IllegalStateException("Error al leer la imagen " + imagen.getId(), e);
+            }
+        });
+    }
+
+    // Tiene que llamarse dentro de una transaccion para que el Blob siga siendo legible
+    private InputStream abrirContenidoAntiguo(long imagenId) throws Exception {
+        Imagen imagen = repositoryImagen.getReferenceById(imagenId);
+        return ImageUtils.decompressingStream(imagen.getFile_content().getBinaryStream());
+    }
+}
@@ -0,0 +1,9 @@
+package com.uma.example.springuma.model;
+
+// El predictor externo no se ha llamado: el circuit breaker esta abierto o no hay hueco en el bulkhead
+public class PredictorNoDisponibleException extends Exception {
+
+    public PredictorNoDisponibleException(String message) {
+        super(message);
+    }
+}
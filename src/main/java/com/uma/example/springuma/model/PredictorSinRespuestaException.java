@@ -0,0 +1,14 @@
+package com.uma.example.springuma.model;
+
+// El predictor externo se ha llamado pero no ha respondido (error de conexion o timeout) o ha devuelto un error del
+// servidor (5xx), despues de los reintentos: la misma llamada puede funcionar mas tarde
+public class PredictorSinRespuestaException extends Exception {
+
+    public PredictorSinRespuestaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public PredictorSinRespuestaException(String message) {
+        super(message);
+    }
+}
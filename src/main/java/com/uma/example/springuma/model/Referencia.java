@@ -0,0 +1,5 @@
+package com.uma.example.springuma.model;
+
+// Referencia ligera a otra entidad (id y nombre) para las proyecciones de los listados
+public record Referencia(long id, String nombre) {
+}
@@ -1,13 +1,94 @@
 package com.uma.example.springuma.model;
 
 
+import java.util.Calendar;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RepositoryImagen extends JpaRepository<Imagen, Long> {
 
-    List<Imagen> getByPacienteId(Long id);
+    // Imagen.paciente es LAZY; estas dos traen el paciente y su medico en la misma sentencia. Filtra por la clave
+    // ajena para que H2 use el indice imagen_paciente (ver RepositoryPaciente.findByMedicoId)
+    @EntityGraph(Imagen.GRAFO_PACIENTE)
+    @Query("select i from Imagen i where i.paciente.id = :id")
+    List<Imagen> getByPacienteId(@Param("id") Long id);
+
+    @EntityGraph(Imagen.GRAFO_PACIENTE)
+    Optional<Imagen> findConPacienteById(Long id);
+
+    // Listado de imagenes de un paciente sin tocar la columna del contenido
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where p.id = :id order by i.fecha, i.id")
+    List<ImagenResumen> findResumenByPacienteId(@Param("id") Long id);
+
+    // Paginacion por clave de las imagenes de un paciente ordenadas por (fecha, id). Las imagenes sin fecha van
+    // primero; el cursor de la ultima de ellas no tiene fecha y se sigue con findResumenPaginaByPacienteIdTrasSinFecha
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where p.id = :id order by i.fecha nulls first, i.id")
+    List<ImagenResumen> findResumenPaginaByPacienteId(@Param("id") Long id, Pageable pageable);
+
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where p.id = :id "
+        + "and (i.fecha > :fecha or (i.fecha = :fecha and i.id > :ultimo)) order by i.fecha nulls first, i.id")
+    List<ImagenResumen> findResumenPaginaByPacienteIdTras(@Param("id") Long id, @Param("fecha") Calendar fecha,
+            @Param("ultimo") long ultimo, Pageable pageable);
+
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where p.id = :id "
+        + "and (i.fecha is not null or i.id > :ultimo) order by i.fecha nulls first, i.id")
+    List<ImagenResumen> findResumenPaginaByPacienteIdTrasSinFecha(@Param("id") Long id, @Param("ultimo") long ultimo,
+            Pageable pageable);
+
+    // Paginacion por clave de las imagenes de un paciente ordenadas por id
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where p.id = :id and i.id > :ultimo order by i.id")
+    List<ImagenResumen> findResumenPaginaByPacienteIdOrdenId(@Param("id") Long id, @Param("ultimo") long ultimo,
+            Pageable pageable);
+
+    // Paginacion por clave de todas las imagenes, por id
+    @Query("select new com.uma.example.springuma.model.ImagenResumen(i.id, i.nombre, i.fecha, i.tamano, p.id, p.nombre) "
+        + "from Imagen i join i.paciente p where i.id > :ultimo order by i.id")
+    List<ImagenResumen> findResumenPagina(@Param("ultimo") long ultimo, Pageable pageable);
+
+    // Lo necesario para servir el contenido, sin la columna file_content
+    @Query("select new com.uma.example.springuma.model.ContenidoImagen(i.id, i.hash, i.codec, i.tipo, i.fecha, i.tamano) "
+        + "from Imagen i where i.id = :id")
+    Optional<ContenidoImagen> findContenidoById(@Param("id") long id);
+
+    long countByHashAndCodec(String hash, String codec);
+
+    // Contenidos del ImageStore de las imagenes de un paciente o de los pacientes de un medico, que la base de datos
+    // borra en cascada con ellos
+    @Query("select distinct new com.uma.example.springuma.model.ClaveContenido(i.hash, i.codec) "
+        + "from Imagen i where i.paciente.id = :id and i.hash is not null")
+    List<ClaveContenido> findClavesContenidoByPacienteId(@Param("id") Long id);
+
+    @Query("select distinct new com.uma.example.springuma.model.ClaveContenido(i.hash, i.codec) "
+        + "from Imagen i join i.paciente p where p.medico.id = :id and i.hash is not null")
+    List<ClaveContenido> findClavesContenidoByMedicoId(@Param("id") Long id);
+
+    long countByHash(String hash);
+
+    // Imagenes cuyo contenido sigue en la columna file_content y hay que mover al ImageStore
+    @Query("select i.id from Imagen i where i.hash is null and i.file_content is not null order by i.id")
+    List<Long> findIdsPendientesDeMigrar(Pageable pageable);
+
+    // Paginacion por clave de las imagenes del ImageStore anteriores a la columna tipo
+    @Query("select new com.uma.example.springuma.model.ContenidoImagen(i.id, i.hash, i.codec, i.tipo, i.fecha, i.tamano) "
+        + "from Imagen i where i.hash is not null and i.tipo is null and i.id > :ultimo order by i.id")
+    List<ContenidoImagen> findContenidoSinTipo(@Param("ultimo") long ultimo, Pageable pageable);
+
+    // No cambia el tipo si ya lo tiene
+    @Modifying
+    @Query("update Imagen i set i.tipo = :tipo where i.id = :id and i.tipo is null")
+    int completarTipo(@Param("id") long id, @Param("tipo") String tipo);
 
 
     // Aquí puedes añadir métodos personalizados si es necesario.
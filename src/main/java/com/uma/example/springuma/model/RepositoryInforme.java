@@ -1,12 +1,63 @@
 package com.uma.example.springuma.model;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RepositoryInforme extends JpaRepository<Informe, Long>{
 
-    List<Informe> findByImagenId(Long id);
+    // Informe.imagen es LAZY; estas dos traen la cadena imagen -> paciente -> medico en la misma sentencia. Filtra
+    // por la clave ajena para que H2 use el indice informe_imagen (ver RepositoryPaciente.findByMedicoId)
+    @EntityGraph(Informe.GRAFO_IMAGEN)
+    @Query("select inf from Informe inf where inf.imagen.id = :id")
+    List<Informe> findByImagenId(@Param("id") Long id);
+
+    @EntityGraph(Informe.GRAFO_IMAGEN)
+    Optional<Informe> findConImagenById(Long id);
+
+    // Listado de informes de una imagen sin el contenido ni la imagen
+    @Query("select new com.uma.example.springuma.model.InformeResumen(inf.id, inf.prediccion, i.id, i.nombre) "
+        + "from Informe inf join inf.imagen i where i.id = :id order by inf.id")
+    List<InformeResumen> findResumenByImagenId(@Param("id") Long id);
+
+    // Paginacion por clave de todos los informes, por id
+    @Query("select new com.uma.example.springuma.model.InformeResumen(inf.id, inf.prediccion, i.id, i.nombre) "
+        + "from Informe inf join inf.imagen i where inf.id > :ultimo order by inf.id")
+    List<InformeResumen> findResumenPagina(@Param("ultimo") long ultimo, Pageable pageable);
+
+    @Query("select inf.id from Informe inf where inf.estadoPrediccion = :estado order by inf.id")
+    List<Long> findIdsByEstado(@Param("estado") EstadoPrediccion estado, Pageable pageable);
+
+    // Guarda el resultado de la prediccion sin cargar el informe; no hace nada si el informe ya no existe
+    @Modifying
+    @Query("update Informe inf set inf.prediccion = :prediccion, inf.estadoPrediccion = :estado where inf.id = :id")
+    int actualizarPrediccion(@Param("id") long id, @Param("prediccion") String prediccion,
+            @Param("estado") EstadoPrediccion estado);
+
+    // Informes para el indice de busqueda (ver BusquedaService). Con left join para indexar tambien los informes
+    // sin imagen
+    String INDEXABLE = "select new com.uma.example.springuma.model.InformeIndexable(inf.id, inf.contenido, i.id, "
+        + "i.fecha, p.id, p.nombre, m.id) from Informe inf left join inf.imagen i left join i.paciente p "
+        + "left join p.medico m ";
+
+    @Query(INDEXABLE + "where inf.id = :id")
+    Optional<InformeIndexable> findIndexableById(@Param("id") long id);
+
+    // Con inner join hasta el paciente (los informes sin imagen no son de ningun paciente): H2 no cambia el orden de
+    // los left join y recorreria todos los informes; asi empieza por el paciente y sigue por los indices
+    @Query("select new com.uma.example.springuma.model.InformeIndexable(inf.id, inf.contenido, i.id, i.fecha, p.id, "
+        + "p.nombre, m.id) from Informe inf join inf.imagen i join i.paciente p left join p.medico m "
+        + "where p.id = :id order by inf.id")
+    List<InformeIndexable> findIndexableByPacienteId(@Param("id") long id);
+
+    @Query(INDEXABLE + "where inf.id > :ultimo order by inf.id")
+    List<InformeIndexable> findIndexablePagina(@Param("ultimo") long ultimo, Pageable pageable);
 
     // https://docs.spring.io/spring-data/jpa/docs/current/reference/html/#repositories.query-methods.query-creation
 	// Además de los metodos de consulta basicos, especifico un metodo que busque una cuenta por el CCC
@@ -1,9 +1,36 @@
 package com.uma.example.springuma.model;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
 
 public interface RepositoryMedico extends JpaRepository<Medico, Long>{
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Medico getMedicoByDni(String dni);
 
-}
\ No newline at end of file
+    // Dnis de la lista que ya estan dados de alta, para validar un lote de la importacion masiva
+    @Query("select m.dni from Medico m where m.dni in :dnis")
+    Set<String> findDnisExistentes(@Param("dnis") Collection<String> dnis);
+
+    // Medicos para el indice de busqueda (ver BusquedaService), sin pasar por la cache de segundo nivel
+    String INDEXABLE = "select new com.uma.example.springuma.model.MedicoIndexable(m.id, m.nombre, m.dni, "
+        + "m.especialidad) from Medico m ";
+
+    @Query(INDEXABLE + "where m.id = :id")
+    Optional<MedicoIndexable> findIndexableById(@Param("id") long id);
+
+    @Query(INDEXABLE + "where m.id > :ultimo order by m.id")
+    List<MedicoIndexable> findIndexablePagina(@Param("ultimo") long ultimo, Pageable pageable);
+
+}
@@ -1,13 +1,53 @@
 package com.uma.example.springuma.model;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+
+// Las consultas por dni y por medico van a la cache de consultas de Hibernate (ver CacheEntidadesConfig).
+// Paciente.medico es LAZY: las consultas cuyo resultado se devuelve entero en la API traen el medico con el grafo
+// Paciente.GRAFO_MEDICO en la misma sentencia
 public interface RepositoryPaciente extends JpaRepository<Paciente, Long> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Paciente findByDni(String dni);
 
-    List<Paciente> findByMedicoId(Long id);
+    // Filtra por la clave ajena (p.medico.id) y no por el id del medico que trae el grafo: con el filtro sobre el
+    // LEFT JOIN, H2 recorre la tabla entera en vez de usar el indice paciente_medico
+    @EntityGraph(Paciente.GRAFO_MEDICO)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select p from Paciente p where p.medico.id = :id")
+    List<Paciente> findByMedicoId(@Param("id") Long id);
+
+    // Dnis de la lista que ya estan dados de alta, para validar un lote de la importacion masiva
+    @Query("select p.dni from Paciente p where p.dni in :dnis")
+    Set<String> findDnisExistentes(@Param("dnis") Collection<String> dnis);
+
+    // Paginacion por clave de los pacientes de un medico, por id
+    @EntityGraph(Paciente.GRAFO_MEDICO)
+    @Query("select p from Paciente p where p.medico.id = :medicoId and p.id > :ultimo order by p.id")
+    List<Paciente> findByMedicoIdAndIdGreaterThanOrderById(@Param("medicoId") Long medicoId, @Param("ultimo") long ultimo,
+            Pageable pageable);
+
+    // Pacientes para el indice de busqueda (ver BusquedaService), sin pasar por la cache de segundo nivel
+    String INDEXABLE = "select new com.uma.example.springuma.model.PacienteIndexable(p.id, p.nombre, p.dni, p.cita, "
+        + "p.medico.id) from Paciente p ";
+
+    @Query(INDEXABLE + "where p.id = :id")
+    Optional<PacienteIndexable> findIndexableById(@Param("id") long id);
+
+    @Query(INDEXABLE + "where p.id > :ultimo order by p.id")
+    List<PacienteIndexable> findIndexablePagina(@Param("ultimo") long ultimo, Pageable pageable);
 
 }
@@ -0,0 +1,8 @@
+package com.uma.example.springuma.model;
+
+import java.time.LocalDate;
+
+// Resultado de GET /search, ordenado por puntuacion. El documento completo se obtiene con GET /<tipo>/<id>;
+// fecha es la de la imagen del informe (null para pacientes y medicos)
+public record ResultadoBusqueda(String tipo, long id, String titulo, Long medico, LocalDate fecha, float puntuacion) {
+}
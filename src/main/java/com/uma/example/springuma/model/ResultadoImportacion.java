@@ -0,0 +1,12 @@
+package com.uma.example.springuma.model;
+
+import java.util.List;
+
+// Respuesta de los endpoints de importacion masiva. "errores" tiene como mucho importacion.max-errores entradas;
+// "fallidos" cuenta todos los registros que no se han importado
+public record ResultadoImportacion(long leidos, long importados, long fallidos, List<Error> errores) {
+
+    // "registro" es el numero de linea de la entrada (o la posicion del fichero en las imagenes)
+    public record Error(long registro, String mensaje) {
+    }
+}
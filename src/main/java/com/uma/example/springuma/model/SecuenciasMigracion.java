@@ -0,0 +1,108 @@
+package com.uma.example.springuma.model;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.id.SequenceMismatchStrategy;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Secuencias de los ids de Medico, Paciente, Imagen e Informe. Cada entidad tiene la suya y Hibernate reserva
+// entidades.id.reserva ids por llamada con el optimizador pooled-lo: los ids reservados se asignan en memoria, asi
+// que una insercion no espera a la secuencia y los INSERT se pueden agrupar en lotes JDBC.
+//
+// Antes de que arranque JPA se crea o ajusta cada secuencia: el INCREMENT BY pasa a ser la reserva configurada y el
+// siguiente valor queda por encima del mayor id de la tabla, de modo que se conservan los ids existentes (tambien
+// los de las bases de datos creadas con GenerationType.AUTO). Hibernate toma el incremento de la base de datos
+// (increment_size_mismatch_strategy=FIX), por eso la reserva se puede cambiar sin tocar las entidades.
+// Se ajustan despues de las migraciones del esquema, que son las que crean las tablas y las secuencias.
+@Component(SecuenciasMigracion.BEAN)
+@DependsOnDatabaseInitialization
+public class SecuenciasMigracion implements InitializingBean, HibernatePropertiesCustomizer {
+
+    static final String BEAN = "secuenciasMigracion";
+
+    // Reserva de las anotaciones @SequenceGenerator; la que se usa es la de la secuencia en la base de datos
+    static final int RESERVA_POR_DEFECTO = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(SecuenciasMigracion.class);
+
+    // Tabla de cada entidad y su secuencia
+    private static final Map<String, String> SECUENCIAS = Map.of(
+        "medico", Medico.SECUENCIA,
+        "paciente", Paciente.SECUENCIA,
+        "imagen", Imagen.SECUENCIA,
+        "informe", Informe.SECUENCIA);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int reserva;
+
+    public SecuenciasMigracion(DataSource dataSource,
+            @Value("${entidades.id.reserva:" + RESERVA_POR_DEFECTO + "}") int reserva) {
+        if (reserva < 1) {
+            throw new IllegalArgumentException("entidades.id.reserva tiene que ser mayor que 0");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.reserva = reserva;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER,
+            StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        hibernateProperties.put(AvailableSettings.SEQUENCE_INCREMENT_SIZE_MISMATCH_STRATEGY, SequenceMismatchStrategy.FIX);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        SECUENCIAS.forEach(this::ajustar);
+    }
+
+    private void ajustar(String tabla, String secuencia) {
+        long siguienteId = existeTabla(tabla)
+            ? jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from " + tabla, Long.class)
+            : 1;
+        // BASE_VALUE es el siguiente valor que devolvera la secuencia
+        List<long[]> actual = jdbcTemplate.query(
+            "select base_value, increment from information_schema.sequences "
+                + "where sequence_schema = schema() and sequence_name = ?",
+            (rs, fila) -> new long[] {rs.getLong(1), rs.getLong(2)},
+            secuencia.toUpperCase(Locale.ROOT));
+        if (actual.isEmpty()) {
+            jdbcTemplate.execute("create sequence " + secuencia + " start with " + siguienteId + " increment by " + reserva);
+            log.info("Creada la secuencia {} desde {} con reserva {}", secuencia, siguienteId, reserva);
+        } else if (actual.get(0)[1] != reserva || actual.get(0)[0] < siguienteId) {
+            long inicio = Math.max(actual.get(0)[0], siguienteId);
+            jdbcTemplate.execute("alter sequence " + secuencia + " restart with " + inicio + " increment by " + reserva);
+            log.info("Ajustada la secuencia {}: siguiente valor {}, reserva {} (antes {})", secuencia, inicio, reserva,
+                actual.get(0)[1]);
+        }
+    }
+
+    private boolean existeTabla(String tabla) {
+        return jdbcTemplate.queryForObject(
+            "select count(*) from information_schema.tables where table_schema = schema() and table_name = ?",
+            Integer.class, tabla.toUpperCase(Locale.ROOT)) > 0;
+    }
+
+    // El EntityManagerFactory no se crea hasta que las secuencias estan ajustadas
+    @Component
+    static class DependenciaJpa extends EntityManagerFactoryDependsOnPostProcessor {
+
+        DependenciaJpa() {
+            super(BEAN);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.uma.example.springuma.model;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.h2.tools.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AbstractDependsOnBeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Servidor TCP de H2 dentro de una de las instancias de la aplicacion, para que varias compartan la misma base de
+// datos: todas (tambien esta) se conectan con jdbc:h2:tcp://<host>:<puerto>/<ruta>, y la que tiene
+// h2.servidor.habilitado=true abre los ficheros y atiende al resto. Sin el, H2 bloquea el fichero para un solo
+// proceso. Tambien se puede arrancar el servidor aparte (java -cp h2.jar org.h2.tools.Server -tcp ...) y dejar
+// todas las instancias como clientes.
+@Component(ServidorH2.BEAN)
+@ConditionalOnProperty(name = "h2.servidor.habilitado", havingValue = "true")
+public class ServidorH2 implements InitializingBean, DisposableBean {
+
+    static final String BEAN = "servidorH2";
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorH2.class);
+
+    @Value("${h2.servidor.puerto:9092}")
+    private int puerto;
+
+    // Directorio base: las rutas de las urls de los clientes son relativas a el
+    @Value("${h2.servidor.directorio:.}")
+    private String directorio;
+
+    // Con false solo acepta conexiones desde la misma maquina. Con true hace falta spring.datasource.password
+    @Value("${h2.servidor.permitir-remotos:false}")
+    private boolean permitirRemotos;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String usuario;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    private Server servidor;
+
+    // El servidor no deja que los clientes creen bases de datos (-ifNotExists): quien llegara al puerto podria crear
+    // una con el usuario que quisiera y ejecutar codigo en esta maquina. La base de datos la crea antes esta
+    // instancia con una conexion embebida
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        if (permitirRemotos && password.isEmpty()) {
+            throw new IllegalArgumentException(
+                "h2.servidor.permitir-remotos=true necesita una contraseña en spring.datasource.password");
+        }
+        crearBaseDatos();
+        List<String> argumentos = new ArrayList<>(List.of(
+            "-tcpPort", String.valueOf(puerto),
+            "-baseDir", directorio));
+        if (permitirRemotos) {
+            argumentos.add("-tcpAllowOthers");
+        }
+        servidor = Server.createTcpServer(argumentos.toArray(String[]::new)).start();
+        log.info("Servidor H2 en {} (directorio {})", servidor.getURL(), directorio);
+    }
+
+    // Abre (y la primera vez crea) la base de datos de spring.datasource.url=jdbc:h2:tcp://<host>:<puerto>/<ruta>
+    // sin pasar por el servidor, con la ruta relativa al directorio base como la resuelve el. Las que estan en
+    // memoria solo siguen existiendo al cerrar la conexion si la url lleva DB_CLOSE_DELAY=-1, como las de los
+    // clientes
+    private void crearBaseDatos() throws SQLException {
+        String prefijo = "jdbc:h2:tcp://";
+        if (!url.startsWith(prefijo)) {
+            return;
+        }
+        String resto = url.substring(prefijo.length());
+        int barra = resto.indexOf('/');
+        int ajustes = resto.indexOf(';');
+        String ruta = ajustes < 0 ? resto.substring(barra + 1) : resto.substring(barra + 1, ajustes);
+        String fichero = ruta.startsWith("mem:") ? ruta
+            : "file:" + Paths.get(directorio, ruta).toAbsolutePath().normalize();
+        String embebida = "jdbc:h2:" + fichero + (ajustes < 0 ? "" : resto.substring(ajustes));
+        try (Connection conexion = DriverManager.getConnection(embebida, usuario, password)) {
+            log.info("Base de datos {} del servidor H2 preparada", ruta);
+        }
+    }
+
+    // Se para despues de cerrar el pool de conexiones, que depende de el
+    @Override
+    public void destroy() {
+        servidor.stop();
+    }
+
+    // El DataSource de esta instancia no se crea hasta que el servidor esta escuchando
+    @Component
+    @ConditionalOnProperty(name = "h2.servidor.habilitado", havingValue = "true")
+    static class DependenciaDataSource extends AbstractDependsOnBeanFactoryPostProcessor {
+
+        DependenciaDataSource() {
+            super(DataSource.class, BEAN);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.uma.example.springuma.model;
+
+import java.util.Locale;
+
+// Tipos de documento del indice de busqueda; en la API (GET /search?tipo=) van en minusculas
+public enum TipoDocumento {
+    INFORME,
+    PACIENTE,
+    MEDICO;
+
+    public String getNombre() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static TipoDocumento de(String nombre) {
+        for (TipoDocumento tipo : values()) {
+            if (tipo.getNombre().equalsIgnoreCase(nombre)) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo no valido: " + nombre + " (informe, paciente o medico)");
+    }
+}
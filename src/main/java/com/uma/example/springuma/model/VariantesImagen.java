@@ -0,0 +1,210 @@
+package com.uma.example.springuma.model;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.uma.example.springuma.store.ImageCodecs;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.Miniaturas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Variantes reducidas de las imagenes para las galerias: miniatura y vista previa, con el lado mayor configurable y
+// en el formato de imagen.variantes.formato. Se generan en segundo plano al subir una imagen (una sola decodificacion
+// del original para las dos) y se guardan en el ImageStore junto al original, con la clave de su hash seguida del lado,
+// el formato y la calidad: si cambia la configuracion se generan otras y su clave (que es su ETag) tambien cambia.
+// Si se pide una variante que aun no existe (cola llena, imagenes anteriores, importaciones) se genera en la peticion.
+@Component
+public class VariantesImagen implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VariantesImagen.class);
+
+    // Valores de GET /imagen/{id}?size=
+    public static final String MINIATURA = "thumb";
+    public static final String VISTA_PREVIA = "preview";
+    public static final String ORIGINAL = "full";
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private ImageCodecs imageCodecs;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${imagen.variantes.miniatura:128}")
+    private int ladoMiniatura;
+
+    @Value("${imagen.variantes.vista-previa:512}")
+    private int ladoVistaPrevia;
+
+    @Value("${imagen.variantes.formato:jpg}")
+    private String formato;
+
+    @Value("${imagen.variantes.calidad:0.85}")
+    private float calidad;
+
+    @Value("${imagen.variantes.hilos:1}")
+    private int hilos;
+
+    @Value("${imagen.variantes.capacidad-cola:1000}")
+    private int capacidadCola;
+
+    private String tipo;
+    // Formato y calidad en las claves de las variantes, p. ej. jpg85
+    private String version;
+    private ThreadPoolTaskExecutor executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        formato = formato.toLowerCase(Locale.ROOT);
+        tipo = Miniaturas.tipo(formato);
+        version = formato + Math.round(calidad * 100);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("variantes-");
+        // Con la cola llena la variante se genera cuando se pida
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    // Tipo MIME de las variantes
+    public String getTipo() {
+        return tipo;
+    }
+
+    // Lado mayor de la variante, o 0 para el original
+    public int lado(String variante) {
+        switch (variante) {
+            case MINIATURA:
+                return ladoMiniatura;
+            case VISTA_PREVIA:
+                return ladoVistaPrevia;
+            case ORIGINAL:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Tamaño no valido: " + variante + " (" + MINIATURA + ", "
+                    + VISTA_PREVIA + " o " + ORIGINAL + ")");
+        }
+    }
+
+    // Despues de guardar la fila de la imagen. Si mientras tanto se borran todas las imagenes con ese contenido (y con
+    // ellas sus variantes, ImagenService.liberarContenido) no se generan o se borran las que se acaban de generar
+    @TransactionalEventListener
+    public void onImagenSubida(ImagenSubidaEvent event) {
+        executor.execute(() -> {
+            try {
+                if (repositoryImagen.countByHash(event.hash()) > 0) {
+                    generar(event.hash(), event.codec());
+                    if (repositoryImagen.countByHash(event.hash()) == 0) {
+                        borrar(event.hash());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se han podido generar las variantes de {}", event.hash(), e);
+            }
+        });
+    }
+
+    // Clave en el ImageStore de la variante de un contenido, exista o no
+    public String clave(String hash, String variante) {
+        return ImageStore.claveVariante(hash, lado(variante), version);
+    }
+
+    // Clave en el ImageStore de la variante del contenido (hash, codec), generandola si aun no existe.
+    // Devuelve null si el contenido no es una imagen que ImageIO sepa leer (o esta dañada): se sirve el original.
+    public String obtener(String hash, String codec, String variante) {
+        String clave = clave(hash, variante);
+        try {
+            if (!imageStore.exists(clave) && !generar(hash, codec)) {
+                return null;
+            }
+        } catch (IOException e) {
+            log.warn("No se han podido generar las variantes de {}, se sirve el original", hash, e);
+            return null;
+        }
+        return clave;
+    }
+
+    // Borra las variantes de un contenido que ya no usa ninguna imagen
+    public void borrar(String hash) throws IOException {
+        imageStore.delete(clave(hash, MINIATURA));
+        imageStore.delete(clave(hash, VISTA_PREVIA));
+    }
+
+    // Genera las variantes que falten con una sola decodificacion del original: la vista previa desde el original y
+    // la miniatura desde la vista previa. Devuelve false si el contenido no es una imagen que ImageIO sepa leer.
+    boolean generar(String hash, String codec) throws IOException {
+        String claveVistaPrevia = clave(hash, VISTA_PREVIA);
+        String claveMiniatura = clave(hash, MINIATURA);
+        if (imageStore.exists(claveVistaPrevia) && imageStore.exists(claveMiniatura)) {
+            return true;
+        }
+        Timer.Sample muestra = Timer.start(registry);
+        BufferedImage original = leer(ImageStore.clave(hash, codec), codec);
+        if (original == null) {
+            return false;
+        }
+        boolean conAlfa = "png".equals(formato);
+        BufferedImage vistaPrevia = Miniaturas.reducir(original, ladoVistaPrevia, conAlfa);
+        guardar(claveVistaPrevia, vistaPrevia);
+        guardar(claveMiniatura, Miniaturas.reducir(ladoMiniatura <= ladoVistaPrevia ? vistaPrevia : original,
+            ladoMiniatura, conAlfa));
+        muestra.stop(Timer.builder("springuma.imagen.variantes")
+            .description("Tiempo en generar las variantes reducidas de una imagen")
+            .register(registry));
+        return true;
+    }
+
+    // Los originales sin codificar se leen directamente del fichero; el resto a traves de su codec
+    private BufferedImage leer(String clave, String codec) throws IOException {
+        int lado = Math.max(ladoVistaPrevia, ladoMiniatura);
+        Path fichero = Imagen.CODEC_IDENTITY.equals(codec) ? imageStore.localPath(clave) : null;
+        if (fichero != null) {
+            try (ImageInputStream entrada = ImageIO.createImageInputStream(fichero.toFile())) {
+                return Miniaturas.leer(entrada, lado);
+            }
+        }
+        try (InputStream contenido = imageCodecs.get(codec).decode(imageStore.open(clave));
+                ImageInputStream entrada = ImageIO.createImageInputStream(contenido)) {
+            return Miniaturas.leer(entrada, lado);
+        }
+    }
+
+    private void guardar(String clave, BufferedImage imagen) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Miniaturas.escribir(imagen, formato, calidad, out);
+        imageStore.put(clave, new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,273 @@
+package com.uma.example.springuma.reactivo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.codec.multipart.PartEventHttpMessageReader;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.model.DescargaImagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.VariantesImagen;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+// API de imagenes no bloqueante (GET /imagen/{id}?size= y POST /imagen), servida por ServidorReactivo con las
+// mismas respuestas que ImagenController. Ningun hilo queda esperando a un cliente lento: la subida se recibe en
+// un fichero temporal a medida que llega y la descarga se envia con contrapresion, al ritmo al que el cliente lee.
+// Lo que bloquea (JPA, el ImageStore, los Blob de las imagenes antiguas) va a un scheduler elastico acotado, con
+// tantos hilos como conexiones tiene el pool de la base de datos para no hacer cola en el pool
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "imagen.reactivo.habilitado", havingValue = "true", matchIfMissing = false)
+public class ImagenHandler implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagenHandler.class);
+
+    private static final int TAMANO_BLOQUE = 64 * 1024;
+
+    private static final String PARTE_IMAGEN = "image";
+    private static final String PARTE_PACIENTE = "paciente";
+
+    private record Parte(String nombre, Object valor) {
+    }
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${imagen.cache.max-age-segundos:31536000}")
+    private long maxAgeCache;
+
+    @Value("${imagen.cache.publica:true}")
+    private boolean cachePublica;
+
+    // Mismo limite que las subidas por multipart de Tomcat
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxTamanoFichero;
+
+    @Value("${imagen.reactivo.hilos-bloqueantes:10}")
+    private int hilosBloqueantes;
+
+    @Value("${imagen.reactivo.cola-bloqueante:10000}")
+    private int colaBloqueante;
+
+    private Scheduler bloqueantes;
+    private PartEventHttpMessageReader partes;
+
+    @Override
+    public void afterPropertiesSet() {
+        bloqueantes = Schedulers.newBoundedElastic(hilosBloqueantes, colaBloqueante, "imagen-bloqueante");
+        partes = new PartEventHttpMessageReader();
+        partes.setMaxPartSize(maxTamanoFichero.toBytes());
+    }
+
+    @Override
+    public void destroy() {
+        bloqueantes.dispose();
+    }
+
+    public RouterFunction<ServerResponse> rutas() {
+        return RouterFunctions.route()
+            .GET("/imagen/{id}", this::descargar)
+            .POST("/imagen", this::subir)
+            .build();
+    }
+
+    // GET /imagen/{id}?size=thumb|preview|full, con las mismas cabeceras de cache, 304 y rangos que ImagenController.
+    // El 304 se contesta solo con los metadatos de la fila, antes de leer el contenido o generar la variante
+    Mono<ServerResponse> descargar(ServerRequest request) {
+        String size = request.queryParam("size").orElse(VariantesImagen.ORIGINAL);
+        return Mono.fromCallable(() -> imagenService.buscarContenido(Long.parseLong(request.pathVariable("id")), size))
+            .subscribeOn(bloqueantes)
+            .flatMap(imagen -> {
+                ServerWebExchange exchange = request.exchange();
+                CacheControl cache = CacheControl.maxAge(Duration.ofSeconds(maxAgeCache)).immutable();
+                exchange.getResponse().getHeaders().setCacheControl(cachePublica ? cache.cachePublic() : cache.cachePrivate());
+                // Como en ServletWebRequest, pone el ETag y el Last-Modified en la respuesta
+                if (exchange.checkNotModified(imagenService.etag(imagen, size), Instant.ofEpochMilli(imagen.ultimaModificacion()))) {
+                    return ServerResponse.status(HttpStatus.NOT_MODIFIED).build();
+                }
+                return Mono.fromCallable(() -> imagenService.prepararDescarga(imagen, size))
+                    .subscribeOn(bloqueantes)
+                    .flatMap(descarga -> responder(request, descarga));
+            })
+            .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().build());
+    }
+
+    private Mono<ServerResponse> responder(ServerRequest request, DescargaImagen descarga) {
+        HttpHeaders cabeceras = request.headers().asHttpHeaders();
+        long longitud = descarga.longitud();
+        long inicio = 0;
+        long fin = longitud - 1;
+        HttpStatus estado = HttpStatus.OK;
+        HttpRange rango = descarga.rango(cabeceras.getFirst(HttpHeaders.RANGE), cabeceras.getFirst(HttpHeaders.IF_RANGE));
+        if (rango != null) {
+            inicio = rango.getRangeStart(longitud);
+            fin = rango.getRangeEnd(longitud);
+            if (inicio >= longitud || inicio > fin) {
+                return ServerResponse.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + longitud)
+                    .build();
+            }
+            estado = HttpStatus.PARTIAL_CONTENT;
+        }
+        ServerResponse.BodyBuilder respuesta = ServerResponse.status(estado)
+            .contentType(MediaType.parseMediaType(descarga.tipo()))
+            .header(HttpHeaders.ACCEPT_RANGES, descarga.admiteRangos() ? "bytes" : "none");
+        if (rango != null) {
+            respuesta.header(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + longitud);
+        }
+        if (longitud >= 0) {
+            respuesta.contentLength(fin - inicio + 1);
+        }
+        return respuesta.body(cuerpo(descarga, inicio, longitud >= 0 ? fin - inicio + 1 : Long.MAX_VALUE));
+    }
+
+    // Los ficheros sin codificar se envian con sendfile (zero-copy de Reactor Netty) sin pasar por ningun hilo.
+    // El resto se escribe en un OutputStream desde el scheduler bloqueante: outputStreamPublisher solo deja
+    // escribir otro bloque cuando el cliente ha pedido mas, asi que la memoria usada no crece con un cliente lento
+    private BodyInserter<Void, ReactiveHttpOutputMessage> cuerpo(DescargaImagen descarga, long inicio, long cuantos) {
+        Path fichero = descarga.fichero();
+        if (fichero != null && descarga.longitud() >= 0) {
+            return (mensaje, contexto) -> mensaje instanceof ZeroCopyHttpOutputMessage zeroCopy
+                ? zeroCopy.writeWith(fichero, inicio, cuantos)
+                : mensaje.writeWith(DataBufferUtils.takeUntilByteCount(DataBufferUtils.readAsynchronousFileChannel(
+                    () -> AsynchronousFileChannel.open(fichero), inicio, mensaje.bufferFactory(), TAMANO_BLOQUE), cuantos));
+        }
+        return (mensaje, contexto) -> mensaje.writeWith(DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                if (descarga.clave() == null) {
+                    imagenService.downloadImage(descarga.id(), out);
+                } else {
+                    imagenService.escribir(descarga, inicio, cuantos, out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, mensaje.bufferFactory(), bloqueantes::schedule, TAMANO_BLOQUE));
+    }
+
+    // POST /imagen con las partes "image" (el fichero) y "paciente" (JSON), igual que ImagenController. Las partes
+    // se leen como PartEvent a medida que llegan: el fichero va bloque a bloque a un fichero temporal con escrituras
+    // asincronas, sin bloquear ningun hilo, y despues se guarda en el ImageStore a velocidad de disco
+    Mono<ServerResponse> subir(ServerRequest request) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> Files.createTempFile("subida-", ".tmp")).subscribeOn(bloqueantes),
+                temporal -> partes.read(ResolvableType.forClass(PartEvent.class), enHeap(request.exchange().getRequest()), Map.of())
+                    .windowUntil(PartEvent::isLast)
+                    .concatMap(eventos -> eventos.switchOnFirst((primero, parte) -> leerParte(primero.get(), parte, temporal)))
+                    .collectMap(Parte::nombre, Parte::valor)
+                    .flatMap(leidas -> {
+                        if (!(leidas.get(PARTE_IMAGEN) instanceof String nombre)
+                                || !(leidas.get(PARTE_PACIENTE) instanceof Paciente paciente)) {
+                            return ServerResponse.badRequest().build();
+                        }
+                        return Mono.fromCallable(() -> {
+                                try (InputStream in = Files.newInputStream(temporal)) {
+                                    return imagenService.uploadImage(nombre, in, paciente);
+                                }
+                            })
+                            .subscribeOn(bloqueantes)
+                            .flatMap(respuesta -> ServerResponse.ok().bodyValue(respuesta));
+                    }),
+                temporal -> Mono.fromRunnable(() -> borrar(temporal)).subscribeOn(bloqueantes))
+            .onErrorResume(DataBufferLimitException.class,
+                e -> ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE).bodyValue(e.getMessage()));
+    }
+
+    // Nombre de la parte y lo que se ha leido de ella: el nombre del fichero de "image" (el contenido queda en el
+    // temporal) o el Paciente de "paciente". El contenido de cualquier otra parte se descarta
+    private Mono<Parte> leerParte(PartEvent primero, Flux<PartEvent> parte, Path temporal) {
+        Flux<DataBuffer> contenido = parte.map(PartEvent::content);
+        if (primero == null) {
+            return contenido.doOnNext(DataBufferUtils::release).then(Mono.empty());
+        }
+        if (PARTE_IMAGEN.equals(primero.name()) && primero instanceof FilePartEvent fichero) {
+            return DataBufferUtils.write(contenido, temporal).thenReturn(new Parte(PARTE_IMAGEN, fichero.filename()));
+        }
+        if (PARTE_PACIENTE.equals(primero.name())) {
+            return DataBufferUtils.join(contenido)
+                .map(buffer -> {
+                    try (InputStream in = buffer.asInputStream(true)) {
+                        return new Parte(PARTE_PACIENTE, objectMapper.readValue(in, Paciente.class));
+                    } catch (IOException e) {
+                        throw new ServerWebInputException("Paciente no valido", null, e);
+                    }
+                });
+        }
+        return contenido.doOnNext(DataBufferUtils::release).then(Mono.empty());
+    }
+
+    // Pasa el cuerpo a buffers de heap antes del MultipartParser: con un cuerpo que llega en varios trozos (chunked)
+    // el parser de Spring 6.1 no libera todas las divisiones de los buffers de Netty y estos se pierden del pool.
+    // Cada trozo se copia una vez y el buffer de Netty se libera en el momento
+    private static ServerHttpRequest enHeap(ServerHttpRequest request) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().map(buffer -> {
+                    try {
+                        return DefaultDataBufferFactory.sharedInstance.allocateBuffer(buffer.readableByteCount()).write(buffer);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                });
+            }
+        };
+    }
+
+    private static void borrar(Path temporal) {
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            log.warn("No se ha podido borrar el fichero temporal {}", temporal, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.uma.example.springuma.reactivo;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+// Servidor Reactor Netty de la API reactiva de imagenes (ImagenHandler), en su propio puerto junto al Tomcat de
+// la aplicacion: el resto de controladores siguen siendo de Spring MVC. Con imagen.reactivo.puerto=0 se elige un
+// puerto libre, que se consulta con getPuerto()
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "imagen.reactivo.habilitado", havingValue = "true", matchIfMissing = false)
+public class ServidorReactivo implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorReactivo.class);
+
+    @Autowired
+    private ImagenHandler imagenHandler;
+
+    @Value("${imagen.reactivo.puerto:8081}")
+    private int puerto;
+
+    @Value("${imagen.reactivo.parada-segundos:10}")
+    private long paradaSegundos;
+
+    private volatile DisposableServer servidor;
+
+    @Override
+    public void start() {
+        ReactorHttpHandlerAdapter adaptador = new ReactorHttpHandlerAdapter(
+            RouterFunctions.toHttpHandler(imagenHandler.rutas()));
+        servidor = HttpServer.create()
+            .port(puerto)
+            .handle(adaptador)
+            .bindNow();
+        log.info("API reactiva de imagenes en el puerto {}", servidor.port());
+    }
+
+    // Deja terminar las descargas en curso hasta parada-segundos
+    @Override
+    public void stop() {
+        DisposableServer actual = servidor;
+        servidor = null;
+        if (actual != null) {
+            actual.disposeNow(Duration.ofSeconds(paradaSegundos));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    public int getPuerto() {
+        DisposableServer actual = servidor;
+        return actual != null ? actual.port() : -1;
+    }
+}
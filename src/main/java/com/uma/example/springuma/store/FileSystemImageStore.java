@@ -0,0 +1,183 @@
+package com.uma.example.springuma.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.MetricasCodec;
+
+// Implementacion en disco: cada contenido se guarda en <raiz>/ab/cd/<clave>.
+// El put y el deleteSinUso de una misma clave se serializan con un cerrojo por clave (repartidas en CERROJOS
+// cerrojos); las reservas de los put se cuentan en memoria, por clave.
+@Component
+public class FileSystemImageStore implements ImageStore {
+
+    private static final Pattern CLAVE = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]+){0,2}");
+    private static final int CERROJOS = 64;
+
+    private final Path raiz;
+    private final Path temporales;
+    private final ReentrantLock[] cerrojos = new ReentrantLock[CERROJOS];
+    private final Map<String, Integer> reservas = new ConcurrentHashMap<>();
+
+    public FileSystemImageStore(@Value("${imagen.store.path:./imagenes}") String ruta) {
+        this.raiz = Paths.get(ruta).toAbsolutePath().normalize();
+        this.temporales = raiz.resolve("tmp");
+        try {
+            Files.createDirectories(temporales);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede crear el almacen de imagenes en " + raiz, e);
+        }
+        for (int i = 0; i < CERROJOS; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public StoredImage put(InputStream contenido, ImageCodec codec) throws IOException {
+        // Primero se escribe en un temporal calculando el hash del original; despues se mueve a su ruta definitiva
+        Path temporal = Files.createTempFile(temporales, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long inicio = System.nanoTime();
+            long size;
+            try (InputStream original = new DigestInputStream(contenido, digest);
+                    OutputStream out = codec.encode(Files.newOutputStream(temporal))) {
+                size = original.transferTo(out);
+            }
+            MetricasCodec.registrar(codec.id(), "encode", size, Files.size(temporal), System.nanoTime() - inicio);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String clave = ImageStore.clave(hash, codec.id());
+            Path destino = ruta(clave);
+            ReentrantLock cerrojo = cerrojo(clave);
+            cerrojo.lock();
+            try {
+                // Si otra subida con el mismo contenido ha llegado antes ya esta guardado
+                if (!Files.exists(destino)) {
+                    Files.createDirectories(destino.getParent());
+                    Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                }
+                reservas.merge(clave, 1, Integer::sum);
+            } finally {
+                cerrojo.unlock();
+            }
+            return new StoredImage(hash, size, codec.id());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public void liberar(String clave) {
+        reservas.computeIfPresent(clave, (c, n) -> n == 1 ? null : n - 1);
+    }
+
+    @Override
+    public void put(String clave, InputStream contenido) throws IOException {
+        Path destino = ruta(clave);
+        Path temporal = Files.createTempFile(temporales, "variante", ".tmp");
+        try {
+            Files.copy(contenido, temporal, StandardCopyOption.REPLACE_EXISTING);
+            Files.createDirectories(destino.getParent());
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public boolean exists(String clave) {
+        return Files.exists(ruta(clave));
+    }
+
+    @Override
+    public long size(String clave) throws IOException {
+        return Files.size(ruta(clave));
+    }
+
+    @Override
+    public InputStream open(String clave) throws IOException {
+        return Files.newInputStream(ruta(clave));
+    }
+
+    @Override
+    public long transferTo(String clave, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(ruta(clave), StandardOpenOption.READ)) {
+            long transferidos = 0;
+            while (transferidos < count) {
+                long n = channel.transferTo(position + transferidos, count - transferidos, target);
+                if (n <= 0) {
+                    break;
+                }
+                transferidos += n;
+            }
+            return transferidos;
+        }
+    }
+
+    @Override
+    public Path localPath(String clave) {
+        return ruta(clave);
+    }
+
+    @Override
+    public void delete(String clave) throws IOException {
+        Files.deleteIfExists(ruta(clave));
+    }
+
+    @Override
+    public boolean deleteSinUso(String clave, BooleanSupplier sinUso) throws IOException {
+        Path fichero = ruta(clave);
+        ReentrantLock cerrojo = cerrojo(clave);
+        cerrojo.lock();
+        try {
+            if (reservas.containsKey(clave) || !sinUso.getAsBoolean()) {
+                return false;
+            }
+            Files.deleteIfExists(fichero);
+            return true;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private ReentrantLock cerrojo(String clave) {
+        return cerrojos[Math.floorMod(clave.hashCode(), CERROJOS)];
+    }
+
+    private Path ruta(String clave) {
+        if (!CLAVE.matcher(clave).matches()) {
+            throw new IllegalArgumentException("Clave no valida: " + clave);
+        }
+        return raiz.resolve(clave.substring(0, 2)).resolve(clave.substring(2, 4)).resolve(clave);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
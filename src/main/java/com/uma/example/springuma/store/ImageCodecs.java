@@ -0,0 +1,99 @@
+package com.uma.example.springuma.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.uma.example.springuma.utils.DeflateCodec;
+import com.uma.example.springuma.utils.IdentityCodec;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.Lz4Codec;
+
+// Codecs disponibles para el contenido de las imagenes y eleccion del codec de cada subida.
+// Los formatos que ya vienen comprimidos (PNG, JPEG, GIF, WebP) se guardan tal cual; el resto con el codec
+// configurado en imagen.codec.por-defecto.
+@Component
+public class ImageCodecs {
+
+    // Bytes que hace falta leer del principio del fichero para reconocer el formato
+    public static final int CABECERA = 12;
+
+    private final Map<String, ImageCodec> codecs;
+    private final ImageCodec porDefecto;
+    private final boolean detectarComprimidos;
+
+    public ImageCodecs(@Value("${imagen.codec.por-defecto:deflate}") String porDefecto,
+            @Value("${imagen.codec.deflate.nivel:6}") int nivelDeflate,
+            @Value("${imagen.codec.pool:16}") int tamanoPool,
+            @Value("${imagen.codec.detectar-comprimidos:true}") boolean detectarComprimidos) {
+        this.codecs = Map.of(
+            IdentityCodec.ID, new IdentityCodec(),
+            DeflateCodec.ID, new DeflateCodec(nivelDeflate, tamanoPool),
+            Lz4Codec.ID, new Lz4Codec());
+        this.porDefecto = get(porDefecto);
+        this.detectarComprimidos = detectarComprimidos;
+    }
+
+    // Las imagenes anteriores a la columna codec estan comprimidas con deflate
+    public ImageCodec get(String id) {
+        ImageCodec codec = codecs.get(id == null ? DeflateCodec.ID : id);
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec desconocido: " + id);
+        }
+        return codec;
+    }
+
+    // Elige el codec mirando los primeros bytes del stream, que tiene que soportar mark/reset
+    public ImageCodec elegir(InputStream contenido) throws IOException {
+        if (!detectarComprimidos) {
+            return porDefecto;
+        }
+        return yaComprimido(cabecera(contenido)) ? get(IdentityCodec.ID) : porDefecto;
+    }
+
+    // Primeros CABECERA bytes del stream, que tiene que soportar mark/reset, sin consumirlos
+    public static byte[] cabecera(InputStream contenido) throws IOException {
+        contenido.mark(CABECERA);
+        byte[] cabecera = contenido.readNBytes(CABECERA);
+        contenido.reset();
+        return cabecera;
+    }
+
+    // Tipo MIME de los formatos de imagen reconocidos por su cabecera, o null
+    public static String tipo(byte[] c) {
+        if (empiezaPor(c, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (empiezaPor(c, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (empiezaPor(c, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (empiezaPor(c, 'R', 'I', 'F', 'F') && c.length >= 12
+                && Arrays.equals(c, 8, 12, new byte[] {'W', 'E', 'B', 'P'}, 0, 4)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    static boolean yaComprimido(byte[] c) {
+        return tipo(c) != null;
+    }
+
+    private static boolean empiezaPor(byte[] datos, int... prefijo) {
+        if (datos.length < prefijo.length) {
+            return false;
+        }
+        for (int i = 0; i < prefijo.length; i++) {
+            if ((datos[i] & 0xFF) != prefijo[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
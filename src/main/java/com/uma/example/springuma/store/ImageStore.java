@@ -0,0 +1,62 @@
+package com.uma.example.springuma.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import com.uma.example.springuma.utils.IdentityCodec;
+import com.uma.example.springuma.utils.ImageCodec;
+
+// Almacen de contenido de imagenes direccionado por el hash SHA-256 del contenido original.
+// Dos subidas con los mismos bytes (y el mismo codec) comparten un unico fichero.
+// Los contenidos se identifican por su clave: el hash, seguido de ".codec" si no se guardan tal cual.
+// Las variantes reducidas de una imagen (miniatura, vista previa) se guardan con la clave del hash del original
+// seguida de ".<lado>.<version>" (formato y calidad), de modo que las comparten todas las imagenes con el mismo
+// contenido.
+public interface ImageStore {
+
+    // Resultado de guardar un contenido: hash (hex) y tamaño del original, y codec con el que se ha guardado
+    record StoredImage(String hash, long size, String codec) {}
+
+    static String clave(String hash, String codec) {
+        return IdentityCodec.ID.equals(codec) ? hash : hash + "." + codec;
+    }
+
+    static String claveVariante(String hash, int lado, String version) {
+        return hash + "." + lado + "." + version;
+    }
+
+    // Guarda el contenido codificado con codec; el hash y el tamaño son los del contenido sin codificar.
+    // El contenido queda reservado hasta que se llama a liberar con su clave: mientras tanto deleteSinUso no lo borra
+    // aunque todavia no haya ninguna fila que lo use (la de la imagen se guarda despues)
+    StoredImage put(InputStream contenido, ImageCodec codec) throws IOException;
+
+    // Quita una reserva de put, cuando la fila que usa el contenido ya esta guardada (o se ha descartado)
+    void liberar(String clave);
+
+    // Guarda el contenido tal cual con una clave dada (variantes derivadas de otro contenido)
+    void put(String clave, InputStream contenido) throws IOException;
+
+    boolean exists(String clave);
+
+    // Tamaño de lo guardado con la clave (codificado)
+    long size(String clave) throws IOException;
+
+    // Devuelve los bytes tal cual estan guardados (codificados)
+    InputStream open(String clave) throws IOException;
+
+    // Copia [position, position + count) de lo guardado al canal destino sin pasar por el heap
+    long transferTo(String clave, long position, long count, WritableByteChannel target) throws IOException;
+
+    // Ruta local del contenido si el almacen esta en disco (para sendfile), null en otro caso
+    Path localPath(String clave);
+
+    void delete(String clave) throws IOException;
+
+    // Borra un contenido guardado con put si no esta reservado y sinUso confirma que nadie lo usa (no quedan filas
+    // con el). La comprobacion y el borrado no se mezclan con un put del mismo contenido: o el put llega despues y
+    // lo vuelve a escribir, o llega antes y su reserva impide el borrado. Devuelve false si se usa y no se ha borrado
+    boolean deleteSinUso(String clave, BooleanSupplier sinUso) throws IOException;
+}
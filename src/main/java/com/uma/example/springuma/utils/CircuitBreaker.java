@@ -0,0 +1,62 @@
+package com.uma.example.springuma.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Circuit breaker sencillo para llamadas a servicios externos.
+// CERRADO: se deja pasar todo. Tras "umbralFallos" fallos seguidos pasa a ABIERTO y rechaza las llamadas durante
+// "tiempoAbiertoMs"; despues pasa a SEMIABIERTO y deja pasar una unica llamada de prueba que decide si se cierra
+// o se vuelve a abrir. Si la llamada de prueba no registra su resultado en "tiempoAbiertoMs" se deja pasar otra.
+// No usa bloqueos, asi que no bloquea hilos (tampoco virtuales).
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final int umbralFallos;
+    private final long tiempoAbiertoMs;
+
+    private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.CERRADO);
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    // Desde cuando esta abierto, o desde la ultima llamada de prueba si esta semiabierto
+    private final AtomicLong abiertoDesde = new AtomicLong();
+
+    public CircuitBreaker(int umbralFallos, long tiempoAbiertoMs) {
+        this.umbralFallos = umbralFallos;
+        this.tiempoAbiertoMs = tiempoAbiertoMs;
+    }
+
+    // Devuelve true si la llamada puede hacerse. Quien obtiene true debe llamar despues a registrarExito o registrarFallo
+    public boolean permitir() {
+        Estado actual = estado.get();
+        if (actual == Estado.CERRADO) {
+            return true;
+        }
+        // Abierto durante tiempoAbiertoMs, o semiabierto con una llamada de prueba que en ese tiempo no ha registrado
+        // su resultado (interrumpida, excepcion inesperada): se deja hacer una llamada de prueba
+        long desde = abiertoDesde.get();
+        long ahora = System.currentTimeMillis();
+        if (ahora - desde >= tiempoAbiertoMs && abiertoDesde.compareAndSet(desde, ahora)) {
+            // Solo el primer hilo que llega hace la llamada de prueba
+            estado.compareAndSet(actual, Estado.SEMIABIERTO);
+            return true;
+        }
+        return false;
+    }
+
+    public void registrarExito() {
+        fallosSeguidos.set(0);
+        estado.set(Estado.CERRADO);
+    }
+
+    public void registrarFallo() {
+        if (estado.get() == Estado.SEMIABIERTO || fallosSeguidos.incrementAndGet() >= umbralFallos) {
+            abiertoDesde.set(System.currentTimeMillis());
+            estado.set(Estado.ABIERTO);
+        }
+    }
+
+    public Estado getEstado() {
+        return estado.get();
+    }
+}
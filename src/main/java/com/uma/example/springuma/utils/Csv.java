@@ -0,0 +1,55 @@
+package com.uma.example.springuma.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lectura de lineas CSV separadas por comas, con campos opcionalmente entre comillas dobles ("" dentro de un campo
+// entrecomillado es una comilla). No admite saltos de linea dentro de un campo: cada linea es un registro.
+public class Csv {
+
+    public static List<String> campos(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(campo.toString().trim());
+        return campos;
+    }
+
+    // Valores de la linea por nombre de columna; los campos vacios quedan a null
+    public static Map<String, String> registro(List<String> columnas, String linea) {
+        List<String> valores = campos(linea);
+        if (valores.size() != columnas.size()) {
+            throw new IllegalArgumentException("Se esperaban " + columnas.size() + " campos y hay " + valores.size());
+        }
+        Map<String, String> registro = new HashMap<>();
+        for (int i = 0; i < columnas.size(); i++) {
+            registro.put(columnas.get(i), valores.get(i).isEmpty() ? null : valores.get(i));
+        }
+        return registro;
+    }
+}
@@ -0,0 +1,48 @@
+package com.uma.example.springuma.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Cursores opacos de la paginacion por clave (keyset): guardan el orden y los valores de la clave del ultimo
+// elemento devuelto, en Base64 URL-safe. El cliente solo tiene que devolverlos tal cual en la siguiente peticion.
+public class CursorPagina {
+
+    private static final String SEPARADOR = "|";
+
+    public static String codificar(String orden, Object... clave) {
+        StringBuilder texto = new StringBuilder(orden);
+        for (Object valor : clave) {
+            texto.append(SEPARADOR).append(valor == null ? "" : valor);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Devuelve los valores de la clave; falla si el cursor no es valido o se genero con otro orden
+    public static String[] decodificar(String cursor, String orden, int valores) {
+        String texto;
+        try {
+            texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor no valido: " + cursor);
+        }
+        String[] partes = texto.split("\\" + SEPARADOR, -1);
+        if (partes.length != valores + 1 || !partes[0].equals(orden)) {
+            throw new IllegalArgumentException("Cursor no valido para el orden " + orden + ": " + cursor);
+        }
+        String[] clave = new String[valores];
+        System.arraycopy(partes, 1, clave, 0, valores);
+        return clave;
+    }
+
+    public static long decodificarId(String cursor, String orden) {
+        return parseLong(decodificar(cursor, orden, 1)[0], cursor);
+    }
+
+    public static long parseLong(String valor, String cursor) {
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor no valido: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.uma.example.springuma.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Deflate (zlib) con nivel configurable. Los Deflater/Inflater reservan memoria nativa, asi que se reutilizan
+// desde un pool acotado y se liberan con end() cuando no caben en el.
+public class DeflateCodec implements ImageCodec {
+
+    public static final String ID = "deflate";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final int nivel;
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    public DeflateCodec(int nivel, int tamanoPool) {
+        this.nivel = nivel;
+        this.deflaters = new ArrayBlockingQueue<>(tamanoPool);
+        this.inflaters = new ArrayBlockingQueue<>(tamanoPool);
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    public int getNivel() {
+        return nivel;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream destino) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(nivel);
+        }
+        final Deflater usado = deflater;
+        return new DeflaterOutputStream(destino, usado, BUFFER_SIZE) {
+            private boolean cerrado;
+
+            @Override
+            public void close() throws IOException {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+                try {
+                    super.close();
+                } finally {
+                    devolver(usado);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(InputStream origen) {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        final Inflater usado = inflater;
+        return new InflaterInputStream(origen, usado, BUFFER_SIZE) {
+            private boolean cerrado;
+
+            @Override
+            public void close() throws IOException {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+                try {
+                    super.close();
+                } finally {
+                    devolver(usado);
+                }
+            }
+        };
+    }
+
+    private void devolver(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private void devolver(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+}
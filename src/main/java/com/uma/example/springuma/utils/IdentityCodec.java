@@ -0,0 +1,26 @@
+package com.uma.example.springuma.utils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Guarda el contenido tal cual. Es el codec para formatos ya comprimidos (PNG, JPEG...), donde volver a comprimir
+// gasta CPU sin reducir el tamaño, y el unico que permite servir el fichero con sendfile/transferTo.
+public class IdentityCodec implements ImageCodec {
+
+    public static final String ID = "identity";
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream destino) {
+        return destino;
+    }
+
+    @Override
+    public InputStream decode(InputStream origen) {
+        return origen;
+    }
+}
@@ -0,0 +1,18 @@
+package com.uma.example.springuma.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Codificacion con la que se guarda el contenido de una imagen. El id se guarda en la columna Imagen.codec
+// para poder decodificar siempre el contenido aunque cambie la configuracion.
+public interface ImageCodec {
+
+    String id();
+
+    // Devuelve un stream que codifica lo que se escribe en el y lo pasa a destino. Al cerrarlo se cierra destino.
+    OutputStream encode(OutputStream destino) throws IOException;
+
+    // Devuelve un stream que decodifica lo que lee de origen. Al cerrarlo se cierra origen.
+    InputStream decode(InputStream origen) throws IOException;
+}
@@ -1,34 +1,42 @@
 package com.uma.example.springuma.utils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
 public class ImageUtils {
 
+    // Codec con el que estan comprimidas las imagenes antiguas guardadas en la columna file_content
+    private static final DeflateCodec DEFLATE = new DeflateCodec(Deflater.BEST_COMPRESSION, 8);
 
     public static byte[] compressImage(byte[] data) {
+        long inicio = System.nanoTime();
         Deflater deflater = new Deflater();
-        deflater.setLevel(Deflater.BEST_COMPRESSION);
-        deflater.setInput(data);
-        deflater.finish();
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-        byte[] tmp = new byte[4*1024];
-        while (!deflater.finished()) {
-            int size = deflater.deflate(tmp);
-            outputStream.write(tmp, 0, size);
-        }
         try {
-            outputStream.close();
-        } catch (Exception ignored) {
+            deflater.setLevel(Deflater.BEST_COMPRESSION);
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+            byte[] tmp = new byte[4*1024];
+            while (!deflater.finished()) {
+                int size = deflater.deflate(tmp);
+                outputStream.write(tmp, 0, size);
+            }
+            MetricasCodec.registrar(DeflateCodec.ID, "compress", data.length, outputStream.size(), System.nanoTime() - inicio);
+            return outputStream.toByteArray();
+        } finally {
+            // Libera la memoria nativa de zlib sin esperar al GC
+            deflater.end();
         }
-        return outputStream.toByteArray();
     }
 
 
 
     public static byte[] decompressImage(byte[] data) {
+        long inicio = System.nanoTime();
         Inflater inflater = new Inflater();
         inflater.setInput(data);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
@@ -38,10 +46,18 @@ public class ImageUtils {
                 int count = inflater.inflate(tmp);
                 outputStream.write(tmp, 0, count);
             }
-            outputStream.close();
         } catch (Exception ignored) {
+        } finally {
+            inflater.end();
         }
+        MetricasCodec.registrar(DeflateCodec.ID, "decompress", data.length, outputStream.size(), System.nanoTime() - inicio);
         return outputStream.toByteArray();
     }
 
+    // Version en streaming de decompressImage, para leer las imagenes antiguas de la columna file_content
+    // sin cargarlas enteras en memoria. Los Inflater se reutilizan de un pool.
+    public static InputStream decompressingStream(InputStream data) throws IOException {
+        return DEFLATE.decode(data);
+    }
+
 }
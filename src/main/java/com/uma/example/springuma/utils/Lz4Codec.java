@@ -0,0 +1,29 @@
+package com.uma.example.springuma.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+// LZ4 (formato frame): comprime peor que deflate pero es varias veces mas rapido comprimiendo y descomprimiendo
+public class Lz4Codec implements ImageCodec {
+
+    public static final String ID = "lz4";
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream destino) throws IOException {
+        return new LZ4FrameOutputStream(destino);
+    }
+
+    @Override
+    public InputStream decode(InputStream origen) throws IOException {
+        return new LZ4FrameInputStream(origen);
+    }
+}
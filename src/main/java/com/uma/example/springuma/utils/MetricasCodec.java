@@ -0,0 +1,42 @@
+package com.uma.example.springuma.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+// Metricas de compresion/descompresion: duracion, bytes de entrada y salida y ratio salida/entrada.
+// ImageUtils es estatica, asi que se usa el registro global, al que Spring Boot añade el suyo.
+public final class MetricasCodec {
+
+    private MetricasCodec() {
+    }
+
+    public static void registrar(String codec, String operacion, long bytesEntrada, long bytesSalida, long nanos) {
+        MeterRegistry registry = Metrics.globalRegistry;
+        Tags tags = Tags.of("codec", codec, "operacion", operacion);
+        Timer.builder("springuma.codec.duracion")
+            .tags(tags)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("springuma.codec.entrada")
+            .baseUnit("bytes")
+            .tags(tags)
+            .register(registry)
+            .record(bytesEntrada);
+        DistributionSummary.builder("springuma.codec.salida")
+            .baseUnit("bytes")
+            .tags(tags)
+            .register(registry)
+            .record(bytesSalida);
+        if (bytesEntrada > 0) {
+            DistributionSummary.builder("springuma.codec.ratio")
+                .tags(tags)
+                .register(registry)
+                .record((double) bytesSalida / bytesEntrada);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.uma.example.springuma.utils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+// Reduccion de imagenes con ImageIO para las variantes de menor tamaño (miniatura, vista previa)
+public final class Miniaturas {
+
+    private Miniaturas() {
+    }
+
+    // Decodifica la imagen submuestreando cuando es mucho mayor que ladoMaximo: solo se leen una de cada n filas y
+    // columnas, y el original no llega a estar entero en memoria. Se deja al menos el doble de resolucion para que
+    // la reduccion final tenga de donde promediar. Devuelve null si ImageIO no reconoce el formato.
+    public static BufferedImage leer(ImageInputStream entrada, int ladoMaximo) throws IOException {
+        Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+        if (!lectores.hasNext()) {
+            return null;
+        }
+        ImageReader lector = lectores.next();
+        try {
+            lector.setInput(entrada, true, true);
+            int paso = Math.max(lector.getWidth(0), lector.getHeight(0)) / (2 * ladoMaximo);
+            ImageReadParam param = lector.getDefaultReadParam();
+            if (paso > 1) {
+                param.setSourceSubsampling(paso, paso, 0, 0);
+            }
+            return lector.read(0, param);
+        } finally {
+            lector.dispose();
+        }
+    }
+
+    // Reduce la imagen para que su lado mayor mida como mucho lado, a mitades sucesivas y un ultimo paso bilineal
+    // (un solo paso bilineal desde una imagen mucho mayor pierde detalle). Las imagenes mas pequeñas no se amplian.
+    // Las de un solo canal se mantienen en escala de grises; conAlfa conserva la transparencia.
+    public static BufferedImage reducir(BufferedImage imagen, int lado, boolean conAlfa) {
+        double escala = Math.min(1.0, (double) lado / Math.max(imagen.getWidth(), imagen.getHeight()));
+        int anchoFinal = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+        int altoFinal = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+        int tipo = imagen.getColorModel().getNumColorComponents() == 1 && !imagen.getColorModel().hasAlpha()
+            ? BufferedImage.TYPE_BYTE_GRAY
+            : conAlfa && imagen.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage actual = imagen;
+        int ancho = imagen.getWidth();
+        int alto = imagen.getHeight();
+        do {
+            ancho = Math.max(anchoFinal, ancho / 2);
+            alto = Math.max(altoFinal, alto / 2);
+            actual = dibujar(actual, ancho, alto, tipo);
+        } while (ancho != anchoFinal || alto != altoFinal);
+        return actual;
+    }
+
+    // Escribe la imagen con el writer de ImageIO del formato; calidad (0-1) solo se aplica a los formatos con perdida
+    public static void escribir(BufferedImage imagen, String formato, float calidad, OutputStream out) throws IOException {
+        ImageWriter escritor = escritor(formato);
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(out)) {
+            escritor.setOutput(salida);
+            ImageWriteParam param = escritor.getDefaultWriteParam();
+            if (param.canWriteCompressed() && esJpeg(formato)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(calidad);
+            }
+            escritor.write(null, new IIOImage(imagen, null, null), param);
+        } finally {
+            escritor.dispose();
+        }
+    }
+
+    // Tipo MIME de las imagenes escritas en el formato
+    public static String tipo(String formato) {
+        ImageWriter escritor = escritor(formato);
+        try {
+            return escritor.getOriginatingProvider().getMIMETypes()[0];
+        } finally {
+            escritor.dispose();
+        }
+    }
+
+    private static ImageWriter escritor(String formato) {
+        Iterator<ImageWriter> escritores = ImageIO.getImageWritersByFormatName(formato);
+        if (!escritores.hasNext()) {
+            throw new IllegalArgumentException("Formato de imagen no soportado: " + formato);
+        }
+        return escritores.next();
+    }
+
+    private static boolean esJpeg(String formato) {
+        return "jpg".equalsIgnoreCase(formato) || "jpeg".equalsIgnoreCase(formato);
+    }
+
+    private static BufferedImage dibujar(BufferedImage origen, int ancho, int alto, int tipo) {
+        BufferedImage destino = new BufferedImage(ancho, alto, tipo);
+        Graphics2D g = destino.createGraphics();
+        try {
+            if (tipo != BufferedImage.TYPE_INT_ARGB) {
+                // Las zonas transparentes quedan en blanco y no en negro
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, ancho, alto);
+            }
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(origen, 0, 0, ancho, alto, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+}
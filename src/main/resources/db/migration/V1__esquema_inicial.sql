@@ -0,0 +1,57 @@
+-- Esquema que creaba Hibernate con ddl-auto=update antes de las migraciones, tal cual. Las bases de datos que ya
+-- existian se marcan con esta version al aplicar las migraciones por primera vez (spring.flyway.baseline-on-migrate)
+-- y siguen por la V2, asi que aqui no puede haber nada que no tuvieran: lo nuevo va en las siguientes versiones.
+-- Las secuencias las ajusta despues SecuenciasMigracion a la reserva configurada (entidades.id.reserva)
+
+create sequence imagen_seq start with 1 increment by 50;
+create sequence informe_seq start with 1 increment by 50;
+create sequence medico_seq start with 1 increment by 50;
+create sequence paciente_seq start with 1 increment by 50;
+
+create table imagen (
+    id bigint not null,
+    fecha timestamp(6),
+    file_content blob,
+    nombre varchar(255),
+    paciente_id bigint,
+    primary key (id)
+);
+
+create table informe (
+    id bigint not null,
+    contenido text,
+    prediccion varchar(255),
+    imagen_id bigint,
+    primary key (id)
+);
+
+create table medico (
+    id bigint not null,
+    dni varchar(255),
+    especialidad varchar(255),
+    nombre varchar(255),
+    primary key (id)
+);
+
+create table paciente (
+    id bigint not null,
+    cita varchar(255),
+    dni varchar(255),
+    edad integer,
+    nombre varchar(255),
+    medico_id bigint,
+    primary key (id)
+);
+
+alter table medico add constraint UK_bxikgoxgf4c1147wat5jth878 unique (dni);
+
+alter table paciente add constraint UK_wr6kxhpayd3jdludsytbn8ag unique (dni);
+
+alter table imagen add constraint FKimrycmhlrxo3mct9129vhslet
+    foreign key (paciente_id) references paciente on delete cascade;
+
+alter table informe add constraint FK6eiijurdyxky4959wf40p9kiv
+    foreign key (imagen_id) references imagen on delete cascade;
+
+alter table paciente add constraint FKdb6ggrau4kxv0xcu8n17bmn9u
+    foreign key (medico_id) references medico on delete cascade;
@@ -0,0 +1,24 @@
+-- Columnas y tablas que se han añadido al esquema inicial: el contenido de las imagenes en el ImageStore y las
+-- predicciones en segundo plano y en cache.
+--
+-- Solo se añaden columnas que admiten null y sin valor por defecto, asi que no hay que calcular ni escribir nada en
+-- las filas que ya existen: las imagenes antiguas se quedan con hash a null y las pasa al ImageStore
+-- ImagenStoreMigracion en segundo plano, por lotes. H2 rehace la tabla al añadir una columna, pero sin copiar el
+-- contenido de los LOB (file_content), que siguen donde estaban: con 1000 imagenes de 200 KB cada columna tarda
+-- alrededor de 0,1 s y el fichero de la base de datos no crece. Con "if not exists" porque las bases de datos
+-- arrancadas con alguna version intermedia (aun con ddl-auto=update) ya pueden tener algunas
+
+alter table imagen add column if not exists hash varchar(64);
+alter table imagen add column if not exists codec varchar(16);
+alter table imagen add column if not exists tamano bigint;
+alter table imagen add column if not exists tipo varchar(100);
+
+alter table informe add column if not exists estado_prediccion varchar(16)
+    check (estado_prediccion in ('PENDIENTE','COMPLETADA','ERROR'));
+
+create table if not exists prediccion_cache (
+    fecha timestamp(6),
+    clave varchar(200) not null,
+    puntuaciones varchar(1000),
+    primary key (clave)
+);
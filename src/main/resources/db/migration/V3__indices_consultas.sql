@@ -0,0 +1,37 @@
+-- Indices de las consultas de los repositorios (PlanesConsultaIT comprueba que ninguna recorre una tabla o un
+-- indice entero).
+--
+-- Las busquedas por clave ajena usan el indice de la clave ajena. H2 crea uno por su cuenta para cada clave ajena
+-- que no tiene un indice con exactamente sus columnas, y con el nombre de la restriccion; se quitan las claves
+-- ajenas, se crean los indices con nombre y se vuelven a añadir para que usen estos. Cada indice de H2 lleva al
+-- final la clave primaria, asi que ya esta ordenado por (clave ajena, id), el orden de la paginacion por clave.
+-- Un indice (paciente_id, fecha) no serviria: H2 no lo usa para ordenar por fecha tras la igualdad de paciente_id,
+-- escoge el de la clave ajena, y seria un indice mas que mantener en cada escritura
+
+alter table paciente drop constraint if exists FKdb6ggrau4kxv0xcu8n17bmn9u;
+alter table imagen drop constraint if exists FKimrycmhlrxo3mct9129vhslet;
+alter table informe drop constraint if exists FK6eiijurdyxky4959wf40p9kiv;
+
+-- RepositoryPaciente.findByMedicoId y la paginacion por (medico, id)
+create index paciente_medico on paciente (medico_id);
+
+-- RepositoryImagen.getByPacienteId y los listados de las imagenes de un paciente
+create index imagen_paciente on imagen (paciente_id);
+
+-- RepositoryInforme.findByImagenId, findResumenByImagenId y los informes de un paciente
+create index informe_imagen on informe (imagen_id);
+
+alter table paciente add constraint paciente_medico_fk
+    foreign key (medico_id) references medico on delete cascade;
+
+alter table imagen add constraint imagen_paciente_fk
+    foreign key (paciente_id) references paciente on delete cascade;
+
+alter table informe add constraint informe_imagen_fk
+    foreign key (imagen_id) references imagen on delete cascade;
+
+-- RepositoryImagen.countByHash, countByHashAndCodec y las imagenes sin migrar al ImageStore (hash is null)
+create index imagen_hash on imagen (hash, codec);
+
+-- RepositoryInforme.findIdsByEstado: los informes PENDIENTES que se reencolan
+create index informe_estado_prediccion on informe (estado_prediccion);
@@ -0,0 +1,166 @@
+package com.uma.example.springuma.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.jayway.jsonpath.JsonPath;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.BusquedaService;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// GET /search: lo guardado por los servicios se ve en la busqueda tras el siguiente refresco del indice
+// (busqueda.refresco-ms=100 en los tests), asi que cada busqueda se repite hasta que llegan los resultados esperados
+public class BusquedaMockMvcIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MedicoService medicoService;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private InformeService informeService;
+
+    @Autowired
+    private BusquedaService busquedaService;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    private Medico medico;
+    private Medico otroMedico;
+    private Paciente soraya;
+    private Informe informeSoraya;
+    private Informe informeMarcos;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        otroMedico = medicoService.addMedico(new Medico("87654321A", "Dra. Ana", "Oncologia"));
+        soraya = pacienteService.addPaciente(new Paciente("Soraya Bennaí", 40, "Consulta", "11111111B", medico));
+        Paciente marcos = pacienteService.addPaciente(new Paciente("Marcos Luque", 50, "Revision", "22222222B", otroMedico));
+        Imagen imagenSoraya = imagen(soraya, new GregorianCalendar(2024, Calendar.MARCH, 1));
+        Imagen imagenMarcos = imagen(marcos, new GregorianCalendar(2024, Calendar.JUNE, 1));
+        informeSoraya = informeService.addInforme(new Informe(null,
+            "Se observan microcalcificaciones agrupadas. Las microcalcificaciones son sospechosas", imagenSoraya));
+        informeMarcos = informeService.addInforme(new Informe(null, "Microcalcificación aislada de aspecto benigno",
+            imagenMarcos));
+        informeService.addInforme(new Informe(null, "Mama densa sin hallazgos", imagenMarcos));
+    }
+
+    @Test
+    @DisplayName("Los informes se encuentran por su contenido ordenados por relevancia, con filtros y paginados")
+    void informesPorContenido() throws Exception {
+        // Singular y plural, con y sin tilde
+        buscar(2, "q", "microcalcificación")
+            .andExpect(jsonPath("$.elementos[0].id").value(informeSoraya.getId()))
+            .andExpect(jsonPath("$.elementos[0].tipo").value("informe"))
+            .andExpect(jsonPath("$.elementos[0].titulo").value("Informe " + informeSoraya.getId() + " - Soraya Bennaí"))
+            .andExpect(jsonPath("$.elementos[0].medico").value(medico.getId()))
+            .andExpect(jsonPath("$.elementos[0].fecha").value("2024-03-01"))
+            .andExpect(jsonPath("$.elementos[1].id").value(informeMarcos.getId()));
+
+        // Por prefijo y filtrado por medico o por fecha de la imagen
+        buscar(1, "q", "microcalc", "medico", String.valueOf(otroMedico.getId()))
+            .andExpect(jsonPath("$.elementos[0].id").value(informeMarcos.getId()));
+        buscar(1, "q", "microcalcificaciones", "desde", "2024-05-01")
+            .andExpect(jsonPath("$.elementos[0].id").value(informeMarcos.getId()));
+        buscar(1, "q", "microcalcificaciones", "hasta", "2024-05-01")
+            .andExpect(jsonPath("$.elementos[0].id").value(informeSoraya.getId()));
+
+        String siguiente = JsonPath.read(buscar(1, "q", "microcalcificacion", "tamano", "1")
+            .andExpect(jsonPath("$.elementos[0].id").value(informeSoraya.getId()))
+            .andReturn().getResponse().getContentAsString(), "$.siguiente");
+        buscar(1, "q", "microcalcificacion", "tamano", "1", "cursor", siguiente)
+            .andExpect(jsonPath("$.elementos[0].id").value(informeMarcos.getId()))
+            .andExpect(jsonPath("$.siguiente").value(Matchers.nullValue()));
+    }
+
+    @Test
+    @DisplayName("Los pacientes se encuentran por parte del nombre y el índice sigue sus cambios y borrados")
+    void pacientesPorNombre() throws Exception {
+        buscar(1, "q", "Sora", "tipo", "paciente")
+            .andExpect(jsonPath("$.elementos[0].id").value(soraya.getId()))
+            .andExpect(jsonPath("$.elementos[0].titulo").value("Soraya Bennaí"));
+        buscar(2, "q", "bennai");
+
+        // El nuevo nombre tambien llega a los informes del paciente
+        soraya.setNombre("Soraya Sadqi");
+        pacienteService.updatePaciente(soraya);
+        buscar(2, "q", "Sadqi")
+            .andExpect(jsonPath("$.elementos[*].tipo", Matchers.containsInAnyOrder("paciente", "informe")));
+        buscar(0, "q", "Bennai");
+
+        // La base de datos borra en cascada sus imagenes e informes
+        pacienteService.removePacienteID(soraya.getId());
+        buscar(1, "q", "microcalcificaciones")
+            .andExpect(jsonPath("$.elementos[0].id").value(informeMarcos.getId()));
+    }
+
+    @Test
+    @DisplayName("La reindexación recoge lo guardado sin pasar por los servicios y las consultas no válidas dan 400")
+    void reindexacionYConsultasNoValidas() throws Exception {
+        repositoryPaciente.save(new Paciente("Lucía Importada", 30, "Consulta", "33333333B", medico));
+        busquedaService.ponerAlDia();
+        buscar(1, "q", "importada", "tipo", "paciente");
+
+        // Solo palabras vacias, tipo desconocido, cursor que no es de la busqueda y fecha mal escrita
+        mockMvc.perform(get("/search").param("q", "de la")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/search").param("q", "Soraya").param("tipo", "imagen")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/search").param("q", "Soraya").param("cursor", "abc")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/search").param("q", "Soraya").param("desde", "ayer")).andExpect(status().isBadRequest());
+    }
+
+    private Imagen imagen(Paciente paciente, Calendar fecha) {
+        Imagen imagen = new Imagen();
+        imagen.setNombre("imagen.png");
+        imagen.setFecha(fecha);
+        imagen.setPaciente(paciente);
+        return repositoryImagen.save(imagen);
+    }
+
+    // Repite la busqueda hasta que devuelve "esperados" resultados (o pasan 10 s) y comprueba cuantos son
+    private ResultActions buscar(int esperados, String... parametros) throws Exception {
+        long limite = System.currentTimeMillis() + 10000;
+        while (true) {
+            MockHttpServletRequestBuilder peticion = get("/search");
+            for (int i = 0; i < parametros.length; i += 2) {
+                peticion.param(parametros[i], parametros[i + 1]);
+            }
+            ResultActions resultado = mockMvc.perform(peticion).andExpect(status().isOk());
+            int encontrados = JsonPath.read(resultado.andReturn().getResponse().getContentAsString(),
+                "$.elementos.length()");
+            if (encontrados == esperados || System.currentTimeMillis() > limite) {
+                return resultado.andExpect(jsonPath("$.elementos.length()").value(esperados));
+            }
+            Thread.sleep(50);
+        }
+    }
+}
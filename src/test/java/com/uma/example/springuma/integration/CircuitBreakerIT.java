@@ -0,0 +1,37 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.uma.example.springuma.utils.CircuitBreaker;
+
+// Pruebas del circuit breaker del predictor, sin contexto de Spring
+public class CircuitBreakerIT {
+
+// En esta prueba la llamada de prueba del estado semiabierto no registra su resultado (como si se hubiera
+// interrumpido): pasado el tiempo de apertura se deja hacer otra y un exito lo cierra
+    @Test
+    @DisplayName("Deja hacer otra llamada de prueba si la anterior no registra su resultado")
+    public void semiabierto_sinResultado() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.registrarFallo();
+        assertEquals(CircuitBreaker.Estado.ABIERTO, circuitBreaker.getEstado());
+        assertFalse(circuitBreaker.permitir());
+
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.permitir());
+        assertEquals(CircuitBreaker.Estado.SEMIABIERTO, circuitBreaker.getEstado());
+        assertFalse(circuitBreaker.permitir());
+
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.permitir());
+        assertFalse(circuitBreaker.permitir());
+        circuitBreaker.registrarExito();
+        assertEquals(CircuitBreaker.Estado.CERRADO, circuitBreaker.getEstado());
+        assertTrue(circuitBreaker.permitir());
+    }
+}
@@ -0,0 +1,127 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.integration.base.SentenciasSql;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryInforme;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// El contenido antiguo de las imagenes (columna file_content) es LAZY: las lecturas de los metadatos de una imagen,
+// de sus informes y de las imagenes de un paciente, y los borrados, no lo leen. Solo la descarga lo lee
+public class ContenidoPerezosoIT extends AbstractIntegration {
+
+    private static final int IMAGENES = 3;
+
+    @Autowired
+    private MedicoService medicoService;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private InformeService informeService;
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private byte[] original;
+    private Paciente paciente;
+    private List<Long> idsImagenes;
+    private List<Long> idsInformes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        original = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+
+        idsImagenes = new ArrayList<>();
+        idsInformes = new ArrayList<>();
+        for (int i = 0; i < IMAGENES; i++) {
+            Imagen antigua = new Imagen(ImageUtils.compressImage(original), paciente);
+            antigua.setNombre("healthy" + i + ".png");
+            antigua.setFecha(Calendar.getInstance());
+            Imagen guardada = imagenService.addImagen(antigua);
+            idsImagenes.add(guardada.getId());
+            idsInformes.add(repositoryInforme.save(new Informe("Not cancer", "Informe " + i, guardada)).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Las lecturas de imagenes e informes no cargan el contenido de las imagenes")
+    void lecturas_sinContenido() {
+        List<Imagen> leidas = new ArrayList<>();
+        List<String> selects = SentenciasSql.selectsDe(jdbcTemplate, () -> {
+            leidas.add(imagenService.getImagen(idsImagenes.get(0)));
+            leidas.add(informeService.getInforme(idsInformes.get(0)).getImagen());
+            leidas.addAll(imagenService.getImagenesPaciente(paciente.getId()));
+        });
+
+        assertEquals(IMAGENES + 2, leidas.size());
+        for (Imagen imagen : leidas) {
+            assertFalse(Hibernate.isPropertyInitialized(imagen, "file_content"), () -> "Cargado en " + imagen);
+        }
+        assertSinContenido(selects);
+    }
+
+    @Test
+    @DisplayName("Borrar una imagen o un paciente con imagenes no carga su contenido")
+    void borrados_sinContenido() {
+        List<String> selects = SentenciasSql.selectsDe(jdbcTemplate, () -> {
+            imagenService.removeImagenByID(idsImagenes.get(0));
+            pacienteService.removePacienteID(paciente.getId());
+        });
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from imagen", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from informe", Integer.class));
+        assertSinContenido(selects);
+    }
+
+    @Test
+    @DisplayName("La descarga de una imagen antigua lee su contenido")
+    void descarga_leeContenido() throws Exception {
+        ByteArrayOutputStream descargada = new ByteArrayOutputStream();
+        imagenService.downloadImage(idsImagenes.get(1), descargada);
+
+        assertArrayEquals(original, descargada.toByteArray());
+    }
+
+    private static void assertSinContenido(List<String> selects) {
+        assertFalse(selects.isEmpty());
+        for (String select : selects) {
+            assertFalse(select.toLowerCase(Locale.ROOT).contains("file_content"), () -> "Lee el contenido: " + select);
+        }
+    }
+}
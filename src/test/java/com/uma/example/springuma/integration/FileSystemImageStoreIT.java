@@ -0,0 +1,108 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.uma.example.springuma.store.FileSystemImageStore;
+import com.uma.example.springuma.store.ImageCodecs;
+import com.uma.example.springuma.store.ImageStore;
+import com.uma.example.springuma.utils.DeflateCodec;
+import com.uma.example.springuma.utils.IdentityCodec;
+import com.uma.example.springuma.utils.ImageCodec;
+import com.uma.example.springuma.utils.Lz4Codec;
+
+// Pruebas del almacen de contenidos en disco y de los codecs del contenido, sin contexto de Spring
+public class FileSystemImageStoreIT {
+
+    private static final byte[] CONTENIDO = "contenido de una imagen".getBytes();
+
+    @TempDir
+    Path raiz;
+
+    private FileSystemImageStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new FileSystemImageStore(raiz.toString());
+    }
+
+// En esta prueba comprobamos que el contenido de una subida en curso (con la fila aun sin guardar) no se borra
+// aunque no lo use ninguna fila, y que una subida posterior al borrado lo vuelve a escribir
+    @Test
+    @DisplayName("No borra un contenido reservado por una subida en curso")
+    public void deleteSinUso_respetaReservas() throws Exception {
+        ImageStore.StoredImage primera = store.put(new ByteArrayInputStream(CONTENIDO), new IdentityCodec());
+        String clave = ImageStore.clave(primera.hash(), primera.codec());
+        store.liberar(clave);
+
+        // Subida del mismo contenido mientras se borra la imagen que lo usaba
+        store.put(new ByteArrayInputStream(CONTENIDO), new IdentityCodec());
+        assertFalse(store.deleteSinUso(clave, () -> true));
+        assertTrue(store.exists(clave));
+
+        // Guardada su fila, la comprobacion de filas decide
+        store.liberar(clave);
+        assertFalse(store.deleteSinUso(clave, () -> false));
+        assertTrue(store.exists(clave));
+        assertTrue(store.deleteSinUso(clave, () -> true));
+        assertFalse(store.exists(clave));
+
+        store.put(new ByteArrayInputStream(CONTENIDO), new IdentityCodec());
+        try (InputStream in = store.open(clave)) {
+            assertArrayEquals(CONTENIDO, in.readAllBytes());
+        }
+    }
+
+// En esta prueba comprobamos que un contenido guardado con deflate o con lz4 ocupa menos en disco y que al
+// decodificarlo se recuperan los mismos bytes
+    @Test
+    @DisplayName("Recupera el contenido guardado con deflate y con lz4")
+    public void put_codecsComprimidos_recuperaContenido() throws Exception {
+        byte[] contenido = "fila de pixeles repetida ".repeat(4096).getBytes();
+
+        for (ImageCodec codec : List.of(new DeflateCodec(6, 2), new Lz4Codec())) {
+            ImageStore.StoredImage guardada = store.put(new ByteArrayInputStream(contenido), codec);
+            String clave = ImageStore.clave(guardada.hash(), guardada.codec());
+            store.liberar(clave);
+
+            assertEquals(codec.id(), guardada.codec());
+            assertTrue(store.size(clave) < contenido.length);
+            try (InputStream in = codec.decode(store.open(clave))) {
+                assertArrayEquals(contenido, in.readAllBytes());
+            }
+        }
+    }
+
+// En esta prueba comprobamos que los PNG y JPEG se guardan sin volver a comprimir, que el resto usa el codec por
+// defecto y que la eleccion no consume la cabecera del stream
+    @Test
+    @DisplayName("Elige el codec identidad para PNG y JPEG")
+    public void elegir_pngYJpeg_identidad() throws Exception {
+        ImageCodecs codecs = new ImageCodecs(DeflateCodec.ID, 6, 2, true);
+        byte[] png = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1, 1};
+
+        for (byte[] imagen : List.of(png, jpeg)) {
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(imagen));
+            assertEquals(IdentityCodec.ID, codecs.elegir(in).id());
+            assertArrayEquals(imagen, in.readAllBytes());
+        }
+        InputStream texto = new BufferedInputStream(new ByteArrayInputStream(CONTENIDO));
+        assertEquals(DeflateCodec.ID, codecs.elegir(texto).id());
+    }
+}
@@ -0,0 +1,82 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.PredictorStub;
+import com.uma.example.springuma.model.ImagenAPIPredictor;
+import com.uma.example.springuma.model.PredictorNoDisponibleException;
+import com.uma.example.springuma.utils.CircuitBreaker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Pruebas del cliente del predictor contra un servidor local (PredictorStub), sin contexto de Spring
+public class ImagenAPIPredictorIT {
+
+    private PredictorStub stub;
+    private ImagenAPIPredictor predictor;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new PredictorStub();
+        // timeout de lectura de 300 ms, 2 reintentos con espera base de 10 ms y circuit breaker que abre con 2 fallos
+        registry = new SimpleMeterRegistry();
+        predictor = new ImagenAPIPredictor(new ObjectMapper(), registry, stub.getUrl(), "Bearer test",
+            1000, 300, 4, 2, 10, 50, 4, 100, 2, 60000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        predictor.destroy();
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("Devuelve las puntuaciones del modelo")
+    public void query_success() throws Exception {
+        Map<String, Double> puntuaciones = predictor.query(new byte[] {1, 2, 3});
+
+        assertEquals(0.9, puntuaciones.get("LABEL_0"));
+        assertEquals(0.1, puntuaciones.get("LABEL_1"));
+    }
+
+    @Test
+    @DisplayName("Reintenta mientras el modelo se esta cargando (503)")
+    public void query_retriesOnModelLoading() throws Exception {
+        stub.responder(503, "{\"error\":\"Model is currently loading\",\"estimated_time\":20}")
+            .responder(503, "{\"error\":\"Model is currently loading\",\"estimated_time\":20}");
+
+        Map<String, Double> puntuaciones = predictor.query(new byte[] {1, 2, 3});
+
+        assertEquals(0.9, puntuaciones.get("LABEL_0"));
+        assertEquals(3, stub.getPeticiones());
+    }
+
+    @Test
+    @DisplayName("No reintenta un timeout de lectura y abre el circuit breaker tras varios fallos")
+    public void query_timeoutOpensCircuitBreaker() throws Exception {
+        stub.responder(200, PredictorStub.PREDICCION, 1000)
+            .responder(200, PredictorStub.PREDICCION, 1000);
+
+        assertThrows(Exception.class, () -> predictor.query(new byte[] {1}));
+        assertThrows(Exception.class, () -> predictor.query(new byte[] {1}));
+        assertEquals(CircuitBreaker.Estado.ABIERTO, predictor.getEstadoCircuitBreaker());
+
+        // Con el circuito abierto ya no se llama al servidor
+        assertThrows(PredictorNoDisponibleException.class, () -> predictor.query(new byte[] {1}));
+        assertEquals(2, stub.getPeticiones());
+
+        assertEquals(2, registry.get("springuma.predictor.llamadas").tag("resultado", "error").timer().count());
+        assertEquals(1, registry.get("springuma.predictor.llamadas").tag("resultado", "rechazada").timer().count());
+        assertEquals(0, registry.get("springuma.predictor.en.curso").gauge().value());
+    }
+}
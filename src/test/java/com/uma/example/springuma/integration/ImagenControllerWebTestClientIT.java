@@ -2,26 +2,51 @@
 
 package com.uma.example.springuma.integration;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
 
+import com.uma.example.springuma.model.EstadisticasCache;
 import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenResumen;
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.Pagina;
+import com.uma.example.springuma.model.RepositoryPrediccionCacheada;
+import com.uma.example.springuma.store.ImageStore;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -37,6 +62,12 @@ public class ImagenControllerWebTestClientIT {
     @LocalServerPort
     private Integer port;
 
+    @Autowired
+    private RepositoryPrediccionCacheada repositoryPrediccion;
+
+    @Autowired
+    private ImageStore imageStore;
+
     private WebTestClient client;
 
     private Paciente paciente;
@@ -125,6 +156,7 @@ public class ImagenControllerWebTestClientIT {
         assertEquals(1, imagenes.size());
         Imagen imagen = imagenes.get(0);
         assertEquals("healthy.png", imagen.getNombre());
+        assertEquals(file.length(), imagen.getTamano());
         assertEquals(paciente.getNombre(), imagen.getPaciente().getNombre());
 
         // Obtener la info de la imagen por id y comprobar los datos
@@ -141,6 +173,363 @@ public class ImagenControllerWebTestClientIT {
         assertEquals(paciente.getNombre(), imagenInfo.getPaciente().getNombre());
 
     }
+// En esta prueba comprobamos que las imágenes de un paciente se recorren por páginas, ordenadas por fecha,
+// siguiendo el cursor de cada respuesta
+    @Test
+    @DisplayName("Recorre las imágenes de un paciente por páginas")
+    public void paginaImagenesPaciente() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        File file = new File("./src/test/resources/healthy.png");
+        for (int i = 0; i < 3; i++) {
+            MultipartBodyBuilder builder = new MultipartBodyBuilder();
+            builder.part("image", new FileSystemResource(file));
+            builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+            client.post()
+                .uri("/imagen")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isOk();
+        }
+
+        ParameterizedTypeReference<Pagina<ImagenResumen>> tipoPagina = new ParameterizedTypeReference<>() {};
+        Pagina<ImagenResumen> primera = client.get()
+            .uri("/imagen/paciente/" + paciente.getId() + "/pagina?tamano=2")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(tipoPagina)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(2, primera.elementos().size());
+        assertNotNull(primera.siguiente());
+
+        Pagina<ImagenResumen> segunda = client.get()
+            .uri(b -> b.path("/imagen/paciente/" + paciente.getId() + "/pagina")
+                .queryParam("tamano", 2)
+                .queryParam("cursor", primera.siguiente())
+                .build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(tipoPagina)
+            .returnResult()
+            .getResponseBody();
+
+        // La ultima imagen, sin repetir ninguna de la primera pagina
+        assertEquals(1, segunda.elementos().size());
+        assertNull(segunda.siguiente());
+        List<Long> ids = List.of(primera.elementos().get(0).id(), primera.elementos().get(1).id(),
+            segunda.elementos().get(0).id());
+        assertEquals(3, ids.stream().distinct().count());
+
+        // El cursor del orden por fecha no vale para el orden por id
+        client.get()
+            .uri(b -> b.path("/imagen/paciente/" + paciente.getId() + "/pagina")
+                .queryParam("orden", "id")
+                .queryParam("cursor", primera.siguiente())
+                .build())
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+// En esta prueba comprobamos que se pueden subir varias imágenes de un paciente en una sola petición
+    @Test
+    @DisplayName("Importa varias imágenes de un paciente en una sola petición")
+    public void importarImagenes() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("imagenes", new FileSystemResource(new File("./src/test/resources/healthy.png")));
+        builder.part("imagenes", new FileSystemResource(new File("./src/test/resources/no_healthty.png")));
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+
+        client.post()
+            .uri("/imagen/importar")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.importados").isEqualTo(2)
+            .jsonPath("$.fallidos").isEqualTo(0);
+
+        List<ImagenResumen> imagenes = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ImagenResumen.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(List.of("healthy.png", "no_healthty.png"), imagenes.stream().map(ImagenResumen::nombre).toList());
+    }
+
+// En esta prueba comprobamos que el get con url "/imagen/id" devuelve exactamente los bytes de la imagen subida
+    @Test
+    @DisplayName("Descarga la imagen subida y coincide con el fichero original")
+    public void downloadImage_sameContent() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        File file = new File("./src/test/resources/healthy.png");
+
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new FileSystemResource(file));
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+
+        client.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk();
+
+        List<Imagen> imagenes = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Imagen.class)
+            .returnResult()
+            .getResponseBody();
+
+        byte[] descargada = client.get()
+            .uri("/imagen/" + imagenes.get(0).getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_PNG)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        assertArrayEquals(Files.readAllBytes(file.toPath()), descargada);
+    }
+
+// En esta prueba comprobamos que el get con url "/imagen/id?size=" devuelve las variantes reducidas en JPEG con el
+// lado mayor configurado y la proporcion del original, y que el original se sigue sirviendo entero como PNG
+    @Test
+    @DisplayName("Descarga la miniatura y la vista previa de una imagen grande")
+    public void downloadImage_variantes() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        BufferedImage grande = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < grande.getHeight(); y++) {
+            for (int x = 0; x < grande.getWidth(); x++) {
+                grande.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(grande, "png", png);
+
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new ByteArrayResource(png.toByteArray()) {
+            @Override
+            public String getFilename() {
+                return "grande.png";
+            }
+        });
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+
+        client.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk();
+
+        long id = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(ImagenResumen.class)
+            .returnResult()
+            .getResponseBody().get(0).id();
+
+        EntityExchangeResult<byte[]> respuestaMiniatura = client.get()
+            .uri("/imagen/" + id + "?size=thumb")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_JPEG)
+            .expectHeader().valueMatches(HttpHeaders.ETAG, "\"[0-9a-f]{64}\\.128\\.jpg85\"")
+            .expectBody(byte[].class)
+            .returnResult();
+        byte[] miniatura = respuestaMiniatura.getResponseBody();
+        String etagMiniatura = respuestaMiniatura.getResponseHeaders().getETag();
+        BufferedImage leida = ImageIO.read(new ByteArrayInputStream(miniatura));
+        assertEquals(128, leida.getWidth());
+        assertEquals(96, leida.getHeight());
+        assertTrue(miniatura.length < 64 * 1024, "La miniatura ocupa " + miniatura.length + " bytes");
+
+        byte[] vistaPrevia = client.get()
+            .uri("/imagen/" + id + "?size=preview")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_JPEG)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+        leida = ImageIO.read(new ByteArrayInputStream(vistaPrevia));
+        assertEquals(512, leida.getWidth());
+        assertEquals(384, leida.getHeight());
+
+        byte[] original = client.mutate()
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(png.size()))
+            .build()
+            .get()
+            .uri("/imagen/" + id + "?size=full")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_PNG)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+        assertArrayEquals(png.toByteArray(), original);
+
+        client.get()
+            .uri("/imagen/" + id + "?size=enorme")
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        // La peticion condicional de una variante se contesta sin generarla
+        String claveMiniatura = etagMiniatura.substring(1, etagMiniatura.length() - 1);
+        imageStore.delete(claveMiniatura);
+        client.get()
+            .uri("/imagen/" + id + "?size=thumb")
+            .header(HttpHeaders.IF_NONE_MATCH, etagMiniatura)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etagMiniatura);
+        assertFalse(imageStore.exists(claveMiniatura));
+    }
+
+// En esta prueba comprobamos que la descarga lleva ETag, Last-Modified y Cache-Control immutable, que las
+// peticiones condicionales con el ETag o la fecha se contestan con 304 sin cuerpo y que se sirven rangos de bytes
+    @Test
+    @DisplayName("Descarga condicional (304) y por rangos (206) de una imagen")
+    public void downloadImage_cacheYRangos() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        File file = new File("./src/test/resources/healthy.png");
+        byte[] contenido = Files.readAllBytes(file.toPath());
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new FileSystemResource(file));
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+        client.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk();
+        long id = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectBodyList(ImagenResumen.class)
+            .returnResult()
+            .getResponseBody().get(0).id();
+
+        HttpHeaders cabeceras = client.get()
+            .uri("/imagen/" + id)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueMatches(HttpHeaders.ETAG, "\"[0-9a-f]{64}\"")
+            .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, ".*immutable.*")
+            .expectHeader().valueEquals(HttpHeaders.ACCEPT_RANGES, "bytes")
+            .expectBody(byte[].class).isEqualTo(contenido)
+            .returnResult()
+            .getResponseHeaders();
+        String etag = cabeceras.getETag();
+        assertEquals(1, cabeceras.get(HttpHeaders.ETAG).size());
+        assertTrue(cabeceras.getLastModified() > 0);
+
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+            .expectBody().isEmpty();
+        client.get()
+            .uri("/imagen/" + id)
+            .ifModifiedSince(ZonedDateTime.now())
+            .exchange()
+            .expectStatus().isNotModified();
+
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=100-199")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 100-199/" + contenido.length)
+            .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(contenido, 100, 200));
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=-10")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(contenido, contenido.length - 10, contenido.length));
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=" + contenido.length + "-")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes */" + contenido.length);
+        // Con un If-Range que ya no corresponde a la imagen se devuelve entera
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=100-199")
+            .header(HttpHeaders.IF_RANGE, "\"otro\"")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(byte[].class).isEqualTo(contenido);
+    }
+
+// En esta prueba comprobamos que los rangos tambien se sirven de un contenido guardado comprimido
+    @Test
+    @DisplayName("Descarga por rangos de una imagen guardada con deflate")
+    public void downloadImage_rangoComprimido() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        byte[] contenido = new byte[20000];
+        for (int i = 0; i < contenido.length; i++) {
+            contenido[i] = (byte) (i % 251);
+        }
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new ByteArrayResource(contenido) {
+            @Override
+            public String getFilename() {
+                return "datos.raw";
+            }
+        });
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+        client.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk();
+        long id = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectBodyList(ImagenResumen.class)
+            .returnResult()
+            .getResponseBody().get(0).id();
+
+        client.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=15000-15009")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 15000-15009/20000")
+            .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(contenido, 15000, 15010));
+    }
+
 // En esta prueba comprobamos que el get con url "/imagen/id" da error si la imagen no existe
     @Test
     @DisplayName("Falla al obtener imagen binaria porque el ID no existe")
@@ -194,6 +583,67 @@ public class ImagenControllerWebTestClientIT {
         assertEquals(true, prediction.contains("status"));
     }
 
+// En esta prueba comprobamos que la prediccion de una imagen se cachea: la segunda peticion devuelve
+// el mismo resultado y cuenta como acierto de la cache. Sin la API la prediccion es simulada: se marca
+// como tal y no se guarda en la tabla prediccion_cache
+    @Test
+    @DisplayName("La segunda predicción de la misma imagen sale de la caché")
+    public void getImagenPrediction_cached() throws Exception {
+        guardarMedico(medico);
+        guardarPaciente(paciente);
+
+        File file = new File("./src/test/resources/healthy.png");
+
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new FileSystemResource(file));
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+
+        client.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk();
+
+        Long imagenId = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(Imagen.class)
+            .returnResult()
+            .getResponseBody()
+            .get(0)
+            .getId();
+
+        String primera = client.get().uri("/imagen/predict/" + imagenId)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        String segunda = client.get().uri("/imagen/predict/" + imagenId)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(primera, segunda);
+
+        EstadisticasCache estadisticas = client.get().uri("/prediccion/cache")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(EstadisticasCache.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(1, estadisticas.aciertos());
+        assertEquals(1, estadisticas.llamadasModelo());
+        assertTrue(primera.contains("'simulada': true"));
+        assertEquals(0, repositoryPrediccion.count());
+    }
+
 // En esta prueba comprobamos que el delete elimina la imagen correctamente y 
 // no aparece en la lista de imágenes del paciente
     @Test
@@ -0,0 +1,223 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import com.uma.example.springuma.model.ImagenResumen;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+import com.uma.example.springuma.reactivo.ServidorReactivo;
+
+// API reactiva de imagenes (ServidorReactivo): subida y descarga con las mismas respuestas que ImagenController.
+// Medicos, pacientes y listados se siguen pidiendo al Tomcat de la aplicacion
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ImagenReactivoWebTestClientIT {
+
+    private static final AtomicInteger SIGUIENTE = new AtomicInteger();
+
+    @LocalServerPort
+    private Integer port;
+
+    @Autowired
+    private ServidorReactivo servidorReactivo;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    private WebTestClient client;
+
+    private WebTestClient reactivo;
+
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port)
+                .responseTimeout(Duration.ofMillis(30000))
+                .build();
+        reactivo = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + servidorReactivo.getPuerto())
+                .responseTimeout(Duration.ofMillis(30000))
+                .build();
+
+        // Un medico y un paciente nuevos por test: el contexto se comparte entre los tests de la clase
+        int n = SIGUIENTE.incrementAndGet();
+        Medico medico = repositoryMedico.save(new Medico(String.format("%08dM", n), "Dr. Juan", "Radiologia"));
+        paciente = repositoryPaciente.save(new Paciente("Soraya", 30, "Consulta", String.format("%08dP", n), medico));
+    }
+
+    private long subir(MultipartBodyBuilder builder, String nombre) {
+        builder.part("paciente", paciente, MediaType.APPLICATION_JSON);
+        reactivo.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(builder.build()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo("{\"response\" : \"file uploaded successfully : " + nombre + "\"}");
+        List<ImagenResumen> imagenes = client.get()
+            .uri("/imagen/paciente/" + paciente.getId())
+            .exchange()
+            .expectBodyList(ImagenResumen.class)
+            .returnResult()
+            .getResponseBody();
+        return imagenes.get(imagenes.size() - 1).id();
+    }
+
+    @Test
+    @DisplayName("Sube y descarga una imagen por la API reactiva, con 304 y rangos")
+    void subirYDescargar() throws Exception {
+        File file = new File("./src/test/resources/healthy.png");
+        byte[] contenido = Files.readAllBytes(file.toPath());
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new FileSystemResource(file));
+        long id = subir(builder, "healthy.png");
+
+        HttpHeaders cabeceras = reactivo.get()
+            .uri("/imagen/" + id)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_PNG)
+            .expectHeader().contentLength(contenido.length)
+            .expectHeader().valueMatches(HttpHeaders.ETAG, "\"[0-9a-f]{64}\"")
+            .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, ".*immutable.*")
+            .expectHeader().valueEquals(HttpHeaders.ACCEPT_RANGES, "bytes")
+            .expectBody(byte[].class).isEqualTo(contenido)
+            .returnResult()
+            .getResponseHeaders();
+        assertTrue(cabeceras.getLastModified() > 0);
+
+        // Las mismas cabeceras que el endpoint de Tomcat
+        HttpHeaders servlet = client.get()
+            .uri("/imagen/" + id)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(byte[].class).isEqualTo(contenido)
+            .returnResult()
+            .getResponseHeaders();
+        assertEquals(servlet.getETag(), cabeceras.getETag());
+        assertEquals(servlet.getCacheControl(), cabeceras.getCacheControl());
+        assertEquals(servlet.getLastModified(), cabeceras.getLastModified());
+
+        reactivo.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.IF_NONE_MATCH, cabeceras.getETag())
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, cabeceras.getETag())
+            .expectBody().isEmpty();
+
+        reactivo.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=100-199")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 100-199/" + contenido.length)
+            .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(contenido, 100, 200));
+        reactivo.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=" + contenido.length + "-")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes */" + contenido.length);
+
+        reactivo.get()
+            .uri("/imagen/" + id + "?size=thumb")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_JPEG);
+        reactivo.get()
+            .uri("/imagen/" + id + "?size=enorme")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Descarga por la API reactiva una imagen guardada con deflate, entera y por rangos")
+    void descargarComprimida() {
+        byte[] contenido = new byte[200000];
+        for (int i = 0; i < contenido.length; i++) {
+            contenido[i] = (byte) (i % 251);
+        }
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("image", new ByteArrayResource(contenido) {
+            @Override
+            public String getFilename() {
+                return "datos.raw";
+            }
+        });
+        long id = subir(builder, "datos.raw");
+
+        reactivo.mutate().codecs(c -> c.defaultCodecs().maxInMemorySize(contenido.length)).build()
+            .get()
+            .uri("/imagen/" + id)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .expectBody(byte[].class).isEqualTo(contenido);
+        reactivo.get()
+            .uri("/imagen/" + id)
+            .header(HttpHeaders.RANGE, "bytes=150000-150009")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 150000-150009/200000")
+            .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(contenido, 150000, 150010));
+    }
+
+    @Test
+    @DisplayName("La API reactiva rechaza subidas sin imagen o sin paciente")
+    void subidaIncompleta() {
+        MultipartBodyBuilder sinImagen = new MultipartBodyBuilder();
+        sinImagen.part("paciente", paciente, MediaType.APPLICATION_JSON);
+        reactivo.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(sinImagen.build()))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        MultipartBodyBuilder sinPaciente = new MultipartBodyBuilder();
+        sinPaciente.part("image", new FileSystemResource(new File("./src/test/resources/healthy.png")));
+        reactivo.post()
+            .uri("/imagen")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(sinPaciente.build()))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        reactivo.get()
+            .uri("/imagen/9999")
+            .exchange()
+            .expectStatus().is5xxServerError();
+    }
+}
@@ -0,0 +1,108 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.ImagenStoreMigracion;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.utils.ImageUtils;
+
+public class ImagenStoreMigracionIT extends AbstractIntegration {
+
+    @Autowired
+    private MedicoService medicoService;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private ImagenStoreMigracion migracion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+// En esta prueba se guardan imagenes con el contenido en la fila (formato antiguo) y se comprueba que la migracion
+// las mueve al almacen, deduplica el contenido repetido y que se siguen descargando igual
+    @Test
+    @DisplayName("Migra al almacen las imagenes guardadas en la base de datos")
+    public void migrar_imagenesAntiguas() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        byte[] original = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+
+        long[] ids = new long[3];
+        for (int i = 0; i < ids.length; i++) {
+            Imagen antigua = new Imagen(ImageUtils.compressImage(original), paciente);
+            antigua.setNombre("healthy" + i + ".png");
+            antigua.setFecha(Calendar.getInstance());
+            ids[i] = imagenService.addImagen(antigua).getId();
+        }
+
+        assertEquals(3, migracion.migrar(2));
+
+        Imagen migrada = repositoryImagen.findById(ids[0]).orElseThrow();
+        assertNotNull(migrada.getHash());
+        // file_content es LAZY y la imagen ya esta fuera de la transaccion: se comprueba en la tabla
+        assertNull(jdbcTemplate.queryForObject("select file_content from imagen where id = ?", Object.class, ids[0]));
+        assertEquals(Imagen.CODEC_IDENTITY, migrada.getCodec());
+        assertEquals(original.length, migrada.getTamano());
+        assertEquals("image/png", migrada.getTipo());
+        assertEquals(3, repositoryImagen.countByHashAndCodec(migrada.getHash(), migrada.getCodec()));
+
+        ByteArrayOutputStream descargada = new ByteArrayOutputStream();
+        imagenService.downloadImage(ids[2], descargada);
+        assertArrayEquals(original, descargada.toByteArray());
+
+        assertEquals(0, migracion.migrar(2));
+    }
+
+    // Imagenes del ImageStore sin tipo, como las subidas antes de la columna: se les pone el de su cabecera
+    @Test
+    @DisplayName("Completa el tipo de las imagenes que no lo tienen")
+    public void completarTipos_imagenesSinTipo() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        MockMultipartFile fichero = new MockMultipartFile("image", "healthy.png", "image/png",
+            Files.readAllBytes(Paths.get("./src/test/resources/healthy.png")));
+        for (int i = 0; i < 3; i++) {
+            imagenService.uploadImage(fichero, paciente);
+        }
+        List<Long> ids = jdbcTemplate.queryForList("select id from imagen order by id", Long.class);
+        jdbcTemplate.update("update imagen set tipo = null where id <> ?", ids.get(1));
+        jdbcTemplate.update("update imagen set tipo = 'image/gif' where id = ?", ids.get(1));
+
+        assertEquals(2, migracion.completarTipos(1));
+
+        assertEquals("image/png", repositoryImagen.findById(ids.get(0)).orElseThrow().getTipo());
+        assertEquals("image/gif", repositoryImagen.findById(ids.get(1)).orElseThrow().getTipo());
+        assertEquals("image/png", repositoryImagen.findById(ids.get(2)).orElseThrow().getTipo());
+        assertEquals(0, migracion.completarTipos(1));
+    }
+}
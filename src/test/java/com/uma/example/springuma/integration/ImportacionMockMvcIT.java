@@ -0,0 +1,91 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+// Importacion masiva con lotes pequeños, para que una importacion ocupe varios lotes
+@TestPropertySource(properties = "importacion.lote=10")
+public class ImportacionMockMvcIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    // En esta prueba se importan medicos en NDJSON: las lineas con dni repetido o JSON no valido se
+    // descartan con su numero de linea y el resto se guardan
+    @Test
+    @DisplayName("Importar médicos en NDJSON descartando los registros erróneos")
+    void importarMedicosNdjson() throws Exception {
+        String ndjson = """
+            {"dni": "11111111A", "nombre": "Dr. Juan", "especialidad": "Radiologia"}
+            {"dni": "22222222B", "nombre": "Dra. Ana"}
+            {"dni": "11111111A", "nombre": "Repetido"}
+            {"dni": "33333333C", "nombre":
+            """;
+
+        this.mockMvc.perform(post("/medico/importar")
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.leidos").value(4))
+                .andExpect(jsonPath("$.importados").value(2))
+                .andExpect(jsonPath("$.fallidos").value(2))
+                .andExpect(jsonPath("$.errores[0].registro").value(4))
+                .andExpect(jsonPath("$.errores[1].registro").value(3));
+
+        this.mockMvc.perform(get("/medico/dni/22222222B"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Dra. Ana"));
+    }
+
+    // En esta prueba se importan pacientes en CSV en varios lotes. Un nombre demasiado largo hace fallar el
+    // INSERT de su lote en la base de datos: el lote se repite registro a registro y solo se pierde ese paciente
+    @Test
+    @DisplayName("Importar pacientes en CSV por lotes sin perder el lote de un registro que falla")
+    void importarPacientesCsv() throws Exception {
+        this.mockMvc.perform(post("/medico/importar")
+                .contentType("text/csv")
+                .content("dni,nombre,especialidad\n11111111A,Dr. Juan,Radiologia\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importados").value(1));
+
+        StringBuilder csv = new StringBuilder("nombre,edad,cita,dni,medico_dni\n");
+        for (int i = 0; i < 25; i++) {
+            String nombre = i == 12 ? "x".repeat(300) : "\"Paciente, " + i + "\"";
+            csv.append(nombre).append(",40,,").append(String.format("%08dP", i)).append(",11111111A\n");
+        }
+        csv.append("Sin medico,30,,99999999P,00000000Z\n");
+        csv.append("Edad mala,treinta,,99999998P,11111111A\n");
+
+        this.mockMvc.perform(post("/paciente/importar")
+                .contentType("text/csv")
+                .content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.leidos").value(27))
+                .andExpect(jsonPath("$.importados").value(24))
+                .andExpect(jsonPath("$.fallidos").value(3))
+                .andExpect(jsonPath("$.errores[?(@.registro == 14)]").exists())
+                .andExpect(jsonPath("$.errores[?(@.registro == 27)]").exists())
+                .andExpect(jsonPath("$.errores[?(@.registro == 28)]").exists());
+
+        assertEquals(24, repositoryPaciente.count());
+        this.mockMvc.perform(get("/paciente/" + repositoryPaciente.findByDni("00000013P").getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Paciente, 13"))
+                .andExpect(jsonPath("$.medico.dni").value("11111111A"));
+    }
+}
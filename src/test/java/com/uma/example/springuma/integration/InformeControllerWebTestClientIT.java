@@ -6,9 +6,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.io.File;
+import java.net.URI;
 import java.time.Duration;
 import java.util.List;
 
+import com.uma.example.springuma.model.EstadoInforme;
+import com.uma.example.springuma.model.EstadoPrediccion;
 import com.uma.example.springuma.model.Imagen;
 import com.uma.example.springuma.model.Informe;
 import com.uma.example.springuma.model.Medico;
@@ -77,6 +80,32 @@ public class InformeControllerWebTestClientIT {
                 .expectStatus().isCreated();
     }
 
+// Método privado para guardar un informe. La prediccion se calcula en segundo plano, asi que se consulta
+// la URL de estado devuelta en Location hasta que esta completada
+    private void guardarInforme(Informe informe) {
+        URI estadoUri = client.post().uri("/informe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(informe), Informe.class)
+                .exchange()
+                .expectStatus().isAccepted()
+                .returnResult(EstadoInforme.class)
+                .getResponseHeaders()
+                .getLocation();
+
+        assertNotNull(estadoUri);
+        long limite = System.currentTimeMillis() + 10000;
+        EstadoInforme estado;
+        do {
+            estado = client.get().uri(estadoUri)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(EstadoInforme.class)
+                    .returnResult()
+                    .getResponseBody();
+        } while (estado.estado() == EstadoPrediccion.PENDIENTE && System.currentTimeMillis() < limite);
+        assertEquals(EstadoPrediccion.COMPLETADA, estado.estado());
+    }
+
 // Método privado que devuelve la imagen healthy.png después de subirla
     private Imagen subirImagen() {
         File file = new File("./src/test/resources/healthy.png");
@@ -114,11 +143,7 @@ public class InformeControllerWebTestClientIT {
         informe.setId(1L);
         informe.setImagen(imagen);
 
-        client.post().uri("/informe")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(Mono.just(informe), Informe.class)
-                .exchange()
-                .expectStatus().isCreated();
+        guardarInforme(informe);
 
         Informe result = client.get()
                 .uri("/informe/" + informe.getId())
@@ -145,11 +170,7 @@ public class InformeControllerWebTestClientIT {
         informe.setId(1L);
         informe.setImagen(imagen);
 
-        client.post().uri("/informe")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(Mono.just(informe), Informe.class)
-                .exchange()
-                .expectStatus().isCreated();
+        guardarInforme(informe);
 
         List<Informe> informes = client.get()
                 .uri("/informe/imagen/" + imagen.getId())
@@ -174,11 +195,7 @@ public class InformeControllerWebTestClientIT {
         informe.setId(1L);
         informe.setImagen(imagen);
 
-        client.post().uri("/informe")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(Mono.just(informe), Informe.class)
-                .exchange()
-                .expectStatus().isCreated();
+        guardarInforme(informe);
 
         client.delete()
                 .uri("/informe/" + informe.getId())
@@ -0,0 +1,56 @@
+package com.uma.example.springuma.integration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+
+// Comprueba que las metricas propias (servicios, sentencias por peticion) y las de Hibernate salen en
+// /actuator/prometheus. En los tests el exportador de Prometheus solo se activa con @AutoConfigureObservability.
+@AutoConfigureObservability
+@TestPropertySource(properties = {
+    "management.endpoints.web.exposure.include=prometheus",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class MetricasMockMvcIT extends AbstractIntegration {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Las metricas de servicios, peticiones e Hibernate se exponen en formato Prometheus")
+    void prometheus_exponeMetricas() throws Exception {
+        Medico medico = new Medico("12345678A", "Dr. Juan", "Radiologia");
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(medico)))
+                .andExpect(status().isCreated());
+        this.mockMvc.perform(get("/medico/dni/12345678A"))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                    "springuma_servicio_seconds_count{class=\"com.uma.example.springuma.model.MedicoService\",exception=\"none\",method=\"getMedicoByDni\"")))
+                .andExpect(content().string(containsString(
+                    "springuma_peticion_sentencias_sum{method=\"GET\",uri=\"/medico/dni/{dni}\",} 1.0")))
+                .andExpect(content().string(containsString(
+                    "springuma_peticion_entidades_sum{method=\"GET\",uri=\"/medico/dni/{dni}\",} 1.0")))
+                .andExpect(content().string(containsString("hibernate_query_executions_total")));
+    }
+}
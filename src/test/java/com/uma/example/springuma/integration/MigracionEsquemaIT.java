@@ -0,0 +1,119 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.ImagenStoreMigracion;
+import com.uma.example.springuma.utils.ImageUtils;
+
+// Arranca sobre una base de datos con el esquema y los datos que dejaba la aplicacion antes de las migraciones
+// (esquema-base.sql): se marca como version 1, se le aplican las siguientes y Hibernate valida las entidades
+public class MigracionEsquemaIT extends AbstractIntegration {
+
+    private static final String URL = "jdbc:h2:mem:esquema_base_test;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private ImagenStoreMigracion migracion;
+
+    @DynamicPropertySource
+    static void baseDatosExistente(DynamicPropertyRegistry registry) throws SQLException, IOException {
+        byte[] original = original();
+        try (Connection conexion = DriverManager.getConnection(URL, "test", "test");
+                Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("drop all objects");
+            sentencia.execute("runscript from './src/test/resources/esquema-base.sql'");
+            sentencia.execute("insert into medico values (1, '11111111A', 'Radiologia', 'Dr. Juan')");
+            sentencia.execute("insert into paciente values (1, null, '22222222B', 30, 'Soraya', 1)");
+            // El contenido de las imagenes iba comprimido en la fila
+            try (PreparedStatement imagen = conexion.prepareStatement(
+                    "insert into imagen values (1, current_timestamp, ?, 'healthy.png', 1)")) {
+                imagen.setBytes(1, ImageUtils.compressImage(original));
+                imagen.executeUpdate();
+            }
+            sentencia.execute("insert into informe values (1, 'Sin hallazgos', 'Not cancer (label 0)', 1)");
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    @DisplayName("Aplica las migraciones a una base de datos creada antes de ellas")
+    void baseDatosAntigua_seMigra() throws Exception {
+        // La version 1 no se ejecuta: se marca (BASELINE) porque las tablas ya existen
+        List<String> versiones = jdbcTemplate.queryForList("select \"version\" || ' ' || \"type\" "
+            + "from \"flyway_schema_history\" where \"version\" is not null and \"success\" order by \"installed_rank\"",
+            String.class);
+        assertEquals(List.of("1 BASELINE", "2 SQL", "3 SQL"), versiones);
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from information_schema.indexes "
+            + "where index_name in ('IMAGEN_HASH', 'INFORME_ESTADO_PREDICCION')", Integer.class));
+
+        this.mockMvc.perform(get("/paciente/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value("22222222B"));
+        this.mockMvc.perform(get("/informe/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.prediccion").value("Not cancer (label 0)"))
+                .andExpect(jsonPath("$.contenido").value("Sin hallazgos"));
+        this.mockMvc.perform(get("/imagen/info/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("healthy.png"));
+    }
+
+// En esta prueba comprobamos que las migraciones del esquema no tocan el contenido de las imagenes antiguas, que se
+// siguen descargando desde la fila, y que despues las pasa al almacen la migracion de segundo plano
+    @Test
+    @DisplayName("Las imagenes antiguas se migran al almacen despues del esquema")
+    void imagenesAntiguas_seMigranEnSegundoPlano() throws Exception {
+        assertNull(jdbcTemplate.queryForObject("select hash from imagen where id = 1", String.class));
+        assertNotNull(jdbcTemplate.queryForObject("select file_content from imagen where id = 1", Object.class));
+        ByteArrayOutputStream descargada = new ByteArrayOutputStream();
+        imagenService.downloadImage(1, descargada);
+        assertArrayEquals(original(), descargada.toByteArray());
+
+        assertEquals(1, migracion.migrar(10));
+
+        assertNotNull(jdbcTemplate.queryForObject("select hash from imagen where id = 1", String.class));
+        assertNull(jdbcTemplate.queryForObject("select file_content from imagen where id = 1", Object.class));
+        descargada.reset();
+        imagenService.downloadImage(1, descargada);
+        assertArrayEquals(original(), descargada.toByteArray());
+    }
+
+    private static byte[] original() throws IOException {
+        return Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+    }
+}
@@ -8,14 +8,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uma.example.springuma.integration.base.AbstractIntegration;
 
 import com.uma.example.springuma.model.Medico;
 import com.uma.example.springuma.model.Paciente;
 
+import jakarta.persistence.EntityManagerFactory;
+
 public class PacienteControllerMockMvcIT extends AbstractIntegration{
     
     @Autowired
@@ -24,6 +29,9 @@ public class PacienteControllerMockMvcIT extends AbstractIntegration{
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Medico medico;
 
     private Paciente paciente;
@@ -134,6 +142,35 @@ public class PacienteControllerMockMvcIT extends AbstractIntegration{
     }
 
 
+// En esta prueba se comprueba que al borrar un médico sus pacientes (borrados en cascada por la base de datos)
+// dejan de estar en la caché de segundo nivel y en las consultas cacheadas
+    @Test
+    @DisplayName("Borrar un médico saca a sus pacientes de la caché")
+    void testBorrarMedicoInvalidaCachePacientes() throws Exception {
+        // Guardar el médico
+        guardarMedico(medico);
+        // Guardar el paciente
+        guardarPaciente(paciente);
+
+        // Obtener los pacientes del médico, que quedan en la caché
+        this.mockMvc.perform(get("/paciente/medico/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].dni").value("12345678B"));
+        assertTrue(entityManagerFactory.getCache().contains(Paciente.class, 1L));
+
+        // Borrar el médico
+        this.mockMvc.perform(delete("/medico/1"))
+                .andExpect(status().isOk());
+
+        // Comprobar que el paciente ya no está en la caché ni se puede obtener
+        assertFalse(entityManagerFactory.getCache().contains(Paciente.class, 1L));
+        this.mockMvc.perform(get("/paciente/1"))
+                .andExpect(status().is5xxServerError());
+        this.mockMvc.perform(get("/paciente/medico/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
 // En esta prueba se comprueba que el getPacientes de un Medico es correcto
     @Test
     @DisplayName("Crear paciente y comprobar que se obtiene correctamente")
@@ -160,6 +197,40 @@ public class PacienteControllerMockMvcIT extends AbstractIntegration{
                 .andExpect(jsonPath("$[1].dni").value("12345678C"));
     }
 
+// En esta prueba se comprueba que los pacientes de un médico se recorren por páginas siguiendo el cursor
+    @Test
+    @DisplayName("Recorrer los pacientes de un médico por páginas")
+    void testPaginaPacientesMedico() throws Exception {
+        guardarMedico(medico);
+        for (int i = 0; i < 3; i++) {
+            Paciente p = new Paciente("Paciente " + i, 30, null, "1234567" + i + "P", medico);
+            guardarPaciente(p);
+        }
+
+        // Primera página: dos pacientes y cursor para la siguiente
+        String respuesta = this.mockMvc.perform(get("/paciente/medico/1/pagina").param("tamano", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos.length()").value(2))
+                .andExpect(jsonPath("$.elementos[0].dni").value("12345670P"))
+                .andExpect(jsonPath("$.elementos[1].dni").value("12345671P"))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode pagina = objectMapper.readTree(respuesta);
+        assertFalse(pagina.get("siguiente").isNull());
+
+        // Segunda página: el paciente que falta y sin cursor
+        this.mockMvc.perform(get("/paciente/medico/1/pagina")
+                .param("tamano", "2")
+                .param("cursor", pagina.get("siguiente").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos.length()").value(1))
+                .andExpect(jsonPath("$.elementos[0].dni").value("12345672P"))
+                .andExpect(jsonPath("$.siguiente").isEmpty());
+
+        // Un cursor que no ha generado el servidor da 400
+        this.mockMvc.perform(get("/paciente/medico/1/pagina").param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
 // En esta prueba comprobamos que no se puede obtener un paciente que no existe
     @Test
     @DisplayName("Comprobar que no se puede obtener un paciente que no existe")
@@ -0,0 +1,138 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.integration.base.SentenciasSql;
+import com.uma.example.springuma.model.EstadoPrediccion;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryInforme;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Plan de H2 de las consultas de los repositorios sobre una base de datos con datos (y estadisticas de ANALYZE):
+// se ejecuta cada consulta de busqueda, se recogen las sentencias SQL que ha recibido H2 (QUERY_STATISTICS) y el
+// EXPLAIN de cada una no puede recorrer ninguna tabla ni ningun indice entero. Si falta el indice de una consulta, falla
+public class PlanesConsultaIT extends AbstractIntegration {
+
+    private static final int MEDICOS = 20;
+    private static final int PACIENTES = 2000;
+    private static final int IMAGENES = 6000;
+
+    // En el plan, el indice con el que se lee cada tabla va en un comentario seguido de la condicion que se busca
+    // en el; sin condicion se lee entero, y tableScan es recorrer la tabla
+    private static final Pattern RECORRIDO = Pattern.compile("/\\* PUBLIC\\.[^:*]+ \\*/");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into medico (id, dni, nombre, especialidad) "
+            + "select x, lpad(x, 8, '0') || 'A', 'Medico ' || x, 'Radiologia' from system_range(1, ?)", MEDICOS);
+        jdbcTemplate.update("insert into paciente (id, dni, nombre, edad, cita, medico_id) "
+            + "select x, lpad(x, 8, '0') || 'B', 'Paciente ' || x, 40, 'Consulta', mod(x, ?) + 1 "
+            + "from system_range(1, ?)", MEDICOS, PACIENTES);
+        // Las ultimas imagenes sin fecha, y una de cada cien con el contenido aun en la base de datos
+        jdbcTemplate.update("insert into imagen (id, nombre, fecha, tamano, hash, codec, tipo, paciente_id, file_content) "
+            + "select x, 'imagen' || x || '.png', case when x > ? - 100 then null "
+            + "else dateadd(day, x, timestamp '2020-01-01 00:00:00') end, 1024, "
+            + "case when mod(x, 100) = 0 then null else rawtohex('h' || x) end, 'deflate', 'image/png', "
+            + "mod(x, ?) + 1, case when mod(x, 100) = 0 then x'00' end from system_range(1, ?)",
+            IMAGENES, PACIENTES, IMAGENES);
+        jdbcTemplate.update("insert into informe (id, prediccion, contenido, estado_prediccion, imagen_id) "
+            + "select x, 'Not cancer', 'Informe ' || x, case when mod(x, 100) = 0 then 'PENDIENTE' "
+            + "else 'COMPLETADA' end, x from system_range(1, ?)", IMAGENES);
+        jdbcTemplate.execute("analyze");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @DisplayName("Ninguna consulta de busqueda de los repositorios recorre una tabla entera")
+    void consultasConIndice() {
+        List<String> sentencias = SentenciasSql.selectsDe(jdbcTemplate, () -> {
+            PageRequest pagina = PageRequest.of(0, 20);
+            Calendar fecha = new GregorianCalendar(2020, Calendar.JUNE, 1);
+
+            repositoryMedico.getMedicoByDni("00000001A");
+            repositoryMedico.findDnisExistentes(Set.of("00000001A", "00000002A"));
+            repositoryMedico.findIndexableById(1);
+            repositoryMedico.findIndexablePagina(10, pagina);
+
+            repositoryPaciente.findByDni("00000001B");
+            repositoryPaciente.findByMedicoId(1L);
+            repositoryPaciente.findByMedicoIdAndIdGreaterThanOrderById(1L, 100, pagina);
+            repositoryPaciente.findDnisExistentes(Set.of("00000001B", "00000002B"));
+            repositoryPaciente.findIndexableById(1);
+            repositoryPaciente.findIndexablePagina(100, pagina);
+
+            repositoryImagen.getByPacienteId(1L);
+            repositoryImagen.findConPacienteById(1L);
+            repositoryImagen.findResumenByPacienteId(1L);
+            repositoryImagen.findResumenPaginaByPacienteId(1L, pagina);
+            repositoryImagen.findResumenPaginaByPacienteIdTras(1L, fecha, 100, pagina);
+            repositoryImagen.findResumenPaginaByPacienteIdTrasSinFecha(1L, 100, pagina);
+            repositoryImagen.findResumenPaginaByPacienteIdOrdenId(1L, 100, pagina);
+            repositoryImagen.findResumenPagina(100, pagina);
+            repositoryImagen.findContenidoById(1);
+            repositoryImagen.countByHash("abc");
+            repositoryImagen.countByHashAndCodec("abc", "deflate");
+            repositoryImagen.findClavesContenidoByPacienteId(1L);
+            repositoryImagen.findClavesContenidoByMedicoId(1L);
+            repositoryImagen.findIdsPendientesDeMigrar(pagina);
+            repositoryImagen.findContenidoSinTipo(100, pagina);
+
+            repositoryInforme.findByImagenId(1L);
+            repositoryInforme.findConImagenById(1L);
+            repositoryInforme.findResumenByImagenId(1L);
+            repositoryInforme.findResumenPagina(100, pagina);
+            repositoryInforme.findIdsByEstado(EstadoPrediccion.PENDIENTE, pagina);
+            repositoryInforme.findIndexableById(1);
+            repositoryInforme.findIndexableByPacienteId(1);
+            repositoryInforme.findIndexablePagina(100, pagina);
+        });
+        assertEquals(33, sentencias.size(), () -> "Sentencias recogidas: " + sentencias);
+
+        List<String> recorridos = new ArrayList<>();
+        for (String sentencia : sentencias) {
+            String plan = jdbcTemplate.queryForObject("explain " + sentencia, String.class, new Object[0]);
+            if (RECORRIDO.matcher(plan).find()) {
+                recorridos.add(plan);
+            }
+        }
+        assertTrue(recorridos.isEmpty(), () -> "Consultas que recorren una tabla entera:\n"
+            + String.join("\n\n", recorridos));
+    }
+}
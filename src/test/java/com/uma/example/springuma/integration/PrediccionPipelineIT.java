@@ -0,0 +1,111 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.integration.base.PredictorStub;
+import com.uma.example.springuma.model.EstadoInforme;
+import com.uma.example.springuma.model.EstadoPrediccion;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.InformeService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+
+// Predicciones de los informes en segundo plano contra un predictor local (PredictorStub): si el predictor falla o
+// no esta disponible el informe sigue PENDIENTE y se reintenta; solo un error que no se arregla reintentando lo deja
+// en ERROR
+public class PrediccionPipelineIT extends AbstractIntegration {
+
+    private static PredictorStub stub;
+
+    @Autowired
+    private MedicoService medicoService;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private InformeService informeService;
+
+    @DynamicPropertySource
+    static void predictor(DynamicPropertyRegistry registry) throws IOException {
+        if (stub == null) {
+            stub = new PredictorStub();
+        }
+        registry.add("prediccion.api.habilitada", () -> "true");
+        registry.add("prediccion.api.url", stub::getUrl);
+        registry.add("prediccion.api.reintentos", () -> "0");
+        // El circuit breaker se abre con el primer fallo y deja probar de nuevo a los 100 ms
+        registry.add("prediccion.api.circuit-breaker.umbral-fallos", () -> "1");
+        registry.add("prediccion.api.circuit-breaker.tiempo-abierto-ms", () -> "100");
+        registry.add("informe.prediccion.reintento-ms", () -> "200");
+    }
+
+    @AfterAll
+    void cerrarPredictor() {
+        stub.close();
+    }
+
+// En esta prueba el predictor devuelve errores 500 y despues se recupera: el informe no se queda en ERROR sino que
+// se reintenta hasta tener su prediccion
+    @Test
+    @DisplayName("Reintenta la prediccion mientras el predictor falla")
+    public void predictorCaido_seReintenta() throws Exception {
+        stub.responder(500, "{\"error\":\"Internal Server Error\"}")
+            .responder(500, "{\"error\":\"Internal Server Error\"}");
+        int peticiones = stub.getPeticiones();
+
+        Informe informe = informeService.addInforme(new Informe(null, "Sin hallazgos", nuevaImagen()));
+
+        EstadoInforme estado = esperarResultado(informe.getId());
+        assertEquals(EstadoPrediccion.COMPLETADA, estado.estado());
+        assertTrue(stub.getPeticiones() - peticiones >= 3);
+    }
+
+    @Test
+    @DisplayName("Deja el informe en ERROR si el predictor rechaza la imagen")
+    public void imagenRechazada_error() throws Exception {
+        stub.responder(400, "{\"error\":\"Imagen no valida\"}");
+
+        Informe informe = informeService.addInforme(new Informe(null, "Sin hallazgos", nuevaImagen()));
+
+        assertEquals(EstadoPrediccion.ERROR, esperarResultado(informe.getId()).estado());
+    }
+
+    private Imagen nuevaImagen() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        imagenService.uploadImage("healthy.png", new ByteArrayInputStream(contenido), paciente);
+        return imagenService.getImagenesPaciente(paciente.getId()).get(0);
+    }
+
+    private EstadoInforme esperarResultado(long id) throws InterruptedException {
+        EstadoInforme estado = informeService.getEstadoInforme(id);
+        for (int i = 0; i < 200 && estado.estado() == EstadoPrediccion.PENDIENTE; i++) {
+            Thread.sleep(50);
+            estado = informeService.getEstadoInforme(id);
+        }
+        return estado;
+    }
+}
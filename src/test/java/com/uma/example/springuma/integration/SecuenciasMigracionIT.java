@@ -0,0 +1,76 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.Medico;
+
+// Arranca sobre una base de datos que ya tiene medicos y una secuencia atrasada, como las creadas antes de las
+// secuencias pooled-lo: los nuevos ids tienen que seguir despues de los existentes y con la reserva configurada
+public class SecuenciasMigracionIT extends AbstractIntegration {
+
+    private static final String URL = "jdbc:h2:mem:secuencias_test;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void baseDatosExistente(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection conexion = DriverManager.getConnection(URL, "test", "test");
+                Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("drop all objects");
+            sentencia.execute("create table medico (id bigint not null primary key, dni varchar(255) unique, "
+                + "nombre varchar(255), especialidad varchar(255))");
+            sentencia.execute("insert into medico values (1, '11111111A', 'Dr. Juan', null), (120, '22222222B', 'Dra. Ana', null)");
+            sentencia.execute("create sequence medico_seq start with 101 increment by 50");
+        }
+        registry.add("spring.datasource.url", () -> URL);
+        // Solo la tabla medico, como la dejaba ddl-auto=update: sin las migraciones del esquema
+        registry.add("spring.flyway.enabled", () -> "false");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("entidades.id.reserva", () -> "20");
+    }
+
+    @Test
+    @DisplayName("Los ids nuevos siguen al mayor id existente y la secuencia usa la reserva configurada")
+    void idsExistentesSeConservan() throws Exception {
+        assertEquals(20, jdbcTemplate.queryForObject(
+            "select increment from information_schema.sequences where sequence_name = 'MEDICO_SEQ'", Long.class));
+
+        this.mockMvc.perform(post("/medico")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(new Medico("33333333C", "Dr. Pedro", null))))
+                .andExpect(status().isCreated());
+
+        this.mockMvc.perform(get("/medico/dni/33333333C"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(121));
+        this.mockMvc.perform(get("/medico/120"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dni").value("22222222B"));
+    }
+}
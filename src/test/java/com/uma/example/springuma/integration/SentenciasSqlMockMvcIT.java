@@ -0,0 +1,135 @@
+package com.uma.example.springuma.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.integration.base.SentenciasSql;
+import com.uma.example.springuma.model.EstadoPrediccion;
+import com.uma.example.springuma.model.Imagen;
+import com.uma.example.springuma.model.Informe;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.RepositoryImagen;
+import com.uma.example.springuma.model.RepositoryInforme;
+import com.uma.example.springuma.model.RepositoryMedico;
+import com.uma.example.springuma.model.RepositoryPaciente;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Numero de sentencias SQL de los endpoints que devuelven la cadena Informe -> Imagen -> Paciente -> Medico. Las
+// asociaciones son LAZY y cada endpoint pide el grafo que devuelve, asi que tiene que salir en una sola sentencia
+// aunque la cache de segundo nivel este vacia; si alguno vuelve a cargar las asociaciones de una en una, falla
+public class SentenciasSqlMockMvcIT extends AbstractIntegration {
+
+    private static final int PACIENTES = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RepositoryMedico repositoryMedico;
+
+    @Autowired
+    private RepositoryPaciente repositoryPaciente;
+
+    @Autowired
+    private RepositoryImagen repositoryImagen;
+
+    @Autowired
+    private RepositoryInforme repositoryInforme;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Medico medico;
+    private List<Informe> informes;
+
+    @BeforeEach
+    void setUp() {
+        medico = repositoryMedico.save(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        informes = new ArrayList<>();
+        for (int i = 0; i < PACIENTES; i++) {
+            Paciente paciente = repositoryPaciente.save(
+                new Paciente("Paciente " + i, 40, "Consulta", String.format("%08dB", i), medico));
+            Imagen imagen = new Imagen();
+            imagen.setNombre("imagen" + i + ".png");
+            imagen.setFecha(Calendar.getInstance());
+            imagen.setPaciente(paciente);
+            imagen = repositoryImagen.save(imagen);
+            Informe informe = new Informe("Not cancer", "Informe " + i, imagen);
+            informe.setEstadoPrediccion(EstadoPrediccion.COMPLETADA);
+            informes.add(repositoryInforme.save(informe));
+        }
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @DisplayName("Un informe se obtiene con su imagen, paciente y médico en una sola sentencia")
+    void informeConImagenPacienteYMedico() throws Exception {
+        Informe informe = informes.get(PACIENTES - 1);
+
+        this.mockMvc.perform(get("/informe/" + informe.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imagen.nombre").value("imagen4.png"))
+                .andExpect(jsonPath("$.imagen.paciente.nombre").value("Paciente 4"))
+                .andExpect(jsonPath("$.imagen.paciente.medico.nombre").value("Dr. Juan"))
+                .andExpect(SentenciasSql.maximo(1));
+
+        // El estado no necesita la imagen: ya no se cargan la imagen, el paciente y el medico con el informe
+        this.mockMvc.perform(get("/informe/" + informe.getId() + "/estado"))
+                .andExpect(status().isOk())
+                .andExpect(SentenciasSql.maximo(1));
+    }
+
+    @Test
+    @DisplayName("La información de una imagen se obtiene con su paciente y médico en una sola sentencia")
+    void imagenConPacienteYMedico() throws Exception {
+        Imagen imagen = informes.get(0).getImagen();
+
+        this.mockMvc.perform(get("/imagen/info/" + imagen.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.paciente.nombre").value("Paciente 0"))
+                .andExpect(jsonPath("$.paciente.medico.dni").value("12345678A"))
+                .andExpect(SentenciasSql.maximo(1));
+
+        this.mockMvc.perform(get("/imagen/info/0"))
+                .andExpect(status().is5xxServerError());
+    }
+
+    @Test
+    @DisplayName("Los pacientes de un médico se obtienen con el médico sin una sentencia por paciente")
+    void pacientesConMedico() throws Exception {
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(PACIENTES))
+                .andExpect(jsonPath("$[4].medico.nombre").value("Dr. Juan"))
+                .andExpect(SentenciasSql.maximo(1));
+
+        this.mockMvc.perform(get("/paciente/medico/" + medico.getId() + "/pagina").param("tamano", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos[1].medico.nombre").value("Dr. Juan"))
+                .andExpect(SentenciasSql.maximo(1));
+
+        // Por id se pasa por la cache de segundo nivel: en frio, el paciente y su medico
+        long id = informes.get(0).getImagen().getPaciente().getId();
+        this.mockMvc.perform(get("/paciente/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.medico.nombre").value("Dr. Juan"))
+                .andExpect(SentenciasSql.maximo(2));
+        this.mockMvc.perform(get("/paciente/" + id))
+                .andExpect(status().isOk())
+                .andExpect(SentenciasSql.maximo(0));
+    }
+}
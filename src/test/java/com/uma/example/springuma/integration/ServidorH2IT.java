@@ -0,0 +1,53 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+
+// La aplicacion usa su base de datos a traves del servidor TCP de H2 que arranca ella misma. La base de datos la
+// crea la propia instancia: los clientes del servidor no pueden crear otras
+public class ServidorH2IT extends AbstractIntegration {
+
+    private static int puerto;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void servidorH2(DynamicPropertyRegistry registry) throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            puerto = socket.getLocalPort();
+        }
+        registry.add("h2.servidor.habilitado", () -> "true");
+        registry.add("h2.servidor.puerto", () -> puerto);
+        registry.add("h2.servidor.directorio", () -> "./target/servidor-h2-" + UUID.randomUUID());
+        registry.add("spring.datasource.url", () -> "jdbc:h2:tcp://localhost:" + puerto + "/./servidor");
+    }
+
+    @Test
+    @DisplayName("Crea su base de datos y no deja crear otras a los clientes")
+    void baseDatosPropia_sinCrearOtras() throws Exception {
+        this.mockMvc.perform(get("/paciente/medico/1"))
+                .andExpect(status().isOk());
+
+        assertThrows(SQLException.class, () -> DriverManager.getConnection(
+            "jdbc:h2:tcp://localhost:" + puerto + "/./otra", "test", "test").close());
+        assertThrows(SQLException.class, () -> DriverManager.getConnection(
+            "jdbc:h2:tcp://localhost:" + puerto + "/mem:otra", "test", "test").close());
+    }
+}
@@ -0,0 +1,109 @@
+package com.uma.example.springuma.integration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.uma.example.springuma.integration.base.AbstractIntegration;
+import com.uma.example.springuma.model.ImagenService;
+import com.uma.example.springuma.model.Medico;
+import com.uma.example.springuma.model.MedicoService;
+import com.uma.example.springuma.model.Paciente;
+import com.uma.example.springuma.model.PacienteService;
+import com.uma.example.springuma.model.VariantesImagen;
+import com.uma.example.springuma.store.ImageStore;
+
+// Las variantes reducidas se generan en segundo plano cuando termina la transaccion que guarda la fila de la imagen,
+// y se borran del almacen con el contenido cuando ya no queda ninguna imagen que lo use
+public class VariantesImagenIT extends AbstractIntegration {
+
+    @Autowired
+    private MedicoService medicoService;
+
+    @Autowired
+    private PacienteService pacienteService;
+
+    @Autowired
+    private ImagenService imagenService;
+
+    @Autowired
+    private VariantesImagen variantesImagen;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Test
+    @DisplayName("Genera las variantes de una imagen subida")
+    public void subida_generaVariantes() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+
+        imagenService.uploadImage("healthy.png", new ByteArrayInputStream(contenido), paciente);
+
+        String miniatura = variantesImagen.clave(sha256(contenido), VariantesImagen.MINIATURA);
+        for (int i = 0; i < 100 && !imageStore.exists(miniatura); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(imageStore.exists(miniatura));
+    }
+
+// En esta prueba comprobamos que al borrar un paciente, cuyas imagenes borra la base de datos en cascada, tambien se
+// borran del almacen el contenido y las variantes que solo usaban ellas
+    @Test
+    @DisplayName("Borrar un paciente borra del almacen el contenido de sus imagenes")
+    public void borrarPaciente_borraContenido() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        String hash = subir(paciente);
+        String miniatura = variantesImagen.clave(hash, VariantesImagen.MINIATURA);
+
+        pacienteService.removePacienteID(paciente.getId());
+
+        // Un PNG se guarda tal cual: su clave es el hash
+        assertFalse(imageStore.exists(hash));
+        assertFalse(imageStore.exists(miniatura));
+    }
+
+    @Test
+    @DisplayName("Borrar un medico borra del almacen el contenido de las imagenes de sus pacientes")
+    public void borrarMedico_borraContenido() throws Exception {
+        Medico medico = medicoService.addMedico(new Medico("12345678A", "Dr. Juan", "Radiologia"));
+        Paciente paciente = pacienteService.addPaciente(new Paciente("Soraya", 30, null, "12345678B", medico));
+        String hash = subir(paciente);
+        String miniatura = variantesImagen.clave(hash, VariantesImagen.MINIATURA);
+
+        medicoService.removeMedicoID(medico.getId());
+
+        // Un PNG se guarda tal cual: su clave es el hash
+        assertFalse(imageStore.exists(hash));
+        assertFalse(imageStore.exists(miniatura));
+    }
+
+    // Sube una imagen, espera a que este generada su miniatura y devuelve el hash de su contenido
+    private String subir(Paciente paciente) throws Exception {
+        byte[] contenido = Files.readAllBytes(Paths.get("./src/test/resources/healthy.png"));
+        imagenService.uploadImage("healthy.png", new ByteArrayInputStream(contenido), paciente);
+        String hash = sha256(contenido);
+        String miniatura = variantesImagen.clave(hash, VariantesImagen.MINIATURA);
+        for (int i = 0; i < 100 && !imageStore.exists(miniatura); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(imageStore.exists(hash));
+        assertTrue(imageStore.exists(miniatura));
+        return hash;
+    }
+
+    private static String sha256(byte[] contenido) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido));
+    }
+}
@@ -0,0 +1,75 @@
+package com.uma.example.springuma.integration.base;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+// Servidor HTTP local que imita la API de inferencia de Hugging Face para probar ImagenAPIPredictor sin red.
+// Las respuestas se encolan con responder(...); cuando no quedan se devuelve una prediccion valida.
+public class PredictorStub implements AutoCloseable {
+
+    public static final String PREDICCION = "[{\"label\":\"LABEL_0\",\"score\":0.9},{\"label\":\"LABEL_1\",\"score\":0.1}]";
+
+    private record Respuesta(int status, String cuerpo, long retardoMs) {}
+
+    private final HttpServer server;
+    private final Queue<Respuesta> respuestas = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger peticiones = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    public PredictorStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            peticiones.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Respuesta respuesta = respuestas.poll();
+            if (respuesta == null) {
+                respuesta = new Respuesta(200, PREDICCION, 0);
+            }
+            try {
+                Thread.sleep(respuesta.retardoMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] cuerpo = respuesta.cuerpo().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(respuesta.status(), cuerpo.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public PredictorStub responder(int status, String cuerpo) {
+        return responder(status, cuerpo, 0);
+    }
+
+    public PredictorStub responder(int status, String cuerpo, long retardoMs) {
+        respuestas.add(new Respuesta(status, cuerpo, retardoMs));
+        return this;
+    }
+
+    public int getPeticiones() {
+        return peticiones.get();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/models/test";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
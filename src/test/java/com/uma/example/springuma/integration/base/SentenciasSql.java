@@ -0,0 +1,42 @@
+package com.uma.example.springuma.integration.base;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import com.uma.example.springuma.metricas.ContadorHibernate;
+
+// Comprobaciones sobre las sentencias SQL que ha preparado Hibernate en una peticion de MockMvc, para que un N+1
+// haga fallar el test del endpoint. ContadorHibernate cuenta por hilo y MetricasPeticionFilter lo reinicia al
+// empezar cada peticion; MockMvc atiende la peticion en el hilo del test, asi que el contador se lee en andExpect.
+// Y las SELECT que ha recibido H2 mientras se ejecuta un bloque de codigo, para comprobar su texto o su plan.
+public final class SentenciasSql {
+
+    private SentenciasSql() {
+    }
+
+    public static ResultMatcher maximo(long maximo) {
+        return resultado -> {
+            long sentencias = ContadorHibernate.getSentencias();
+            if (sentencias > maximo) {
+                throw new AssertionError(resultado.getRequest().getMethod() + " " + resultado.getRequest().getRequestURI()
+                    + " ha ejecutado " + sentencias + " sentencias SQL y se esperaban como mucho " + maximo);
+            }
+        };
+    }
+
+    // Las SELECT sobre las tablas de la aplicacion que recibe H2 mientras se ejecutan las consultas (sin repetir).
+    // Las estadisticas de consultas son de toda la base de datos y se vacian al desactivarlas
+    public static List<String> selectsDe(JdbcTemplate jdbcTemplate, Runnable consultas) {
+        jdbcTemplate.execute("set query_statistics true");
+        try {
+            consultas.run();
+            return jdbcTemplate.queryForList("select sql_statement from information_schema.query_statistics "
+                + "where lower(sql_statement) like 'select %' "
+                + "and lower(sql_statement) not like '%information_schema%'", String.class);
+        } finally {
+            jdbcTemplate.execute("set query_statistics false");
+        }
+    }
+}